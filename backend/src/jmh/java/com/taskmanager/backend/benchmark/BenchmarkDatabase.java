@@ -0,0 +1,99 @@
+package com.taskmanager.backend.benchmark;
+
+import com.taskmanager.backend.BackendApplication;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scratch PostgreSQL database for the query benchmarks, migrated with the
+ * application's own Flyway scripts. Seeded rows are kept between runs, so
+ * only the first run pays for seeding. Configured with -Dbench.db.url,
+ * -Dbench.db.user and -Dbench.db.password (see the jmh profile in pom.xml).
+ * Benchmarks that go through the repositories boot the application on it
+ * with {@link #startApplication()}.
+ */
+final class BenchmarkDatabase {
+
+    static final String URL = System.getProperty("bench.db.url",
+            "jdbc:postgresql://localhost:5432/taskmanager_bench");
+    static final String USER = System.getProperty("bench.db.user", "postgres");
+    static final String PASSWORD = System.getProperty("bench.db.password", "");
+
+    private BenchmarkDatabase() {
+    }
+
+    static Connection migrateAndConnect() throws SQLException {
+        Flyway.configure()
+                .dataSource(URL, USER, PASSWORD)
+                .locations("classpath:db/migration", "classpath:db/vendor/postgresql")
+                .load()
+                .migrate();
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    static ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + URL,
+                        "--spring.datasource.username=" + USER,
+                        "--spring.datasource.password=" + PASSWORD,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.taskmanager=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--storage.backend=local",
+                        "--storage.local.root=${java.io.tmpdir}/taskmanager-bench-storage");
+    }
+
+    static long count(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, sql, params);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    static void execute(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, sql, params)) {
+            statement.execute();
+        }
+    }
+
+    static List<String> explain(Connection connection, String sql, Object... params) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = prepare(connection, "EXPLAIN (COSTS OFF) " + sql, params);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                plan.add(rs.getString(1));
+            }
+        }
+        return plan;
+    }
+
+    static PreparedStatement prepare(Connection connection, String sql, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+        return statement;
+    }
+
+    static void printPlan(String label, List<String> plan) {
+        System.out.println("# " + label);
+        plan.forEach(line -> System.out.println("#   " + line));
+    }
+}
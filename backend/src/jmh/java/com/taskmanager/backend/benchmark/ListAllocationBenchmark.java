@@ -0,0 +1,125 @@
+package com.taskmanager.backend.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.backend.model.Pago;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.service.PagoService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done by GET /api/pagos/all for a landlord with a given number of
+ * payments, from the query to the serialized JSON body:
+ * <ul>
+ *   <li>entities: managed Pago entities with their tenant and property, in a read-write
+ *   transaction kept open while serializing, as the list endpoints used to return</li>
+ *   <li>projections: PagoService.getAllByUser, PagoListItem rows from a readOnly transaction</li>
+ * </ul>
+ * Run with -prof gc and compare gc.alloc.rate.norm, the bytes allocated per
+ * request. Boots the application against the benchmark database
+ * (see BenchmarkDatabase).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListAllocationBenchmark {
+
+    private static final String ENTITY_LIST = "SELECT p FROM Pago p JOIN FETCH p.inquilino JOIN FETCH p.propiedad "
+            + "WHERE p.user.id = :userId ORDER BY p.createdAt DESC";
+
+    @Param({"500", "5000"})
+    public int pagos;
+
+    private ConfigurableApplicationContext context;
+    private PagoService pagoService;
+    private ObjectMapper objectMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.startApplication();
+        pagoService = context.getBean(PagoService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        user = context.getBean(UserRepository.class).findById(seed()).orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] entities() {
+        return transaction.execute(status -> json(entityManager.createQuery(ENTITY_LIST, Pago.class)
+                .setParameter("userId", user.getId())
+                .getResultList()));
+    }
+
+    @Benchmark
+    public byte[] projections() {
+        return json(pagoService.getAllByUser(user));
+    }
+
+    private byte[] json(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // One landlord per size, with 20 properties, 20 tenants and the requested number of payments
+    private long seed() {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        String email = "bench-list-" + pagos + "@bench.local";
+        Long seeded = jdbc.queryForObject("SELECT COUNT(*) FROM pagos p JOIN users u ON u.id = p.user_id "
+                + "WHERE u.email = ?", Long.class, email);
+        if (seeded == null || seeded != pagos) {
+            String owner = "(SELECT id FROM users WHERE email = '" + email + "')";
+            jdbc.update("DELETE FROM pagos WHERE user_id = " + owner);
+            jdbc.update("DELETE FROM inquilinos WHERE user_id = " + owner);
+            jdbc.update("DELETE FROM propiedades WHERE user_id = " + owner);
+            jdbc.update("DELETE FROM users WHERE email = ?", email);
+
+            jdbc.update("INSERT INTO users (name, email, password) VALUES ('Bench', ?, 'x')", email);
+            jdbc.update("INSERT INTO propiedades (nombre, direccion, ciudad, pais, tipo, renta_mensual, estado, user_id, created_at) "
+                    + "SELECT 'Casa ' || g, 'Calle ' || g, 'Lima', 'PE', 'casa', 500, 'ocupada', " + owner + ", now() "
+                    + "FROM generate_series(1, 20) g");
+            jdbc.update("INSERT INTO inquilinos (nombre, apellido, email, telefono, documento, user_id, created_at) "
+                    + "SELECT 'Luis', 'Perez ' || g, 'luis' || g || '@x.com', '555' || g, 'D' || g, " + owner + ", now() "
+                    + "FROM generate_series(1, 20) g");
+            jdbc.update("INSERT INTO pagos (inquilino_id, propiedad_id, monto, fecha_vencimiento, fecha_pago, estado, "
+                    + "user_id, created_at) "
+                    + "SELECT i.ids[1 + g % 20], pr.ids[1 + g % 20], 500, DATE '2020-01-01' + g, "
+                    + "CASE WHEN g % 4 > 0 THEN DATE '2020-01-01' + g END, "
+                    + "CASE WHEN g % 4 > 0 THEN 'pagado' ELSE 'atrasado' END, u.id, now() - g * INTERVAL '1 hour' "
+                    + "FROM users u "
+                    + "CROSS JOIN LATERAL (SELECT array_agg(id ORDER BY id) ids FROM inquilinos WHERE user_id = u.id) i "
+                    + "CROSS JOIN LATERAL (SELECT array_agg(id ORDER BY id) ids FROM propiedades WHERE user_id = u.id) pr "
+                    + "CROSS JOIN generate_series(1, ?) g WHERE u.email = ?", pagos, email);
+            jdbc.execute("ANALYZE pagos");
+        }
+        return jdbc.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+}
@@ -0,0 +1,161 @@
+package com.taskmanager.backend.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PagoRepository per-month aggregates over a seeded pagos table
+ * (bench.pagos.rows, 2 million by default, spread over bench.pagos.users
+ * landlords and ten years of due dates), written both ways:
+ * <ul>
+ *   <li>monthFunctions: MONTH(col) = :m AND YEAR(col) = :y, as the queries were</li>
+ *   <li>halfOpenRange: col &gt;= :monthStart AND col &lt; :nextMonthStart, as they are now</li>
+ * </ul>
+ * Setup prints both plans and fails if the range query does not use the date
+ * column in an index condition, or if the function query does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PagoMonthAggregateBenchmark {
+
+    private static final String EMAIL_PREFIX = "bench-pagos-";
+    private static final long ROWS = Long.getLong("bench.pagos.rows", 2_000_000L);
+    private static final int USERS = Integer.getInteger("bench.pagos.users", 20);
+    private static final LocalDate MONTH = LocalDate.of(2020, 6, 1);
+
+    public enum Aggregate {
+        SUM_PAGADOS("SELECT COALESCE(SUM(p.monto), 0) FROM pagos p WHERE p.user_id = ? AND p.estado = 'pagado'",
+                "p.fecha_pago"),
+        SUM_PENDIENTES("SELECT COALESCE(SUM(p.monto), 0) FROM pagos p WHERE p.user_id = ? "
+                + "AND p.estado IN ('pendiente', 'atrasado')", "p.fecha_vencimiento"),
+        COUNT_MOROSOS("SELECT COUNT(DISTINCT p.inquilino_id) FROM pagos p WHERE p.user_id = ? "
+                + "AND p.estado = 'atrasado'", "p.fecha_vencimiento"),
+        COUNT_PROPIEDADES("SELECT COUNT(DISTINCT p.propiedad_id) FROM pagos p WHERE p.user_id = ?",
+                "p.fecha_vencimiento");
+
+        private final String select;
+        private final String column;
+
+        Aggregate(String select, String column) {
+            this.select = select;
+            this.column = column;
+        }
+
+        String monthFunctions() {
+            return select + " AND EXTRACT(MONTH FROM " + column + ") = ? AND EXTRACT(YEAR FROM " + column + ") = ?";
+        }
+
+        String halfOpenRange() {
+            return select + " AND " + column + " >= ? AND " + column + " < ?";
+        }
+    }
+
+    @Param
+    public Aggregate aggregate;
+
+    private Connection connection;
+    private PreparedStatement monthFunctions;
+    private PreparedStatement halfOpenRange;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.migrateAndConnect();
+        long userId = seed();
+
+        Object[] functionParams = {userId, MONTH.getMonthValue(), MONTH.getYear()};
+        Object[] rangeParams = {userId, Date.valueOf(MONTH), Date.valueOf(MONTH.plusMonths(1))};
+        String column = aggregate.column.substring(2);
+
+        List<String> functionPlan = BenchmarkDatabase.explain(connection, aggregate.monthFunctions(), functionParams);
+        List<String> rangePlan = BenchmarkDatabase.explain(connection, aggregate.halfOpenRange(), rangeParams);
+        BenchmarkDatabase.printPlan(aggregate + " monthFunctions", functionPlan);
+        BenchmarkDatabase.printPlan(aggregate + " halfOpenRange", rangePlan);
+        if (rangesOver(functionPlan, column) || !rangesOver(rangePlan, column)) {
+            throw new IllegalStateException("Only the half-open query should range-scan " + column);
+        }
+
+        monthFunctions = BenchmarkDatabase.prepare(connection, aggregate.monthFunctions(), functionParams);
+        halfOpenRange = BenchmarkDatabase.prepare(connection, aggregate.halfOpenRange(), rangeParams);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public Object monthFunctions() throws SQLException {
+        return single(monthFunctions);
+    }
+
+    @Benchmark
+    public Object halfOpenRange() throws SQLException {
+        return single(halfOpenRange);
+    }
+
+    private static Object single(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getObject(1);
+        }
+    }
+
+    private static boolean rangesOver(List<String> plan, String column) {
+        return plan.stream().anyMatch(line -> line.contains("Index Cond:") && line.contains(column));
+    }
+
+    // Seeds USERS landlords with ten properties, ten tenants and ROWS / USERS payments each,
+    // unless a previous run already did; returns the landlord the queries run for
+    private long seed() throws SQLException {
+        long seeded = BenchmarkDatabase.count(connection, "SELECT COUNT(*) FROM pagos p JOIN users u ON u.id = p.user_id "
+                + "WHERE u.email LIKE ?", EMAIL_PREFIX + "%");
+        if (seeded != ROWS - ROWS % USERS) {
+            System.out.println("# Seeding " + ROWS + " pagos for " + USERS + " users");
+            String benchUsers = "SELECT id FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%'";
+            BenchmarkDatabase.execute(connection, "DELETE FROM pagos WHERE user_id IN (" + benchUsers + ")");
+            BenchmarkDatabase.execute(connection, "DELETE FROM inquilinos WHERE user_id IN (" + benchUsers + ")");
+            BenchmarkDatabase.execute(connection, "DELETE FROM propiedades WHERE user_id IN (" + benchUsers + ")");
+            BenchmarkDatabase.execute(connection, "DELETE FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+
+            BenchmarkDatabase.execute(connection, "INSERT INTO users (name, email, password) "
+                    + "SELECT 'Bench ' || u, ?::text || u || '@bench.local', 'x' FROM generate_series(1, ?) u",
+                    EMAIL_PREFIX, USERS);
+            BenchmarkDatabase.execute(connection, "INSERT INTO propiedades (nombre, renta_mensual, estado, user_id, created_at) "
+                    + "SELECT 'Casa ' || g, 500, 'ocupada', u.id, now() FROM (" + benchUsers + ") u, generate_series(1, 10) g");
+            BenchmarkDatabase.execute(connection, "INSERT INTO inquilinos (nombre, apellido, user_id, created_at) "
+                    + "SELECT 'Inquilino', 'N' || g, u.id, now() FROM (" + benchUsers + ") u, generate_series(1, 10) g");
+            // Ten years of due dates; 70% paid a few days late, 10% pending, 20% overdue
+            BenchmarkDatabase.execute(connection, "INSERT INTO pagos (inquilino_id, propiedad_id, monto, fecha_vencimiento, "
+                    + "fecha_pago, estado, user_id, created_at) "
+                    + "SELECT i.ids[1 + g % 10], pr.ids[1 + g % 10], 500, d.due, "
+                    + "CASE WHEN s.bucket < 7 THEN d.due + g % 5 END, "
+                    + "CASE WHEN s.bucket < 7 THEN 'pagado' WHEN s.bucket < 8 THEN 'pendiente' ELSE 'atrasado' END, "
+                    + "u.id, now() "
+                    + "FROM (" + benchUsers + ") u "
+                    + "CROSS JOIN LATERAL (SELECT array_agg(id ORDER BY id) ids FROM inquilinos WHERE user_id = u.id) i "
+                    + "CROSS JOIN LATERAL (SELECT array_agg(id ORDER BY id) ids FROM propiedades WHERE user_id = u.id) pr "
+                    + "CROSS JOIN generate_series(0, ? - 1) g "
+                    + "CROSS JOIN LATERAL (SELECT DATE '2015-01-01' + g % 3650 AS due) d "
+                    + "CROSS JOIN LATERAL (SELECT (g / 3650 + g) % 10 AS bucket) s", (int) (ROWS / USERS));
+            BenchmarkDatabase.execute(connection, "ANALYZE users, propiedades, inquilinos, pagos");
+        }
+        return BenchmarkDatabase.count(connection, "SELECT MIN(id) FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+    }
+}
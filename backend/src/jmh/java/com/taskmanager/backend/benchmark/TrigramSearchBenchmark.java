@@ -0,0 +1,142 @@
+package com.taskmanager.backend.benchmark;
+
+import com.taskmanager.backend.dto.InquilinoListItem;
+import com.taskmanager.backend.model.Inquilino;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.InquilinoRepository;
+import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.service.InquilinoService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of the tenant search box for a landlord with bench.search.rows
+ * tenants (100k by default; three landlords are seeded so the index also holds
+ * other users' rows):
+ * <ul>
+ *   <li>perColumnLike: the LOWER(col) LIKE '%term%' OR ... query and its count, as the
+ *   repository had it</li>
+ *   <li>concatenatedLike: InquilinoRepository.searchByUser, the fallback without pg_trgm</li>
+ *   <li>trigramRanked: InquilinoService.search, ranked by word_similarity over the
+ *   trigram index</li>
+ * </ul>
+ * Needs pg_trgm on the benchmark database (see BenchmarkDatabase).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrigramSearchBenchmark {
+
+    private static final String EMAIL_PREFIX = "bench-search-";
+    private static final int ROWS = Integer.getInteger("bench.search.rows", 100_000);
+    private static final int USERS = 3;
+
+    private static final String PER_COLUMN_MATCH = "i.user.id = :userId AND "
+            + "(LOWER(i.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR "
+            + "LOWER(i.apellido) LIKE LOWER(CONCAT('%', :search, '%')) OR "
+            + "LOWER(i.email) LIKE LOWER(CONCAT('%', :search, '%')) OR "
+            + "LOWER(i.telefono) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    // A rare term and one that matches a tenth of the rows
+    @Param({"ana1234", "perez"})
+    public String term;
+
+    private final Pageable firstPage = PageRequest.of(0, 10, Sort.by("createdAt").descending());
+
+    private ConfigurableApplicationContext context;
+    private InquilinoService inquilinoService;
+    private InquilinoRepository inquilinoRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDatabase.startApplication();
+        inquilinoService = context.getBean(InquilinoService.class);
+        inquilinoRepository = context.getBean(InquilinoRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        user = context.getBean(UserRepository.class).findById(seed()).orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object perColumnLike() {
+        return transaction.execute(status -> {
+            List<Inquilino> rows = entityManager.createQuery("SELECT i FROM Inquilino i WHERE " + PER_COLUMN_MATCH
+                            + " ORDER BY i.createdAt DESC", Inquilino.class)
+                    .setParameter("userId", user.getId())
+                    .setParameter("search", term)
+                    .setMaxResults(firstPage.getPageSize())
+                    .getResultList();
+            Long total = entityManager.createQuery("SELECT COUNT(i) FROM Inquilino i WHERE " + PER_COLUMN_MATCH, Long.class)
+                    .setParameter("userId", user.getId())
+                    .setParameter("search", term)
+                    .getSingleResult();
+            return List.of(rows, total);
+        });
+    }
+
+    @Benchmark
+    public Page<InquilinoListItem> concatenatedLike() {
+        return inquilinoRepository.searchByUser(user.getId(), term, firstPage);
+    }
+
+    @Benchmark
+    public Page<InquilinoListItem> trigramRanked() {
+        return inquilinoService.search(user, term, firstPage);
+    }
+
+    // USERS landlords with ROWS tenants each, named from small lists so terms repeat across rows
+    private long seed() {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Long seeded = jdbc.queryForObject("SELECT COUNT(*) FROM inquilinos i JOIN users u ON u.id = i.user_id "
+                + "WHERE u.email LIKE ?", Long.class, EMAIL_PREFIX + "%");
+        if (seeded == null || seeded != (long) ROWS * USERS) {
+            String benchUsers = "SELECT id FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%'";
+            jdbc.update("DELETE FROM inquilinos WHERE user_id IN (" + benchUsers + ")");
+            jdbc.update("DELETE FROM users WHERE email LIKE ?", EMAIL_PREFIX + "%");
+
+            jdbc.update("INSERT INTO users (name, email, password) "
+                    + "SELECT 'Bench ' || u, ?::text || u || '@bench.local', 'x' FROM generate_series(1, ?) u",
+                    EMAIL_PREFIX, USERS);
+            jdbc.update("INSERT INTO inquilinos (nombre, apellido, email, telefono, documento, user_id, created_at) "
+                    + "SELECT n.nombre, n.apellido, LOWER(n.nombre) || g || '@mail.com', '9' || LPAD(g::text, 8, '0'), "
+                    + "'D' || g, u.id, now() - g * INTERVAL '1 minute' "
+                    + "FROM (" + benchUsers + ") u "
+                    + "CROSS JOIN generate_series(1, ?) g "
+                    + "CROSS JOIN LATERAL (SELECT "
+                    + "(ARRAY['Ana','Luis','Carlos','Maria','Jorge','Lucia','Pedro','Sofia','Diego','Elena'])[1 + g % 10] AS nombre, "
+                    + "(ARRAY['Perez','Garcia','Lopez','Torres','Rojas','Flores','Vargas','Castillo','Ramos','Diaz'])"
+                    + "[1 + (g / 10) % 10] AS apellido) n", ROWS);
+            jdbc.execute("ANALYZE users, inquilinos");
+        }
+        return jdbc.queryForObject("SELECT MIN(id) FROM users WHERE email LIKE ?", Long.class, EMAIL_PREFIX + "%");
+    }
+}
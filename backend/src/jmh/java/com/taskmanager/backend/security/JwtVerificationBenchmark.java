@@ -0,0 +1,88 @@
+package com.taskmanager.backend.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request in JwtAuthenticationFilter, without the
+ * user lookup the old filter also made:
+ * <ul>
+ *   <li>legacyFilterPath: validateToken, extractEmail and isTokenValid as they were, four
+ *   parses, each decoding the secret and building a new parser</li>
+ *   <li>verifyOnce: JwtService.verify, one parse with the key and parser built at startup</li>
+ *   <li>cachedToken: a repeated token answered by VerifiedTokenCache</li>
+ * </ul>
+ * mvn -Pjmh -DskipTests test -Djmh.args="JwtVerificationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "dGFza21hbmFnZXJzZWNyZXRrZXl0aGF0aXNhdGxlYXN0MjU2Yml0c2xvbmdmb3JoczI1Ng==";
+    private static final long EXPIRATION = 86400000L;
+
+    private JwtService jwtService;
+    private VerifiedTokenCache tokenCache;
+    private String token;
+    private String email;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", EXPIRATION);
+        jwtService.init();
+
+        AuthenticatedUser user = new AuthenticatedUser(42L, "ana@test.com", "Ana");
+        email = user.getUsername();
+        token = jwtService.generateToken(user);
+
+        tokenCache = new VerifiedTokenCache(10000, EXPIRATION);
+        tokenCache.put(token, jwtService.verify(token), user);
+    }
+
+    @Benchmark
+    public boolean legacyFilterPath() {
+        return legacyValidate(token) && legacyClaims(token).getSubject().equals(email)
+                && legacyClaims(token).getSubject().equals(email)
+                && !legacyClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public VerifiedToken verifyOnce() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser cachedToken() {
+        return tokenCache.get(token);
+    }
+
+    private static boolean legacyValidate(String token) {
+        Jwts.parser().verifyWith(legacyKey()).build().parseSignedClaims(token);
+        return true;
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parser().verifyWith(legacyKey()).build().parseSignedClaims(token).getPayload();
+    }
+
+    private static SecretKey legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
@@ -0,0 +1,86 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.dto.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/search lookups in one user's UserSearchIndex holding a third each
+ * of properties, tenants and contracts (30k rows by default), next to a
+ * substring scan over the same searched text as a baseline. Queries cover
+ * a selective name, a type-ahead prefix and a two-word query whose first
+ * word matches every tenant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSearchIndexBenchmark {
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "Carlos", "María", "Jorge", "Lucía", "Pedro", "Sofía"};
+    private static final String[] APELLIDOS = {"Pérez", "García", "López", "Torres", "Rojas", "Flores", "Vargas"};
+    private static final String[] CIUDADES = {"Lima", "Cusco", "Arequipa", "Trujillo", "Piura"};
+
+    @Param({"30000"})
+    public int rows;
+
+    @Param({"casa 1234", "rojas fl", "inquilino garcia"})
+    public String query;
+
+    private UserSearchIndex index;
+    private List<String> searchedText;
+
+    @Setup
+    public void setUp() {
+        index = new UserSearchIndex();
+        searchedText = new ArrayList<>(rows);
+        int each = rows / 3;
+        for (int i = 0; i < each; i++) {
+            String nombre = "Casa " + i;
+            String direccion = "Calle " + APELLIDOS[i % APELLIDOS.length] + " " + i;
+            String ciudad = CIUDADES[i % CIUDADES.length];
+            index.putPropiedad(i, nombre, direccion, ciudad);
+            searchedText.add(String.join(" ", nombre, direccion, ciudad).toLowerCase(Locale.ROOT));
+        }
+        for (int i = 0; i < each; i++) {
+            String nombre = "Inquilino " + NOMBRES[i % NOMBRES.length];
+            String apellido = APELLIDOS[(i / NOMBRES.length) % APELLIDOS.length] + " " + i;
+            String email = "inquilino" + i + "@mail.com";
+            String telefono = "9" + String.format("%08d", i);
+            index.putInquilino(i, nombre, apellido, email, telefono);
+            searchedText.add(String.join(" ", nombre, apellido, email, telefono).toLowerCase(Locale.ROOT));
+        }
+        for (int i = 0; i < each; i++) {
+            String inquilino = NOMBRES[i % NOMBRES.length] + " " + APELLIDOS[i % APELLIDOS.length];
+            index.putContrato(i, (long) i, inquilino, (long) i, "Casa " + i);
+            searchedText.add((inquilino + " casa " + i).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> indexLookup() {
+        return index.search(query, 20);
+    }
+
+    @Benchmark
+    public int substringScan() {
+        String term = query.toLowerCase(Locale.ROOT);
+        int matches = 0;
+        for (String text : searchedText) {
+            if (text.contains(term)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
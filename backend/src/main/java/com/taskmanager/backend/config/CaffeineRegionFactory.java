@@ -0,0 +1,146 @@
+package com.taskmanager.backend.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hibernate second-level cache kept in this process, one bounded Caffeine
+ * cache per region. Only entities annotated with @Cache are stored. Entries
+ * expire after ttl-minutes, which bounds how long a change made by another
+ * instance goes unseen; changes made here are applied to the cache by
+ * Hibernate when their transaction commits.
+ */
+@Component
+public class CaffeineRegionFactory extends RegionFactoryTemplate implements HibernatePropertiesCustomizer {
+
+    /**
+     * @param puts Entries stored by Hibernate, which Caffeine does not count
+     */
+    public record RegionStats(String region, long size, long puts, CacheStats stats) {
+    }
+
+    private final long maxEntries;
+    private final Duration ttl;
+    private final Map<String, CaffeineStorageAccess> regions = new ConcurrentHashMap<>();
+
+    public CaffeineRegionFactory(@Value("${entity-cache.max-entries:10000}") long maxEntries,
+                                 @Value("${entity-cache.ttl-minutes:10}") long ttlMinutes) {
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, this);
+        hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+    }
+
+    public List<RegionStats> stats() {
+        return regions.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(region -> new RegionStats(region.getKey(), region.getValue().cache.estimatedSize(),
+                        region.getValue().puts.sum(), region.getValue().cache.stats()))
+                .toList();
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(CaffeineStorageAccess::release);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return region(regionConfig.getRegionName(), true);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return region(regionName, true);
+    }
+
+    // One entry per table; a query result is only trusted while its tables' timestamps are present,
+    // so these are never evicted
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return region(regionName, false);
+    }
+
+    private CaffeineStorageAccess region(String name, boolean bounded) {
+        return regions.computeIfAbsent(name, key -> {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+            if (bounded) {
+                builder.maximumSize(maxEntries).expireAfterWrite(ttl);
+            }
+            return new CaffeineStorageAccess(builder.build());
+        });
+    }
+
+    private static final class CaffeineStorageAccess implements DomainDataStorageAccess {
+
+        private final Cache<Object, Object> cache;
+        private final LongAdder puts = new LongAdder();
+
+        private CaffeineStorageAccess(Cache<Object, Object> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return cache.getIfPresent(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            cache.put(key, value);
+            puts.increment();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return cache.asMap().containsKey(key);
+        }
+
+        @Override
+        public void evictData() {
+            cache.invalidateAll();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            cache.invalidate(key);
+        }
+
+        @Override
+        public void release() {
+            cache.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.taskmanager.backend.config;
+
+import com.taskmanager.backend.service.PagoSummaryService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the monthly payment rollup from scratch when the application is
+ * started with --rebuild-pago-summary (initial backfill or drift repair).
+ */
+@Component
+public class PagoSummaryBackfillRunner implements ApplicationRunner {
+
+    static final String OPTION = "rebuild-pago-summary";
+
+    private final PagoSummaryService pagoSummaryService;
+
+    public PagoSummaryBackfillRunner(PagoSummaryService pagoSummaryService) {
+        this.pagoSummaryService = pagoSummaryService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(OPTION)) {
+            pagoSummaryService.rebuildAll();
+        }
+    }
+}
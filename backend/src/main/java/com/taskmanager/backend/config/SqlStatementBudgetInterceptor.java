@@ -0,0 +1,55 @@
+package com.taskmanager.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Tracks handlers annotated with @SqlStatementBudget and logs the ones that went over it.
+ */
+@Component
+public class SqlStatementBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementBudgetInterceptor.class);
+
+    private final SqlStatementCounter counter;
+
+    public SqlStatementBudgetInterceptor(SqlStatementCounter counter) {
+        this.counter = counter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            SqlStatementBudget budget = method.getMethodAnnotation(SqlStatementBudget.class);
+            if (budget != null) {
+                counter.start(method.getShortLogMessage(), budget.value());
+            }
+        }
+        return true;
+    }
+
+    // afterCompletion does not run on this thread once the handler went async; the async dispatch is not tracked
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        counter.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        int count = counter.stop();
+        if (count >= 0 && handler instanceof HandlerMethod method) {
+            int budget = method.getMethodAnnotation(SqlStatementBudget.class).value();
+            if (count > budget) {
+                logger.warn("{} {} ran {} SQL statements (budget {})",
+                        request.getMethod(), request.getRequestURI(), count, budget);
+            }
+        }
+    }
+}
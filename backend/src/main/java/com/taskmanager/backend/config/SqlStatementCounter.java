@@ -0,0 +1,66 @@
+package com.taskmanager.backend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current request thread.
+ * With sql.statement-budget.enforce=true a statement over the handler's
+ * budget fails the request, so an N+1 regression shows up as an error in
+ * development and tests instead of as slow production pages.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<Tracker> CURRENT = new ThreadLocal<>();
+
+    private final boolean enforce;
+
+    public SqlStatementCounter(@Value("${sql.statement-budget.enforce:false}") boolean enforce) {
+        this.enforce = enforce;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    public void start(String handler, int budget) {
+        CURRENT.set(new Tracker(handler, budget));
+    }
+
+    /**
+     * @return The number of statements counted since start, or -1 if nothing was tracked
+     */
+    public int stop() {
+        Tracker tracker = CURRENT.get();
+        CURRENT.remove();
+        return tracker != null ? tracker.count : -1;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Tracker tracker = CURRENT.get();
+        if (tracker != null && ++tracker.count > tracker.budget && enforce) {
+            throw new IllegalStateException("Presupuesto de SQL excedido en " + tracker.handler
+                    + ": " + tracker.count + " sentencias (máximo " + tracker.budget + ")");
+        }
+        return sql;
+    }
+
+    private static final class Tracker {
+        private final String handler;
+        private final int budget;
+        private int count;
+
+        private Tracker(String handler, int budget) {
+            this.handler = handler;
+            this.budget = budget;
+        }
+    }
+}
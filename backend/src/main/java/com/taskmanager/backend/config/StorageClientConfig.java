@@ -0,0 +1,82 @@
+package com.taskmanager.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client and worker pool shared by the object storage calls. The JDK
+ * client keeps connections alive and pooled per host, negotiates HTTP/2 over
+ * TLS, and gives up on a request that does not answer within the read timeout.
+ */
+@Configuration
+public class StorageClientConfig {
+
+    @Bean
+    public RestTemplate storageRestTemplate(
+            @Value("${storage.http.connect-timeout-seconds:5}") long connectTimeoutSeconds,
+            @Value("${storage.http.read-timeout-seconds:60}") long readTimeoutSeconds,
+            @Value("${storage.http.max-in-flight:32}") int maxInFlight) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .build();
+        // Each request body is written from its own thread; the bulkhead in
+        // FileStorageService keeps them to maxInFlight, so a fixed pool of that
+        // size replaces the thread per request Spring would start otherwise
+        ThreadPoolExecutor bodyWriters = new ThreadPoolExecutor(maxInFlight, maxInFlight, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("storage-body-"));
+        bodyWriters.allowCoreThreadTimeOut(true);
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, bodyWriters);
+        requestFactory.setReadTimeout(Duration.ofSeconds(readTimeoutSeconds));
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Runs the async uploads and the background deletes (with their retries).
+     * Work beyond the queue capacity is rejected rather than piling up.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor storageExecutor(
+            @Value("${storage.executor.threads:8}") int threads,
+            @Value("${storage.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("storage-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Generates the image variants. Decoding is CPU and memory heavy, so few
+     * workers; uploads beyond the queue capacity simply get no variants.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageExecutor(
+            @Value("${storage.images.workers:2}") int workers,
+            @Value("${storage.images.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("image-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,50 @@
+package com.taskmanager.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the services whether a search can use the pg_trgm ranked queries.
+ * The extension is looked up once, on first use (after Flyway has run); other
+ * databases, or PostgreSQL without pg_trgm, keep the plain LIKE queries.
+ */
+@Component
+public class TrigramSearchSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrigramSearchSupport.class);
+
+    // Shorter terms have no trigrams to look up, so the index cannot narrow them down
+    static final int MIN_TERM_LENGTH = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private volatile Boolean available;
+
+    public TrigramSearchSupport(JdbcTemplate jdbcTemplate, @Value("${search.trigram.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean useFor(String search) {
+        return enabled && search != null && search.trim().length() >= MIN_TERM_LENGTH && isAvailable();
+    }
+
+    private boolean isAvailable() {
+        Boolean result = available;
+        if (result == null) {
+            try {
+                result = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                        "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class));
+            } catch (DataAccessException e) {
+                result = false;
+            }
+            logger.info("Trigram search {}", result ? "enabled (pg_trgm)" : "not available, using LIKE");
+            available = result;
+        }
+        return result;
+    }
+}
@@ -1,12 +1,26 @@
 package com.taskmanager.backend.config;
 
+import com.taskmanager.backend.security.CurrentUserArgumentResolver;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final CurrentUserArgumentResolver currentUserArgumentResolver;
+    private final SqlStatementBudgetInterceptor sqlStatementBudgetInterceptor;
+
+    public WebConfig(CurrentUserArgumentResolver currentUserArgumentResolver,
+                     SqlStatementBudgetInterceptor sqlStatementBudgetInterceptor) {
+        this.currentUserArgumentResolver = currentUserArgumentResolver;
+        this.sqlStatementBudgetInterceptor = sqlStatementBudgetInterceptor;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
@@ -15,4 +29,14 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*");
         // SIN allowCredentials para evitar conflictos con "*"
     }
-}
\ No newline at end of file
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentUserArgumentResolver);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlStatementBudgetInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -5,6 +5,8 @@ import com.taskmanager.backend.dto.LoginRequest;
 import com.taskmanager.backend.dto.RegisterRequest;
 import com.taskmanager.backend.model.User;
 import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.AuthenticatedUser;
+import com.taskmanager.backend.security.CurrentUser;
 import com.taskmanager.backend.security.JwtService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +16,6 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -56,13 +57,8 @@ public class AuthController {
         userRepository.save(user);
 
         // Generate token
-        UserDetails userDetails = org.springframework.security.core.userdetails.User
-                .withUsername(user.getEmail())
-                .password(user.getPassword())
-                .authorities("USER")
-                .build();
-
-        String token = jwtService.generateToken(userDetails);
+        String token = jwtService.generateToken(
+                new AuthenticatedUser(user.getId(), user.getEmail(), user.getName()));
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new AuthResponse(token, user.getId(), user.getName(), user.getEmail()));
@@ -80,11 +76,9 @@ public class AuthController {
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            User user = userRepository.findByEmail(request.getEmail())
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            String token = jwtService.generateToken(userDetails);
+            // The principal was loaded by the authentication provider, no second lookup needed
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            String token = jwtService.generateToken(user);
 
             return ResponseEntity.ok(new AuthResponse(token, user.getId(), user.getName(), user.getEmail()));
 
@@ -96,13 +90,7 @@ public class AuthController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
+    public ResponseEntity<?> getCurrentUser(@CurrentUser AuthenticatedUser user) {
         Map<String, Object> response = new HashMap<>();
         response.put("id", user.getId());
         response.put("name", user.getName());
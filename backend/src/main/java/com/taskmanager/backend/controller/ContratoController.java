@@ -1,22 +1,32 @@
 package com.taskmanager.backend.controller;
 
+import com.taskmanager.backend.config.SqlStatementBudget;
+import com.taskmanager.backend.dto.ContratoListItem;
 import com.taskmanager.backend.dto.ContratoRequest;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.DirectUpload;
+import com.taskmanager.backend.dto.DirectUploadConfirmRequest;
+import com.taskmanager.backend.dto.DirectUploadRequest;
 import com.taskmanager.backend.dto.EstadoUpdateRequest;
+import com.taskmanager.backend.dto.PageCursor;
 import com.taskmanager.backend.model.Contrato;
 import com.taskmanager.backend.model.User;
-import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.CurrentUser;
 import com.taskmanager.backend.service.ContratoService;
+import com.taskmanager.backend.service.DirectUploadService;
+import com.taskmanager.backend.service.ExportFormat;
 import com.taskmanager.backend.service.FileStorageService;
+import com.taskmanager.backend.service.ListExportService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -26,33 +36,29 @@ import java.util.List;
 public class ContratoController {
 
     private final ContratoService service;
-    private final UserRepository userRepository;
+    private final ListExportService exportService;
     private final FileStorageService fileStorageService;
+    private final DirectUploadService directUploads;
 
-    public ContratoController(ContratoService service, UserRepository userRepository, 
-                              FileStorageService fileStorageService) {
+    public ContratoController(ContratoService service, ListExportService exportService,
+                              FileStorageService fileStorageService, DirectUploadService directUploads) {
         this.service = service;
-        this.userRepository = userRepository;
+        this.exportService = exportService;
         this.fileStorageService = fileStorageService;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        this.directUploads = directUploads;
     }
 
     @GetMapping
-    public ResponseEntity<Page<Contrato>> getAll(
+    @SqlStatementBudget(2)
+    public ResponseEntity<Page<ContratoListItem>> getAll(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String estado) {
-        User user = getCurrentUser();
+            @RequestParam(required = false) String estado,
+            @CurrentUser User user) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
 
-        Page<Contrato> result;
+        Page<ContratoListItem> result;
         if (search != null && !search.isEmpty()) {
             result = service.search(user, search, pageable);
         } else if (estado != null && !estado.isEmpty()) {
@@ -64,34 +70,58 @@ public class ContratoController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(params = "after")
+    @SqlStatementBudget(1)
+    public ResponseEntity<CursorPage<ContratoListItem>> getAllAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String estado,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(service.getPageAfter(user, search, estado, PageCursor.decode(after), CursorPage.clampSize(size)));
+    }
+
+    /**
+     * Streams every contrato of the user as CSV or NDJSON (gzip if accepted)
+     * without loading the whole list in memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @CurrentUser User user) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        Long userId = user.getId();
+        return ExportResponses.stream("contratos", exportFormat, acceptEncoding, exportService.acquireSlot(),
+                out -> exportService.exportContratos(userId, exportFormat, out));
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<Contrato>> getAllList() {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<ContratoListItem>> getAllList(@CurrentUser User user) {
         return ResponseEntity.ok(service.getAllByUser(user));
     }
 
     @GetMapping("/proximos-a-vencer")
-    public ResponseEntity<List<Contrato>> getProximosAVencer(@RequestParam(defaultValue = "30") int days) {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<ContratoListItem>> getProximosAVencer(@RequestParam(defaultValue = "30") int days, @CurrentUser User user) {
         return ResponseEntity.ok(service.getProximosAVencer(user, days));
     }
 
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<Contrato>> getByEstado(@PathVariable String estado) {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<ContratoListItem>> getByEstado(@PathVariable String estado, @CurrentUser User user) {
         return ResponseEntity.ok(service.getByEstado(user, estado));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Contrato> getById(@PathVariable Long id) {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<Contrato> getById(@PathVariable Long id, @CurrentUser User user) {
         return ResponseEntity.ok(service.getById(id, user));
     }
 
     @PostMapping
-    public ResponseEntity<Contrato> create(@Valid @RequestBody ContratoRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Contrato> create(@Valid @RequestBody ContratoRequest request, @CurrentUser User user) {
         Contrato contrato = new Contrato();
         contrato.setFechaInicio(request.getFechaInicio());
         contrato.setFechaFin(request.getFechaFin());
@@ -109,9 +139,7 @@ public class ContratoController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Contrato> update(@PathVariable Long id, @Valid @RequestBody ContratoRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Contrato> update(@PathVariable Long id, @Valid @RequestBody ContratoRequest request, @CurrentUser User user) {
         Contrato contrato = new Contrato();
         contrato.setFechaInicio(request.getFechaInicio());
         contrato.setFechaFin(request.getFechaFin());
@@ -128,16 +156,16 @@ public class ContratoController {
 
     @PatchMapping("/{id}/estado")
     public ResponseEntity<Contrato> updateEstado(@PathVariable Long id, 
-                                                  @Valid @RequestBody EstadoUpdateRequest request) {
-        User user = getCurrentUser();
+                                                  @Valid @RequestBody EstadoUpdateRequest request,
+                                                  @CurrentUser User user) {
         Contrato updated = service.updateEstado(id, request.getEstado(), user);
         return ResponseEntity.ok(updated);
     }
 
     @PostMapping("/{id}/upload-pdf")
     public ResponseEntity<Contrato> uploadPdf(@PathVariable Long id, 
-                                               @RequestParam("file") MultipartFile file) {
-        User user = getCurrentUser();
+                                               @RequestParam("file") MultipartFile file,
+                                               @CurrentUser User user) {
         
         if (file.isEmpty()) {
             throw new RuntimeException("El archivo está vacío");
@@ -158,36 +186,51 @@ public class ContratoController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * First step of a direct upload: the client sends the PDF to the returned URL
+     * and then calls upload-pdf/confirm with the token.
+     */
+    @PostMapping("/{id}/upload-pdf/url")
+    public ResponseEntity<DirectUpload> startPdfUpload(@PathVariable Long id,
+                                                       @Valid @RequestBody DirectUploadRequest request,
+                                                       @CurrentUser User user) {
+        service.getById(id, user);
+        return ResponseEntity.ok(directUploads.start(user, DirectUploadService.Target.CONTRATO_PDF, id, request));
+    }
+
+    @PostMapping("/{id}/upload-pdf/confirm")
+    public ResponseEntity<Contrato> confirmPdfUpload(@PathVariable Long id,
+                                                     @Valid @RequestBody DirectUploadConfirmRequest request,
+                                                     @CurrentUser User user) {
+        String pdfUrl = directUploads.confirm(user, DirectUploadService.Target.CONTRATO_PDF, id, request.getToken()).url();
+        return ResponseEntity.ok(service.updatePdfUrl(id, pdfUrl, user));
+    }
+
     @PostMapping("/{id}/firmar")
-    public ResponseEntity<Contrato> firmar(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public ResponseEntity<Contrato> firmar(@PathVariable Long id, @CurrentUser User user) {
         Contrato updated = service.updateEstado(id, "firmado", user);
         return ResponseEntity.ok(updated);
     }
 
     @PostMapping("/{id}/finalizar")
-    public ResponseEntity<Contrato> finalizar(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public ResponseEntity<Contrato> finalizar(@PathVariable Long id, @CurrentUser User user) {
         Contrato updated = service.finalizar(id, user);
         return ResponseEntity.ok(updated);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public void delete(@PathVariable Long id, @CurrentUser User user) {
         service.delete(id, user);
     }
 
     @GetMapping("/stats/count")
-    public ResponseEntity<Long> count() {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> count(@CurrentUser User user) {
         return ResponseEntity.ok(service.countByUser(user));
     }
 
     @GetMapping("/stats/count/{estado}")
-    public ResponseEntity<Long> countByEstado(@PathVariable String estado) {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> countByEstado(@PathVariable String estado, @CurrentUser User user) {
         return ResponseEntity.ok(service.countByUserAndEstado(user, estado));
     }
 }
@@ -0,0 +1,56 @@
+package com.taskmanager.backend.controller;
+
+import com.taskmanager.backend.service.ExportFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the streamed responses of the /export endpoints: attachment headers
+ * and gzip when the client accepts it. The export slot taken by the caller
+ * is released once the body has been written, or has failed.
+ */
+final class ExportResponses {
+
+    @FunctionalInterface
+    interface Exporter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private ExportResponses() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format, String acceptEncoding,
+                                                        Runnable releaseSlot, Exporter exporter) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.getExtension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(out -> {
+            try {
+                if (gzip) {
+                    GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192, true);
+                    exporter.write(gzipOut);
+                    gzipOut.finish();
+                } else {
+                    exporter.write(out);
+                }
+            } finally {
+                releaseSlot.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.taskmanager.backend.controller;
+
+import com.taskmanager.backend.service.LocalStorageBackend;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Public downloads of the files kept by LocalStorageBackend (the URLs it hands
+ * out), playing the part of Supabase's public bucket URLs. Supports single
+ * byte ranges, so PDF viewers and media players can fetch parts of a file.
+ * Also receives the uploads sent to the backend's signed upload URLs.
+ */
+@RestController
+@RequestMapping("/api/files")
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class FileController {
+
+    private static final String PREFIX = "/api/files/";
+
+    // Tomcat's sendfile: the connector copies the file to the socket with FileChannel.transferTo
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Served inline; anything else (SVG, HTML, an unconfirmed upload of any kind) is a download
+    private static final Set<MediaType> INLINE_TYPES = Set.of(MediaType.IMAGE_PNG, MediaType.IMAGE_JPEG,
+            MediaType.IMAGE_GIF, MediaType.parseMediaType("image/webp"), MediaType.APPLICATION_PDF);
+
+    private final LocalStorageBackend storage;
+
+    public FileController(LocalStorageBackend storage) {
+        this.storage = storage;
+    }
+
+    @GetMapping("/**")
+    public void download(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = requestedPath(request);
+        Path file = path != null ? storage.find(path) : null;
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = Files.size(file);
+        long start = 0;
+        long end = size - 1;
+        HttpRange range = singleRange(request.getHeader(HttpHeaders.RANGE));
+        if (range != null) {
+            try {
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                start = size;
+            }
+            if (start >= size || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+
+        long length = end - start + 1;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        MediaType contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(contentType.toString());
+        // Uploaded content is served from the API's origin: never sniffed, never run as a page
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("Content-Security-Policy", "sandbox");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, INLINE_TYPES.contains(contentType) ? "inline" : "attachment");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, Files.getLastModifiedTime(file).toMillis());
+        // Stored names are random and never reused, so the content behind a URL does not change
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=86400");
+        response.setContentLengthLong(length);
+        if (length <= 0 || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        // No sendfile (e.g. TLS terminated by Tomcat): copied through the response stream in small chunks
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            for (long position = start; position <= end; ) {
+                position += channel.transferTo(position, end + 1 - position, target);
+            }
+        }
+    }
+
+    /**
+     * A signed upload: the body is the file's content, of exactly the size that was signed.
+     * Objects are never overwritten.
+     */
+    @PutMapping("/**")
+    public void upload(HttpServletRequest request, HttpServletResponse response,
+                       @RequestParam long expires, @RequestParam long size,
+                       @RequestParam String signature) throws IOException {
+        String path = requestedPath(request);
+        if (path == null || !storage.isUploadAllowed(path, expires, size, signature)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        if (request.getContentLengthLong() != size) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Content-Length must be " + size);
+            return;
+        }
+        if (storage.find(path) != null) {
+            response.sendError(HttpServletResponse.SC_CONFLICT);
+            return;
+        }
+        MediaType contentType = request.getContentType() != null
+                ? MediaType.parseMediaType(request.getContentType())
+                : MediaType.APPLICATION_OCTET_STREAM;
+        long written = storage.write(path, contentType, size,
+                target -> request.getInputStream().transferTo(Channels.newOutputStream(target)));
+        if (written != size) {
+            storage.delete(path);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    private static String requestedPath(HttpServletRequest request) {
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        return uri.startsWith(PREFIX) ? UriUtils.decode(uri.substring(PREFIX.length()), StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * The requested range, or null to send the whole file (no Range header, a
+     * malformed one, or several ranges, which are not supported).
+     */
+    private static HttpRange singleRange(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
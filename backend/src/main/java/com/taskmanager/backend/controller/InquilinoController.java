@@ -1,21 +1,32 @@
 package com.taskmanager.backend.controller;
 
+import com.taskmanager.backend.config.SqlStatementBudget;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.DirectUpload;
+import com.taskmanager.backend.dto.DirectUploadConfirmRequest;
+import com.taskmanager.backend.dto.DirectUploadRequest;
+import com.taskmanager.backend.dto.InquilinoListItem;
 import com.taskmanager.backend.dto.InquilinoRequest;
+import com.taskmanager.backend.dto.PageCursor;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.User;
-import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.CurrentUser;
+import com.taskmanager.backend.service.DirectUploadService;
+import com.taskmanager.backend.service.ExportFormat;
 import com.taskmanager.backend.service.FileStorageService;
+import com.taskmanager.backend.service.ImageDerivativeService;
 import com.taskmanager.backend.service.InquilinoService;
+import com.taskmanager.backend.service.ListExportService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -25,32 +36,32 @@ import java.util.List;
 public class InquilinoController {
 
     private final InquilinoService service;
-    private final UserRepository userRepository;
+    private final ListExportService exportService;
     private final FileStorageService fileStorageService;
+    private final DirectUploadService directUploads;
+    private final ImageDerivativeService imageDerivatives;
 
-    public InquilinoController(InquilinoService service, UserRepository userRepository, FileStorageService fileStorageService) {
+    public InquilinoController(InquilinoService service, ListExportService exportService,
+                               FileStorageService fileStorageService, DirectUploadService directUploads,
+                               ImageDerivativeService imageDerivatives) {
         this.service = service;
-        this.userRepository = userRepository;
+        this.exportService = exportService;
         this.fileStorageService = fileStorageService;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        this.directUploads = directUploads;
+        this.imageDerivatives = imageDerivatives;
     }
 
     @GetMapping
-    public ResponseEntity<Page<Inquilino>> getAll(
+    @SqlStatementBudget(2)
+    public ResponseEntity<Page<InquilinoListItem>> getAll(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String contratoEstado) {
-        User user = getCurrentUser();
+            @RequestParam(required = false) String contratoEstado,
+            @CurrentUser User user) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
 
-        Page<Inquilino> result;
+        Page<InquilinoListItem> result;
         if (search != null && !search.isEmpty()) {
             result = service.search(user, search, pageable);
         } else {
@@ -60,28 +71,51 @@ public class InquilinoController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(params = "after")
+    @SqlStatementBudget(1)
+    public ResponseEntity<CursorPage<InquilinoListItem>> getAllAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String search,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(service.getPageAfter(user, search, PageCursor.decode(after), CursorPage.clampSize(size)));
+    }
+
+    /**
+     * Streams every inquilino of the user as CSV or NDJSON (gzip if accepted)
+     * without loading the whole list in memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @CurrentUser User user) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        Long userId = user.getId();
+        return ExportResponses.stream("inquilinos", exportFormat, acceptEncoding, exportService.acquireSlot(),
+                out -> exportService.exportInquilinos(userId, exportFormat, out));
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<Inquilino>> getAllList() {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<InquilinoListItem>> getAllList(@CurrentUser User user) {
         return ResponseEntity.ok(service.getAllByUser(user));
     }
 
     @GetMapping("/sin-propiedad")
-    public ResponseEntity<List<Inquilino>> getWithoutProperty() {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<InquilinoListItem>> getWithoutProperty(@CurrentUser User user) {
         return ResponseEntity.ok(service.getWithoutProperty(user));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Inquilino> getById(@PathVariable Long id) {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<Inquilino> getById(@PathVariable Long id, @CurrentUser User user) {
         return ResponseEntity.ok(service.getById(id, user));
     }
 
     @PostMapping
-    public ResponseEntity<Inquilino> create(@Valid @RequestBody InquilinoRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Inquilino> create(@Valid @RequestBody InquilinoRequest request, @CurrentUser User user) {
         Inquilino inquilino = new Inquilino();
         inquilino.setNombre(request.getNombre());
         inquilino.setApellido(request.getApellido());
@@ -96,9 +130,7 @@ public class InquilinoController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Inquilino> update(@PathVariable Long id, @Valid @RequestBody InquilinoRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Inquilino> update(@PathVariable Long id, @Valid @RequestBody InquilinoRequest request, @CurrentUser User user) {
         Inquilino inquilino = new Inquilino();
         inquilino.setNombre(request.getNombre());
         inquilino.setApellido(request.getApellido());
@@ -114,26 +146,22 @@ public class InquilinoController {
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public void delete(@PathVariable Long id, @CurrentUser User user) {
         service.delete(id, user);
     }
 
     @GetMapping("/stats/count")
-    public ResponseEntity<Long> count() {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> count(@CurrentUser User user) {
         return ResponseEntity.ok(service.countByUser(user));
     }
 
     @GetMapping("/stats/count/activos")
-    public ResponseEntity<Long> countActivos() {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> countActivos(@CurrentUser User user) {
         return ResponseEntity.ok(service.countActiveByUser(user));
     }
 
     @PostMapping("/{id}/upload-avatar")
-    public ResponseEntity<Inquilino> uploadAvatar(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
-        User user = getCurrentUser();
+    public ResponseEntity<Inquilino> uploadAvatar(@PathVariable Long id, @RequestParam("file") MultipartFile file, @CurrentUser User user) {
         Inquilino inquilino = service.getById(id, user);
 
         String contentType = file.getContentType();
@@ -144,19 +172,18 @@ public class InquilinoController {
             throw new RuntimeException("El archivo no puede superar los 5MB");
         }
 
-        // Delete old avatar if exists
-        if (inquilino.getAvatar() != null && !inquilino.getAvatar().isEmpty()) {
-            fileStorageService.deleteFile(inquilino.getAvatar());
-        }
-
+        String oldAvatar = inquilino.getAvatar();
         String avatarUrl = fileStorageService.uploadFile(file, "avatars-inquilinos");
         inquilino.setAvatar(avatarUrl);
-        return ResponseEntity.ok(service.save(inquilino));
+        Inquilino saved = service.save(inquilino);
+
+        fileStorageService.releaseReplaced(oldAvatar, avatarUrl);
+        imageDerivatives.generateFor(saved);
+        return ResponseEntity.ok(saved);
     }
 
     @PostMapping("/{id}/upload-documento-identidad")
-    public ResponseEntity<Inquilino> uploadDocumentoIdentidad(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
-        User user = getCurrentUser();
+    public ResponseEntity<Inquilino> uploadDocumentoIdentidad(@PathVariable Long id, @RequestParam("file") MultipartFile file, @CurrentUser User user) {
         Inquilino inquilino = service.getById(id, user);
 
         String contentType = file.getContentType();
@@ -167,13 +194,53 @@ public class InquilinoController {
             throw new RuntimeException("El archivo no puede superar los 10MB");
         }
 
-        // Delete old document if exists
-        if (inquilino.getDocumentoIdentidadUrl() != null && !inquilino.getDocumentoIdentidadUrl().isEmpty()) {
-            fileStorageService.deleteFile(inquilino.getDocumentoIdentidadUrl());
-        }
-
+        String oldDoc = inquilino.getDocumentoIdentidadUrl();
         String docUrl = fileStorageService.uploadFile(file, "documentos-identidad");
         inquilino.setDocumentoIdentidadUrl(docUrl);
-        return ResponseEntity.ok(service.save(inquilino));
+        Inquilino saved = service.save(inquilino);
+
+        fileStorageService.releaseReplaced(oldDoc, docUrl);
+        return ResponseEntity.ok(saved);
+    }
+
+    // Direct uploads: the client sends the file to the returned URL, then confirms with the token
+
+    @PostMapping("/{id}/upload-avatar/url")
+    public ResponseEntity<DirectUpload> startAvatarUpload(@PathVariable Long id, @Valid @RequestBody DirectUploadRequest request, @CurrentUser User user) {
+        service.getById(id, user);
+        return ResponseEntity.ok(directUploads.start(user, DirectUploadService.Target.INQUILINO_AVATAR, id, request));
+    }
+
+    @PostMapping("/{id}/upload-avatar/confirm")
+    public ResponseEntity<Inquilino> confirmAvatarUpload(@PathVariable Long id, @Valid @RequestBody DirectUploadConfirmRequest request, @CurrentUser User user) {
+        Inquilino inquilino = service.getById(id, user);
+        String avatarUrl = directUploads.confirm(user, DirectUploadService.Target.INQUILINO_AVATAR, id, request.getToken()).url();
+
+        String oldAvatar = inquilino.getAvatar();
+        inquilino.setAvatar(avatarUrl);
+        Inquilino saved = service.save(inquilino);
+
+        fileStorageService.releaseReplaced(oldAvatar, avatarUrl);
+        imageDerivatives.generateFor(saved);
+        return ResponseEntity.ok(saved);
+    }
+
+    @PostMapping("/{id}/upload-documento-identidad/url")
+    public ResponseEntity<DirectUpload> startDocumentoIdentidadUpload(@PathVariable Long id, @Valid @RequestBody DirectUploadRequest request, @CurrentUser User user) {
+        service.getById(id, user);
+        return ResponseEntity.ok(directUploads.start(user, DirectUploadService.Target.INQUILINO_DOCUMENTO, id, request));
+    }
+
+    @PostMapping("/{id}/upload-documento-identidad/confirm")
+    public ResponseEntity<Inquilino> confirmDocumentoIdentidadUpload(@PathVariable Long id, @Valid @RequestBody DirectUploadConfirmRequest request, @CurrentUser User user) {
+        Inquilino inquilino = service.getById(id, user);
+        String docUrl = directUploads.confirm(user, DirectUploadService.Target.INQUILINO_DOCUMENTO, id, request.getToken()).url();
+
+        String oldDoc = inquilino.getDocumentoIdentidadUrl();
+        inquilino.setDocumentoIdentidadUrl(docUrl);
+        Inquilino saved = service.save(inquilino);
+
+        fileStorageService.releaseReplaced(oldDoc, docUrl);
+        return ResponseEntity.ok(saved);
     }
 }
@@ -1,21 +1,27 @@
 package com.taskmanager.backend.controller;
 
+import com.taskmanager.backend.config.SqlStatementBudget;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.PageCursor;
+import com.taskmanager.backend.dto.PagoListItem;
 import com.taskmanager.backend.dto.PagoRequest;
 import com.taskmanager.backend.dto.RegistrarPagoRequest;
 import com.taskmanager.backend.model.Pago;
 import com.taskmanager.backend.model.User;
-import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.CurrentUser;
+import com.taskmanager.backend.service.ExportFormat;
+import com.taskmanager.backend.service.ListExportService;
 import com.taskmanager.backend.service.PagoService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -27,30 +33,24 @@ import java.util.Map;
 public class PagoController {
 
     private final PagoService service;
-    private final UserRepository userRepository;
+    private final ListExportService exportService;
 
-    public PagoController(PagoService service, UserRepository userRepository) {
+    public PagoController(PagoService service, ListExportService exportService) {
         this.service = service;
-        this.userRepository = userRepository;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        this.exportService = exportService;
     }
 
     @GetMapping
-    public ResponseEntity<Page<Pago>> getAll(
+    @SqlStatementBudget(2)
+    public ResponseEntity<Page<PagoListItem>> getAll(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String estado) {
-        User user = getCurrentUser();
+            @RequestParam(required = false) String estado,
+            @CurrentUser User user) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
 
-        Page<Pago> result;
+        Page<PagoListItem> result;
         if (search != null && !search.isEmpty()) {
             result = service.search(user, search, pageable);
         } else {
@@ -60,34 +60,57 @@ public class PagoController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(params = "after")
+    @SqlStatementBudget(1)
+    public ResponseEntity<CursorPage<PagoListItem>> getAllAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String search,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(service.getPageAfter(user, search, PageCursor.decode(after), CursorPage.clampSize(size)));
+    }
+
+    /**
+     * Streams every pago of the user as CSV or NDJSON (gzip if accepted)
+     * without loading the whole list in memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @CurrentUser User user) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        Long userId = user.getId();
+        return ExportResponses.stream("pagos", exportFormat, acceptEncoding, exportService.acquireSlot(),
+                out -> exportService.exportPagos(userId, exportFormat, out));
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<Pago>> getAllList() {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<PagoListItem>> getAllList(@CurrentUser User user) {
         return ResponseEntity.ok(service.getAllByUser(user));
     }
 
     @GetMapping("/atrasados")
-    public ResponseEntity<List<Pago>> getAtrasados() {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<PagoListItem>> getAtrasados(@CurrentUser User user) {
         return ResponseEntity.ok(service.getAtrasados(user));
     }
 
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<Pago>> getByEstado(@PathVariable String estado) {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<PagoListItem>> getByEstado(@PathVariable String estado, @CurrentUser User user) {
         return ResponseEntity.ok(service.getByEstado(user, estado));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Pago> getById(@PathVariable Long id) {
-        User user = getCurrentUser();
+    @SqlStatementBudget(1)
+    public ResponseEntity<Pago> getById(@PathVariable Long id, @CurrentUser User user) {
         return ResponseEntity.ok(service.getById(id, user));
     }
 
     @PostMapping
-    public ResponseEntity<Pago> create(@Valid @RequestBody PagoRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Pago> create(@Valid @RequestBody PagoRequest request, @CurrentUser User user) {
         Pago pago = new Pago();
         pago.setMonto(request.getMonto());
         pago.setFechaVencimiento(request.getFechaVencimiento());
@@ -102,9 +125,7 @@ public class PagoController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Pago> update(@PathVariable Long id, @Valid @RequestBody PagoRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Pago> update(@PathVariable Long id, @Valid @RequestBody PagoRequest request, @CurrentUser User user) {
         Pago pago = new Pago();
         pago.setMonto(request.getMonto());
         pago.setFechaVencimiento(request.getFechaVencimiento());
@@ -117,43 +138,37 @@ public class PagoController {
     }
 
     @PostMapping("/{id}/registrar")
-    public ResponseEntity<Pago> registrarPago(@PathVariable Long id, @RequestBody RegistrarPagoRequest request) {
-        User user = getCurrentUser();
+    public ResponseEntity<Pago> registrarPago(@PathVariable Long id, @RequestBody RegistrarPagoRequest request, @CurrentUser User user) {
         Pago updated = service.registrarPago(id, request.getFechaPago(), request.getComprobante(), user);
         return ResponseEntity.ok(updated);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public void delete(@PathVariable Long id, @CurrentUser User user) {
         service.delete(id, user);
     }
 
     @GetMapping("/stats/count")
-    public ResponseEntity<Long> count() {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> count(@CurrentUser User user) {
         return ResponseEntity.ok(service.countByUser(user));
     }
 
     @GetMapping("/stats/count/{estado}")
-    public ResponseEntity<Long> countByEstado(@PathVariable String estado) {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> countByEstado(@PathVariable String estado, @CurrentUser User user) {
         return ResponseEntity.ok(service.countByUserAndEstado(user, estado));
     }
 
     @GetMapping("/stats/morosos")
-    public ResponseEntity<Long> countMorosos() {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> countMorosos(@CurrentUser User user) {
         return ResponseEntity.ok(service.countMorosos(user));
     }
 
     @GetMapping("/stats/ingresos-mes")
     public ResponseEntity<Map<String, BigDecimal>> getIngresosMes(
             @RequestParam(required = false) Integer month,
-            @RequestParam(required = false) Integer year) {
-        User user = getCurrentUser();
-
+            @RequestParam(required = false) Integer year,
+            @CurrentUser User user) {
         LocalDate now = LocalDate.now();
         int currentMonth = month != null ? month : now.getMonthValue();
         int currentYear = year != null ? year : now.getYear();
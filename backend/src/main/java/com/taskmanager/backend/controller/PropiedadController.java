@@ -1,23 +1,36 @@
 package com.taskmanager.backend.controller;
 
+import com.taskmanager.backend.config.SqlStatementBudget;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.DirectUpload;
+import com.taskmanager.backend.dto.DirectUploadConfirmRequest;
+import com.taskmanager.backend.dto.DirectUploadRequest;
+import com.taskmanager.backend.dto.PageCursor;
+import com.taskmanager.backend.dto.PropiedadDisponibilidad;
+import com.taskmanager.backend.dto.PropiedadListItem;
+import com.taskmanager.backend.dto.PropiedadOcupacion;
 import com.taskmanager.backend.dto.PropiedadRequest;
 import com.taskmanager.backend.model.Propiedad;
 import com.taskmanager.backend.model.User;
-import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.CurrentUser;
+import com.taskmanager.backend.service.ContratoAvailabilityService;
+import com.taskmanager.backend.service.DirectUploadService;
 import com.taskmanager.backend.service.FileStorageService;
+import com.taskmanager.backend.service.ImageDerivativeService;
+import com.taskmanager.backend.service.PropiedadOcupacionService;
 import com.taskmanager.backend.service.PropiedadService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -25,32 +38,33 @@ import java.util.List;
 public class PropiedadController {
 
     private final PropiedadService service;
-    private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
-
-    public PropiedadController(PropiedadService service, UserRepository userRepository, FileStorageService fileStorageService) {
+    private final ContratoAvailabilityService availability;
+    private final PropiedadOcupacionService ocupacion;
+    private final DirectUploadService directUploads;
+    private final ImageDerivativeService imageDerivatives;
+
+    public PropiedadController(PropiedadService service, FileStorageService fileStorageService,
+                               ContratoAvailabilityService availability, PropiedadOcupacionService ocupacion,
+                               DirectUploadService directUploads, ImageDerivativeService imageDerivatives) {
         this.service = service;
-        this.userRepository = userRepository;
         this.fileStorageService = fileStorageService;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        this.availability = availability;
+        this.ocupacion = ocupacion;
+        this.directUploads = directUploads;
+        this.imageDerivatives = imageDerivatives;
     }
 
     @GetMapping
-    public ResponseEntity<Page<Propiedad>> getAll(
+    public ResponseEntity<Page<PropiedadListItem>> getAll(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String estado) {
-        User user = getCurrentUser();
+            @RequestParam(required = false) String estado,
+            @CurrentUser User user) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
 
-        Page<Propiedad> result;
+        Page<PropiedadListItem> result;
         if (search != null && !search.isEmpty()) {
             result = service.search(user, search, pageable);
         } else {
@@ -60,28 +74,60 @@ public class PropiedadController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPage<PropiedadListItem>> getAllAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String search,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(service.getPageAfter(user, search, PageCursor.decode(after), CursorPage.clampSize(size)));
+    }
+
     @GetMapping("/all")
-    public ResponseEntity<List<Propiedad>> getAllList() {
-        User user = getCurrentUser();
+    public ResponseEntity<List<PropiedadListItem>> getAllList(@CurrentUser User user) {
         return ResponseEntity.ok(service.getAllByUser(user));
     }
 
     @GetMapping("/disponibles")
-    public ResponseEntity<List<Propiedad>> getDisponibles() {
-        User user = getCurrentUser();
+    public ResponseEntity<List<PropiedadListItem>> getDisponibles(@CurrentUser User user) {
         return ResponseEntity.ok(service.getDisponibles(user));
     }
 
+    /**
+     * Which properties are free over [fechaInicio, fechaFin] (ISO dates, both included),
+     * with the contracts in the way of those that are not. Without ids, every property
+     * of the user.
+     */
+    @GetMapping("/disponibilidad")
+    @SqlStatementBudget(2)
+    public ResponseEntity<List<PropiedadDisponibilidad>> getDisponibilidad(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(availability.getDisponibilidad(user, ids, fechaInicio, fechaFin));
+    }
+
+    /**
+     * Occupancy timeline of every property over [from, to] (ISO dates, both included):
+     * ocupada / reservada / vacante segments and the days of each.
+     */
+    @GetMapping("/ocupacion")
+    @SqlStatementBudget(1)
+    public ResponseEntity<List<PropiedadOcupacion>> getOcupacion(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(ocupacion.getOcupacion(user, from, to));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Propiedad> getById(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public ResponseEntity<Propiedad> getById(@PathVariable Long id, @CurrentUser User user) {
         return ResponseEntity.ok(service.getById(id, user));
     }
 
     @PostMapping
-    public ResponseEntity<Propiedad> create(@Valid @RequestBody PropiedadRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Propiedad> create(@Valid @RequestBody PropiedadRequest request, @CurrentUser User user) {
         Propiedad propiedad = new Propiedad();
         propiedad.setNombre(request.getNombre());
         propiedad.setDireccion(request.getDireccion());
@@ -97,9 +143,7 @@ public class PropiedadController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Propiedad> update(@PathVariable Long id, @Valid @RequestBody PropiedadRequest request) {
-        User user = getCurrentUser();
-
+    public ResponseEntity<Propiedad> update(@PathVariable Long id, @Valid @RequestBody PropiedadRequest request, @CurrentUser User user) {
         Propiedad propiedad = new Propiedad();
         propiedad.setNombre(request.getNombre());
         propiedad.setDireccion(request.getDireccion());
@@ -116,26 +160,22 @@ public class PropiedadController {
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public void delete(@PathVariable Long id, @CurrentUser User user) {
         service.delete(id, user);
     }
 
     @GetMapping("/stats/count")
-    public ResponseEntity<Long> count() {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> count(@CurrentUser User user) {
         return ResponseEntity.ok(service.countByUser(user));
     }
 
     @GetMapping("/stats/count/{estado}")
-    public ResponseEntity<Long> countByEstado(@PathVariable String estado) {
-        User user = getCurrentUser();
+    public ResponseEntity<Long> countByEstado(@PathVariable String estado, @CurrentUser User user) {
         return ResponseEntity.ok(service.countByUserAndEstado(user, estado));
     }
 
     @PostMapping("/{id}/upload-imagen")
-    public ResponseEntity<Propiedad> uploadImagen(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
-        User user = getCurrentUser();
+    public ResponseEntity<Propiedad> uploadImagen(@PathVariable Long id, @RequestParam("file") MultipartFile file, @CurrentUser User user) {
         Propiedad propiedad = service.getById(id, user);
 
         String contentType = file.getContentType();
@@ -146,13 +186,37 @@ public class PropiedadController {
             throw new RuntimeException("El archivo no puede superar los 5MB");
         }
 
-        // Delete old image if exists
-        if (propiedad.getImagen() != null && !propiedad.getImagen().isEmpty()) {
-            fileStorageService.deleteFile(propiedad.getImagen());
-        }
-
+        String oldImagen = propiedad.getImagen();
         String imagenUrl = fileStorageService.uploadFile(file, "imagenes-propiedades");
         propiedad.setImagen(imagenUrl);
-        return ResponseEntity.ok(service.save(propiedad));
+        Propiedad saved = service.save(propiedad);
+
+        fileStorageService.releaseReplaced(oldImagen, imagenUrl);
+        imageDerivatives.generateFor(saved);
+        return ResponseEntity.ok(saved);
+    }
+
+    /**
+     * Direct upload of the image: the client sends it to the returned URL and
+     * then calls upload-imagen/confirm with the token.
+     */
+    @PostMapping("/{id}/upload-imagen/url")
+    public ResponseEntity<DirectUpload> startImagenUpload(@PathVariable Long id, @Valid @RequestBody DirectUploadRequest request, @CurrentUser User user) {
+        service.getById(id, user);
+        return ResponseEntity.ok(directUploads.start(user, DirectUploadService.Target.PROPIEDAD_IMAGEN, id, request));
+    }
+
+    @PostMapping("/{id}/upload-imagen/confirm")
+    public ResponseEntity<Propiedad> confirmImagenUpload(@PathVariable Long id, @Valid @RequestBody DirectUploadConfirmRequest request, @CurrentUser User user) {
+        Propiedad propiedad = service.getById(id, user);
+        String imagenUrl = directUploads.confirm(user, DirectUploadService.Target.PROPIEDAD_IMAGEN, id, request.getToken()).url();
+
+        String oldImagen = propiedad.getImagen();
+        propiedad.setImagen(imagenUrl);
+        Propiedad saved = service.save(propiedad);
+
+        fileStorageService.releaseReplaced(oldImagen, imagenUrl);
+        imageDerivatives.generateFor(saved);
+        return ResponseEntity.ok(saved);
     }
 }
@@ -0,0 +1,37 @@
+package com.taskmanager.backend.controller;
+
+import com.taskmanager.backend.config.SqlStatementBudget;
+import com.taskmanager.backend.dto.SearchHit;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.security.CurrentUser;
+import com.taskmanager.backend.service.SearchIndexService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final SearchIndexService service;
+
+    public SearchController(SearchIndexService service) {
+        this.service = service;
+    }
+
+    /**
+     * Type-ahead search over propiedades, inquilinos, contratos and billing history,
+     * answered from the user's in-memory index (built with 4 queries on first use).
+     */
+    @GetMapping
+    @SqlStatementBudget(4)
+    public ResponseEntity<List<SearchHit>> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(service.search(user, q, Math.min(Math.max(1, limit), MAX_LIMIT)));
+    }
+}
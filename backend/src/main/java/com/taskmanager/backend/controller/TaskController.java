@@ -3,12 +3,10 @@ package com.taskmanager.backend.controller;
 import com.taskmanager.backend.model.Task;
 import com.taskmanager.backend.model.TaskRequest;
 import com.taskmanager.backend.model.User;
-import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.CurrentUser;
 import com.taskmanager.backend.service.TaskService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -18,51 +16,37 @@ import java.util.List;
 public class TaskController {
 
     private final TaskService service;
-    private final UserRepository userRepository;
 
-    public TaskController(TaskService service, UserRepository userRepository) {
+    public TaskController(TaskService service) {
         this.service = service;
-        this.userRepository = userRepository;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     @GetMapping
-    public List<Task> getTasks() {
-        User user = getCurrentUser();
+    public List<Task> getTasks(@CurrentUser User user) {
         return service.getAllTasksByUser(user);
     }
 
     @PostMapping
-    public ResponseEntity<Task> createTask(@RequestBody Task task) {
-        User user = getCurrentUser();
+    public ResponseEntity<Task> createTask(@RequestBody Task task, @CurrentUser User user) {
         Task created = service.createTask(task, user);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Task> toggleTask(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public ResponseEntity<Task> toggleTask(@PathVariable Long id, @CurrentUser User user) {
         Task updated = service.toggleTask(id, user);
         return ResponseEntity.ok(updated);
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<Task> updateTask(@PathVariable Long id, @RequestBody TaskRequest request) {
-        User user = getCurrentUser();
+    public ResponseEntity<Task> updateTask(@PathVariable Long id, @RequestBody TaskRequest request, @CurrentUser User user) {
         Task updated = service.updateTask(id, request, user);
         return ResponseEntity.ok(updated);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteTask(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public void deleteTask(@PathVariable Long id, @CurrentUser User user) {
         service.deleteTask(id, user);
     }
 }
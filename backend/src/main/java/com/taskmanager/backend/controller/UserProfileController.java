@@ -1,6 +1,9 @@
 package com.taskmanager.backend.controller;
 
 import com.taskmanager.backend.dto.ChangePasswordRequest;
+import com.taskmanager.backend.dto.DirectUpload;
+import com.taskmanager.backend.dto.DirectUploadConfirmRequest;
+import com.taskmanager.backend.dto.DirectUploadRequest;
 import com.taskmanager.backend.dto.SubscriptionRequest;
 import com.taskmanager.backend.dto.UserPreferenceRequest;
 import com.taskmanager.backend.dto.UserProfileRequest;
@@ -9,16 +12,18 @@ import com.taskmanager.backend.model.UserPreference;
 import com.taskmanager.backend.model.UserSession;
 import com.taskmanager.backend.model.UserSubscription;
 import com.taskmanager.backend.model.BillingHistory;
-import com.taskmanager.backend.repository.UserRepository;
+import com.taskmanager.backend.security.AuthenticatedUser;
+import com.taskmanager.backend.security.CurrentUser;
+import com.taskmanager.backend.security.JwtService;
+import com.taskmanager.backend.service.DirectUploadService;
 import com.taskmanager.backend.service.FileStorageService;
+import com.taskmanager.backend.service.ImageDerivativeService;
 import com.taskmanager.backend.service.UserProfileService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -33,26 +38,24 @@ import java.util.Map;
 public class UserProfileController {
 
     private final UserProfileService service;
-    private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
+    private final DirectUploadService directUploads;
+    private final ImageDerivativeService imageDerivatives;
+    private final JwtService jwtService;
 
-    public UserProfileController(UserProfileService service, UserRepository userRepository, FileStorageService fileStorageService) {
+    public UserProfileController(UserProfileService service, FileStorageService fileStorageService,
+                                 DirectUploadService directUploads, ImageDerivativeService imageDerivatives,
+                                 JwtService jwtService) {
         this.service = service;
-        this.userRepository = userRepository;
         this.fileStorageService = fileStorageService;
-    }
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        this.directUploads = directUploads;
+        this.imageDerivatives = imageDerivatives;
+        this.jwtService = jwtService;
     }
 
     // ---- Profile ----
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getProfile() {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, Object>> getProfile(@CurrentUser User user) {
         Map<String, Object> response = new HashMap<>();
         response.put("id", user.getId());
         response.put("name", user.getName());
@@ -60,13 +63,14 @@ public class UserProfileController {
         response.put("email", user.getEmail());
         response.put("telefono", user.getTelefono());
         response.put("avatar", user.getAvatar());
+        response.put("avatarThumb", user.getAvatarThumb());
+        response.put("avatarMedium", user.getAvatarMedium());
         response.put("role", user.getRole());
         return ResponseEntity.ok(response);
     }
 
     @PutMapping
-    public ResponseEntity<Map<String, Object>> updateProfile(@Valid @RequestBody UserProfileRequest request) {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, Object>> updateProfile(@Valid @RequestBody UserProfileRequest request, @CurrentUser User user) {
         User updated = service.updateProfile(user, request);
         Map<String, Object> response = new HashMap<>();
         response.put("id", updated.getId());
@@ -80,8 +84,7 @@ public class UserProfileController {
     }
 
     @DeleteMapping("/avatar")
-    public ResponseEntity<Map<String, Object>> removeAvatar() {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, Object>> removeAvatar(@CurrentUser User user) {
         User updated = service.removeAvatar(user);
         Map<String, Object> response = new HashMap<>();
         response.put("id", updated.getId());
@@ -91,18 +94,12 @@ public class UserProfileController {
     }
 
     @PostMapping("/avatar")
-    public ResponseEntity<?> uploadAvatar(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadAvatar(@RequestParam("file") MultipartFile file, @CurrentUser User user) {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String email = auth.getName();
-            User user = userRepository.findByEmail(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
             // Upload to Supabase Storage
             String avatarUrl = fileStorageService.uploadFile(file, "avatars");
 
-            user.setAvatar(avatarUrl);
-            userRepository.save(user);
+            imageDerivatives.generateFor(service.changeAvatar(user, avatarUrl));
 
             Map<String, Object> response = new HashMap<>();
             response.put("avatar", avatarUrl);
@@ -114,14 +111,34 @@ public class UserProfileController {
         }
     }
 
+    // Direct upload: the client sends the image to the returned URL, then confirms with the token
+    @PostMapping("/avatar/url")
+    public ResponseEntity<DirectUpload> startAvatarUpload(@Valid @RequestBody DirectUploadRequest request, @CurrentUser User user) {
+        return ResponseEntity.ok(directUploads.start(user, DirectUploadService.Target.USER_AVATAR, null, request));
+    }
+
+    @PostMapping("/avatar/confirm")
+    public ResponseEntity<Map<String, Object>> confirmAvatarUpload(@Valid @RequestBody DirectUploadConfirmRequest request, @CurrentUser User user) {
+        String avatarUrl = directUploads.confirm(user, DirectUploadService.Target.USER_AVATAR, null, request.getToken()).url();
+
+        imageDerivatives.generateFor(service.changeAvatar(user, avatarUrl));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("avatar", avatarUrl);
+        response.put("message", "Avatar uploaded successfully");
+        return ResponseEntity.ok(response);
+    }
+
     // ---- Password ----
     @PutMapping("/password")
-    public ResponseEntity<Map<String, String>> changePassword(@Valid @RequestBody ChangePasswordRequest request) {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, String>> changePassword(@Valid @RequestBody ChangePasswordRequest request, @CurrentUser User user) {
         try {
             service.changePassword(user, request);
             Map<String, String> response = new HashMap<>();
             response.put("message", "Contraseña actualizada correctamente");
+            // Tokens issued before the change are no longer accepted
+            response.put("token", jwtService.generateToken(
+                    new AuthenticatedUser(user.getId(), user.getEmail(), user.getName())));
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -132,27 +149,23 @@ public class UserProfileController {
 
     // ---- Preferences ----
     @GetMapping("/preferencias")
-    public ResponseEntity<UserPreference> getPreferences() {
-        User user = getCurrentUser();
+    public ResponseEntity<UserPreference> getPreferences(@CurrentUser User user) {
         return ResponseEntity.ok(service.getPreferences(user));
     }
 
     @PutMapping("/preferencias")
-    public ResponseEntity<UserPreference> updatePreferences(@RequestBody UserPreferenceRequest request) {
-        User user = getCurrentUser();
+    public ResponseEntity<UserPreference> updatePreferences(@RequestBody UserPreferenceRequest request, @CurrentUser User user) {
         return ResponseEntity.ok(service.updatePreferences(user, request));
     }
 
     // ---- Sessions ----
     @GetMapping("/sesiones")
-    public ResponseEntity<List<UserSession>> getSessions() {
-        User user = getCurrentUser();
+    public ResponseEntity<List<UserSession>> getSessions(@CurrentUser User user) {
         return ResponseEntity.ok(service.getSessions(user));
     }
 
     @PutMapping("/sesiones/{id}/cerrar")
-    public ResponseEntity<Map<String, String>> closeSession(@PathVariable Long id) {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, String>> closeSession(@PathVariable Long id, @CurrentUser User user) {
         service.closeSession(user, id);
         Map<String, String> response = new HashMap<>();
         response.put("message", "Sesión cerrada");
@@ -160,8 +173,7 @@ public class UserProfileController {
     }
 
     @PutMapping("/sesiones/cerrar-todas")
-    public ResponseEntity<Map<String, String>> closeAllSessions(@RequestParam(required = false) Long currentSessionId) {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, String>> closeAllSessions(@RequestParam(required = false) Long currentSessionId, @CurrentUser User user) {
         service.closeAllOtherSessions(user, currentSessionId);
         Map<String, String> response = new HashMap<>();
         response.put("message", "Todas las demás sesiones han sido cerradas");
@@ -170,20 +182,17 @@ public class UserProfileController {
 
     // ---- Subscription ----
     @GetMapping("/suscripcion")
-    public ResponseEntity<UserSubscription> getSubscription() {
-        User user = getCurrentUser();
+    public ResponseEntity<UserSubscription> getSubscription(@CurrentUser User user) {
         return ResponseEntity.ok(service.getSubscription(user));
     }
 
     @PutMapping("/suscripcion")
-    public ResponseEntity<UserSubscription> updateSubscription(@RequestBody SubscriptionRequest request) {
-        User user = getCurrentUser();
+    public ResponseEntity<UserSubscription> updateSubscription(@RequestBody SubscriptionRequest request, @CurrentUser User user) {
         return ResponseEntity.ok(service.updateSubscription(user, request));
     }
 
     @PutMapping("/suscripcion/cancelar")
-    public ResponseEntity<Map<String, String>> cancelSubscription() {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, String>> cancelSubscription(@CurrentUser User user) {
         service.cancelSubscription(user);
         Map<String, String> response = new HashMap<>();
         response.put("message", "Suscripción cancelada");
@@ -196,8 +205,8 @@ public class UserProfileController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "5") int size,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false) String filter) {
-        User user = getCurrentUser();
+            @RequestParam(required = false) String filter,
+            @CurrentUser User user) {
         Pageable pageable = PageRequest.of(page, size);
 
         LocalDate after = null;
@@ -214,8 +223,7 @@ public class UserProfileController {
 
     // ---- Account ----
     @DeleteMapping("/cuenta")
-    public ResponseEntity<Map<String, String>> deleteAccount() {
-        User user = getCurrentUser();
+    public ResponseEntity<Map<String, String>> deleteAccount(@CurrentUser User user) {
         service.deleteAccount(user);
         Map<String, String> response = new HashMap<>();
         response.put("message", "Cuenta eliminada permanentemente");
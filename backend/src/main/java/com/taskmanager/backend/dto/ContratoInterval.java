@@ -0,0 +1,15 @@
+package com.taskmanager.backend.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Dates a contract keeps its property busy (both ends included), as held by the
+ * per-property interval index and reported as a conflict by the availability check.
+ */
+public record ContratoInterval(Long contratoId, Long propiedadId, LocalDate fechaInicio, LocalDate fechaFin,
+                               String estado) {
+
+    public boolean overlaps(LocalDate inicio, LocalDate fin) {
+        return !fechaInicio.isAfter(fin) && !inicio.isAfter(fechaFin);
+    }
+}
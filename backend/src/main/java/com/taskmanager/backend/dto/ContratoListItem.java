@@ -0,0 +1,35 @@
+package com.taskmanager.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.taskmanager.backend.model.Contrato;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of the contract lists, built directly by the query
+ * (see ContratoRepository.LIST_ITEM).
+ */
+public record ContratoListItem(Long id, LocalDate fechaInicio, LocalDate fechaFin, BigDecimal rentaMensual,
+                               String estado, String pdfUrl, LocalDateTime createdAt,
+                               InquilinoRef inquilino, PropiedadRef propiedad) {
+
+    public ContratoListItem(Long id, LocalDate fechaInicio, LocalDate fechaFin, BigDecimal rentaMensual,
+                            String estado, String pdfUrl, LocalDateTime createdAt,
+                            Long inquilinoId, String inquilinoNombre, String inquilinoApellido,
+                            String inquilinoEmail, String inquilinoAvatar,
+                            Long propiedadId, String propiedadNombre, String propiedadDireccion,
+                            String propiedadCiudad, String propiedadPais, BigDecimal propiedadRenta,
+                            String propiedadEstado) {
+        this(id, fechaInicio, fechaFin, rentaMensual, estado, pdfUrl, createdAt,
+                new InquilinoRef(inquilinoId, inquilinoNombre, inquilinoApellido, inquilinoEmail, inquilinoAvatar),
+                PropiedadRef.of(propiedadId, propiedadNombre, propiedadDireccion, propiedadCiudad, propiedadPais,
+                        propiedadRenta, propiedadEstado));
+    }
+
+    @JsonProperty("diasRestantes")
+    public Long diasRestantes() {
+        return Contrato.diasRestantes(fechaFin);
+    }
+}
@@ -0,0 +1,64 @@
+package com.taskmanager.backend.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Slice of a keyset-paginated list: the rows plus the cursor of the next page.
+ * There is no total count, so no COUNT(*) query is needed. The list endpoints
+ * switch to this mode when ?after= is present (empty for the first page) and
+ * seek past the {@link PageCursor} on (createdAt, id).
+ */
+public class CursorPage<T> {
+
+    /**
+     * Largest page a client can ask for; a page is read in one query and held in memory.
+     */
+    public static final int MAX_SIZE = 100;
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return The requested page size within 1..MAX_SIZE
+     */
+    public static int clampSize(int size) {
+        return Math.min(MAX_SIZE, Math.max(1, size));
+    }
+
+    /**
+     * Builds the page from a query that fetched up to size + 1 rows; the extra row
+     * only signals that another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, PageCursor> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorPage<>(content, size, hasNext, nextCursor);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
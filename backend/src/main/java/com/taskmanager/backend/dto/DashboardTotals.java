@@ -0,0 +1,22 @@
+package com.taskmanager.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Raw dashboard aggregates for one month (plus the previous month's income),
+ * read by PagoMonthlySummaryRepository.findDashboardTotals from the monthly rollup.
+ */
+public interface DashboardTotals {
+
+    BigDecimal getIngresosMes();
+
+    BigDecimal getIngresosMesAnterior();
+
+    BigDecimal getRentasPendientes();
+
+    Long getTotalPropiedades();
+
+    Long getInquilinosActivos();
+
+    Long getMorosos();
+}
@@ -0,0 +1,12 @@
+package com.taskmanager.backend.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Where and how the client sends a file straight to storage (method, URL and
+ * headers), and the token it confirms the upload with afterwards.
+ */
+public record DirectUpload(String method, String uploadUrl, Map<String, String> headers,
+                           String path, String token, Instant expiresAt) {
+}
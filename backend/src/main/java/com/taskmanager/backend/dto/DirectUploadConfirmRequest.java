@@ -0,0 +1,23 @@
+package com.taskmanager.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class DirectUploadConfirmRequest {
+
+    @NotBlank(message = "El token de subida es requerido")
+    private String token;
+
+    public DirectUploadConfirmRequest() {}
+
+    public DirectUploadConfirmRequest(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+}
@@ -0,0 +1,60 @@
+package com.taskmanager.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+public class DirectUploadRequest {
+
+    @NotBlank(message = "El nombre del archivo es requerido")
+    @Size(max = 255, message = "El nombre del archivo no puede exceder 255 caracteres")
+    private String fileName;
+
+    @NotBlank(message = "El tipo de archivo es requerido")
+    @Size(max = 100, message = "El tipo de archivo no puede exceder 100 caracteres")
+    private String contentType;
+
+    @NotNull(message = "El tamaño del archivo es requerido")
+    @Positive(message = "El archivo está vacío")
+    private Long size;
+
+    @NotBlank(message = "El checksum SHA-256 es requerido")
+    @Pattern(regexp = "[0-9a-fA-F]{64}", message = "El checksum debe ser un SHA-256 en hexadecimal")
+    private String sha256;
+
+    public DirectUploadRequest() {}
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+}
@@ -0,0 +1,28 @@
+package com.taskmanager.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of the tenant lists, built directly by the query
+ * (see InquilinoRepository.LIST_ITEM).
+ */
+public record InquilinoListItem(Long id, String nombre, String apellido, String email, String telefono,
+                                String documento, String avatar, String avatarThumb, String direccionContacto,
+                                String documentoIdentidadUrl, String contratoEstado, LocalDate contratoFin,
+                                LocalDateTime createdAt, PropiedadRef propiedad) {
+
+    public InquilinoListItem(Long id, String nombre, String apellido, String email, String telefono,
+                             String documento, String avatar, String avatarThumb, String direccionContacto,
+                             String documentoIdentidadUrl, String contratoEstado, LocalDate contratoFin,
+                             LocalDateTime createdAt,
+                             Long propiedadId, String propiedadNombre, String propiedadDireccion,
+                             String propiedadCiudad, String propiedadPais, BigDecimal propiedadRenta,
+                             String propiedadEstado) {
+        this(id, nombre, apellido, email, telefono, documento, avatar, avatarThumb, direccionContacto, documentoIdentidadUrl,
+                contratoEstado, contratoFin, createdAt,
+                PropiedadRef.of(propiedadId, propiedadNombre, propiedadDireccion, propiedadCiudad, propiedadPais,
+                        propiedadRenta, propiedadEstado));
+    }
+}
@@ -0,0 +1,7 @@
+package com.taskmanager.backend.dto;
+
+/**
+ * Tenant columns shown next to a payment or contract in list views.
+ */
+public record InquilinoRef(Long id, String nombre, String apellido, String email, String avatar) {
+}
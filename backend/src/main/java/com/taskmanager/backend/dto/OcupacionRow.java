@@ -0,0 +1,11 @@
+package com.taskmanager.backend.dto;
+
+import java.time.LocalDate;
+
+/**
+ * One property joined with one of its contracts inside the requested window
+ * (contract fields null when it has none), built directly by
+ * PropiedadRepository.findOcupacionRows.
+ */
+public record OcupacionRow(Long propiedadId, String nombre, LocalDate fechaInicio, LocalDate fechaFin, String estado) {
+}
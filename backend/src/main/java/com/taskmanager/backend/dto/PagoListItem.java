@@ -0,0 +1,35 @@
+package com.taskmanager.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.taskmanager.backend.model.Pago;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of the payment lists, built directly by the query
+ * (see PagoRepository.LIST_ITEM) instead of hydrating managed entities.
+ */
+public record PagoListItem(Long id, BigDecimal monto, String estado, LocalDate fechaVencimiento,
+                           LocalDate fechaPago, String comprobante, LocalDateTime createdAt,
+                           InquilinoRef inquilino, PropiedadRef propiedad) {
+
+    public PagoListItem(Long id, BigDecimal monto, String estado, LocalDate fechaVencimiento,
+                        LocalDate fechaPago, String comprobante, LocalDateTime createdAt,
+                        Long inquilinoId, String inquilinoNombre, String inquilinoApellido,
+                        String inquilinoEmail, String inquilinoAvatar,
+                        Long propiedadId, String propiedadNombre, String propiedadDireccion,
+                        String propiedadCiudad, String propiedadPais, BigDecimal propiedadRenta,
+                        String propiedadEstado) {
+        this(id, monto, estado, fechaVencimiento, fechaPago, comprobante, createdAt,
+                new InquilinoRef(inquilinoId, inquilinoNombre, inquilinoApellido, inquilinoEmail, inquilinoAvatar),
+                PropiedadRef.of(propiedadId, propiedadNombre, propiedadDireccion, propiedadCiudad, propiedadPais,
+                        propiedadRenta, propiedadEstado));
+    }
+
+    @JsonProperty("diasAtrasado")
+    public Long diasAtrasado() {
+        return Pago.diasAtrasado(fechaPago, fechaVencimiento);
+    }
+}
@@ -0,0 +1,10 @@
+package com.taskmanager.backend.dto;
+
+import java.util.List;
+
+/**
+ * Availability of one property for a date range: free unless some contract in
+ * progress overlaps it (listed in conflictos).
+ */
+public record PropiedadDisponibilidad(Long propiedadId, boolean disponible, List<ContratoInterval> conflictos) {
+}
@@ -0,0 +1,13 @@
+package com.taskmanager.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of the property lists, built directly by the query
+ * (see PropiedadRepository.LIST_ITEM).
+ */
+public record PropiedadListItem(Long id, String nombre, String direccion, String ciudad, String pais, String tipo,
+                                BigDecimal rentaMensual, String estado, String imagen, String imagenThumb,
+                                LocalDateTime createdAt) {
+}
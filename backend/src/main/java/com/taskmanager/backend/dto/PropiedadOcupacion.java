@@ -0,0 +1,22 @@
+package com.taskmanager.backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Occupancy timeline of one property over a window: consecutive segments
+ * covering every day of it, and the day count of each kind.
+ */
+public record PropiedadOcupacion(Long propiedadId, String nombre, List<Segmento> segmentos,
+                                 long diasOcupados, long diasReservados, long diasVacantes) {
+
+    public static final String OCUPADA = "ocupada";
+    public static final String RESERVADA = "reservada";
+    public static final String VACANTE = "vacante";
+
+    /**
+     * @param estado ocupada (signed contract), reservada (contract not signed yet) or vacante
+     */
+    public record Segmento(String estado, LocalDate desde, LocalDate hasta) {
+    }
+}
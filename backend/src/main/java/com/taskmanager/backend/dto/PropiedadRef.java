@@ -0,0 +1,18 @@
+package com.taskmanager.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Property columns shown next to a payment, contract or tenant in list views.
+ */
+public record PropiedadRef(Long id, String nombre, String direccion, String ciudad, String pais,
+                           BigDecimal rentaMensual, String estado) {
+
+    /**
+     * @return The reference, or null when the left-joined property is absent
+     */
+    static PropiedadRef of(Long id, String nombre, String direccion, String ciudad, String pais,
+                           BigDecimal rentaMensual, String estado) {
+        return id != null ? new PropiedadRef(id, nombre, direccion, ciudad, pais, rentaMensual, estado) : null;
+    }
+}
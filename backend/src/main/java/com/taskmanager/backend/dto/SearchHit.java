@@ -0,0 +1,29 @@
+package com.taskmanager.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * One result of the global search (GET /api/search), ranked by score (1 = every
+ * n-gram of the query matched).
+ */
+public record SearchHit(Tipo tipo, Long id, String titulo, String detalle, double score) {
+
+    public enum Tipo {
+
+        PROPIEDAD("propiedad"),
+        INQUILINO("inquilino"),
+        CONTRATO("contrato"),
+        FACTURACION("facturacion");
+
+        private final String codigo;
+
+        Tipo(String codigo) {
+            this.codigo = codigo;
+        }
+
+        @JsonValue
+        public String getCodigo() {
+            return codigo;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.taskmanager.backend.dto;
+
+/**
+ * An uploaded object: its public URL, path inside the bucket, size in bytes and
+ * the hex SHA-256 of its content, computed while it was streamed (or reported by
+ * the storage backend for direct uploads; null when it cannot report one).
+ */
+public record StoredFile(String url, String path, long size, String sha256) {
+}
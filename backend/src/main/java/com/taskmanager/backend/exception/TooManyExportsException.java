@@ -0,0 +1,8 @@
+package com.taskmanager.backend.exception;
+
+public class TooManyExportsException extends RuntimeException {
+
+    public TooManyExportsException() {
+        super("Hay demasiadas exportaciones en curso, intente de nuevo en unos minutos");
+    }
+}
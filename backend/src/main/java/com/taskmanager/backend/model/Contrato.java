@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -51,17 +52,17 @@ public class Contrato {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
-    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "tasks", "password"})
+    @JsonIgnore
     private User user;
 
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
     // Days threshold to consider contract as "por_vencer" (about to expire)
-    private static final long DAYS_THRESHOLD_POR_VENCER = 30;
+    public static final long DAYS_THRESHOLD_POR_VENCER = 30;
 
     public Contrato() {}
 
@@ -119,6 +120,10 @@ public class Contrato {
 
     // Calculate days until contract ends
     public Long getDiasRestantes() {
+        return diasRestantes(fechaFin);
+    }
+
+    public static Long diasRestantes(LocalDate fechaFin) {
         if (fechaFin == null) {
             return null;
         }
@@ -4,9 +4,11 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Entity
 @Table(name = "inquilinos")
@@ -40,6 +42,13 @@ public class Inquilino {
     @Size(max = 500)
     private String avatar;
 
+    // Downscaled copies, set by ImageDerivativeService; cleared when the avatar changes
+    @Column(name = "avatar_thumb", length = 500)
+    private String avatarThumb;
+
+    @Column(name = "avatar_medium", length = 500)
+    private String avatarMedium;
+
     @Size(max = 500)
     @Column(name = "direccion_contacto")
     private String direccionContacto;
@@ -62,10 +71,10 @@ public class Inquilino {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
-    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "tasks", "password"})
+    @JsonIgnore
     private User user;
 
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
@@ -150,9 +159,29 @@ public class Inquilino {
     }
 
     public void setAvatar(String avatar) {
+        if (!Objects.equals(this.avatar, avatar)) {
+            this.avatarThumb = null;
+            this.avatarMedium = null;
+        }
         this.avatar = avatar;
     }
 
+    public String getAvatarThumb() {
+        return avatarThumb;
+    }
+
+    public void setAvatarThumb(String avatarThumb) {
+        this.avatarThumb = avatarThumb;
+    }
+
+    public String getAvatarMedium() {
+        return avatarMedium;
+    }
+
+    public void setAvatarMedium(String avatarMedium) {
+        this.avatarMedium = avatarMedium;
+    }
+
     public String getDireccionContacto() {
         return direccionContacto;
     }
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -49,10 +50,10 @@ public class Pago {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
-    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "tasks", "password"})
+    @JsonIgnore
     private User user;
 
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
@@ -96,6 +97,10 @@ public class Pago {
 
     // Calculate days late
     public Long getDiasAtrasado() {
+        return diasAtrasado(fechaPago, fechaVencimiento);
+    }
+
+    public static Long diasAtrasado(LocalDate fechaPago, LocalDate fechaVencimiento) {
         if (fechaPago != null || fechaVencimiento == null) {
             return 0L;
         }
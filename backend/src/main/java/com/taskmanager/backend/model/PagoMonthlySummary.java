@@ -0,0 +1,70 @@
+package com.taskmanager.backend.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Monthly rollup of a user's payments, one row per (user, year, month, estado).
+ * 'pagado' rows are bucketed by fecha_pago and the other estados by
+ * fecha_vencimiento, matching how the dashboard reports them. The extra
+ * 'total' row covers every estado by fecha_vencimiento, so distinct
+ * tenant/property counts across estados are not double counted.
+ * Rows are maintained by PagoSummaryService; never edit them directly.
+ */
+@Entity
+@Table(name = "pago_monthly_summary", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "anio", "mes", "estado"})
+})
+public class PagoMonthlySummary {
+
+    public static final String ESTADO_TOTAL = "total";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Integer anio;
+
+    @Column(nullable = false)
+    private Integer mes;
+
+    @Column(length = 20, nullable = false)
+    private String estado;
+
+    @Column(name = "monto_total", precision = 14, scale = 2, nullable = false)
+    private BigDecimal montoTotal;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+
+    @Column(nullable = false)
+    private Integer inquilinos;
+
+    @Column(nullable = false)
+    private Integer propiedades;
+
+    public PagoMonthlySummary() {}
+
+    // Getters
+    public Long getId() { return id; }
+
+    public Long getUserId() { return userId; }
+
+    public Integer getAnio() { return anio; }
+
+    public Integer getMes() { return mes; }
+
+    public String getEstado() { return estado; }
+
+    public BigDecimal getMontoTotal() { return montoTotal; }
+
+    public Integer getCantidad() { return cantidad; }
+
+    public Integer getInquilinos() { return inquilinos; }
+
+    public Integer getPropiedades() { return propiedades; }
+}
@@ -5,9 +5,11 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Entity
 @Table(name = "propiedades")
@@ -49,12 +51,19 @@ public class Propiedad {
     @Size(max = 500)
     private String imagen;
 
+    // Downscaled copies, set by ImageDerivativeService; cleared when the imagen changes
+    @Column(name = "imagen_thumb", length = 500)
+    private String imagenThumb;
+
+    @Column(name = "imagen_medium", length = 500)
+    private String imagenMedium;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
-    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "tasks", "password"})
+    @JsonIgnore
     private User user;
 
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
@@ -154,9 +163,29 @@ public class Propiedad {
     }
 
     public void setImagen(String imagen) {
+        if (!Objects.equals(this.imagen, imagen)) {
+            this.imagenThumb = null;
+            this.imagenMedium = null;
+        }
         this.imagen = imagen;
     }
 
+    public String getImagenThumb() {
+        return imagenThumb;
+    }
+
+    public void setImagenThumb(String imagenThumb) {
+        this.imagenThumb = imagenThumb;
+    }
+
+    public String getImagenMedium() {
+        return imagenMedium;
+    }
+
+    public void setImagenMedium(String imagenMedium) {
+        this.imagenMedium = imagenMedium;
+    }
+
     public User getUser() {
         return user;
     }
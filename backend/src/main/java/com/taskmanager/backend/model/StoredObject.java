@@ -0,0 +1,63 @@
+package com.taskmanager.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One stored file per distinct content. Uploads of content that is already
+ * stored reuse the object and add a reference instead of storing a copy.
+ * Rows are maintained by StoredObjectService; never edit them directly.
+ */
+@Entity
+@Table(name = "stored_objects")
+public class StoredObject {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(length = 500, nullable = false, unique = true)
+    private String path;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "referenced_at", nullable = false)
+    private LocalDateTime referencedAt;
+
+    public StoredObject() {}
+
+    public StoredObject(String sha256, String path, Long size, String contentType) {
+        this.sha256 = sha256;
+        this.path = path;
+        this.size = size;
+        this.contentType = contentType;
+        this.refCount = 1;
+        this.createdAt = LocalDateTime.now();
+        this.referencedAt = createdAt;
+    }
+
+    // Getters
+    public String getSha256() { return sha256; }
+
+    public String getPath() { return path; }
+
+    public Long getSize() { return size; }
+
+    public String getContentType() { return contentType; }
+
+    public Integer getRefCount() { return refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getReferencedAt() { return referencedAt; }
+}
@@ -4,10 +4,18 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-email")
 @Table(name = "users", uniqueConstraints = {
     @UniqueConstraint(columnNames = "email")
 })
@@ -24,6 +32,8 @@ public class User {
     @Size(max = 50)
     private String apellido;
 
+    // Logins look the user up by email through the natural-id cache; it is never changed
+    @NaturalId
     @NotBlank
     @Email
     @Size(max = 100)
@@ -39,6 +49,13 @@ public class User {
     @Size(max = 500)
     private String avatar;
 
+    // Downscaled copies, set by ImageDerivativeService; cleared when the avatar changes
+    @Column(name = "avatar_thumb", length = 500)
+    private String avatarThumb;
+
+    @Column(name = "avatar_medium", length = 500)
+    private String avatarMedium;
+
     @Size(max = 20)
     @Column(columnDefinition = "varchar(20) default 'Admin'")
     private String role = "Admin";
@@ -108,9 +125,29 @@ public class User {
     }
 
     public void setAvatar(String avatar) {
+        if (!Objects.equals(this.avatar, avatar)) {
+            this.avatarThumb = null;
+            this.avatarMedium = null;
+        }
         this.avatar = avatar;
     }
 
+    public String getAvatarThumb() {
+        return avatarThumb;
+    }
+
+    public void setAvatarThumb(String avatarThumb) {
+        this.avatarThumb = avatarThumb;
+    }
+
+    public String getAvatarMedium() {
+        return avatarMedium;
+    }
+
+    public void setAvatarMedium(String avatarMedium) {
+        this.avatarMedium = avatarMedium;
+    }
+
     public String getRole() {
         return role;
     }
@@ -1,9 +1,14 @@
 package com.taskmanager.backend.model;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-preferences")
 @Table(name = "user_preferences")
 public class UserPreference {
 
@@ -13,6 +18,7 @@ public class UserPreference {
 
     @OneToOne
     @JoinColumn(name = "user_id", nullable = false, unique = true)
+    @JsonIgnore
     private User user;
 
     @Column(length = 10, columnDefinition = "varchar(10) default 'es'")
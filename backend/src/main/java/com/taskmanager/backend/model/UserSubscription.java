@@ -1,10 +1,15 @@
 package com.taskmanager.backend.model;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-subscriptions")
 @Table(name = "user_subscriptions")
 public class UserSubscription {
 
@@ -14,6 +19,7 @@ public class UserSubscription {
 
     @OneToOne
     @JoinColumn(name = "user_id", nullable = false, unique = true)
+    @JsonIgnore
     private User user;
 
     @Column(length = 20, columnDefinition = "varchar(20) default 'basico'")
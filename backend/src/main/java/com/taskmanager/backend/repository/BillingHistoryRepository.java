@@ -1,7 +1,6 @@
 package com.taskmanager.backend.repository;
 
 import com.taskmanager.backend.model.BillingHistory;
-import com.taskmanager.backend.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,28 +8,48 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public interface BillingHistoryRepository extends JpaRepository<BillingHistory, Long> {
 
-    Page<BillingHistory> findByUserOrderByFechaDesc(User user, Pageable pageable);
+    Page<BillingHistory> findByUserIdOrderByFechaDesc(Long userId, Pageable pageable);
 
-    Page<BillingHistory> findByUserAndFechaAfterOrderByFechaDesc(User user, LocalDate after, Pageable pageable);
+    Page<BillingHistory> findByUserIdAndFechaAfterOrderByFechaDesc(Long userId, LocalDate after, Pageable pageable);
 
-    @Query("SELECT b FROM BillingHistory b WHERE b.user = :user AND " +
-           "(LOWER(b.descripcion) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+    List<BillingHistory> findByUserId(Long userId);
+
+    // Search: description substring (pg_trgm GIN index on PostgreSQL). The ranked variants order
+    // by word_similarity first; only used when TrigramSearchSupport allows it.
+    String SEARCH_MATCH = "(LOWER(b.descripcion) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    String SEARCH_RANK = "function('word_similarity', LOWER(:search), LOWER(b.descripcion))";
+
+    @Query("SELECT b FROM BillingHistory b WHERE b.user.id = :userId AND " + SEARCH_MATCH + " " +
            "ORDER BY b.fecha DESC")
-    Page<BillingHistory> searchByUser(@Param("user") User user, @Param("search") String search, Pageable pageable);
+    Page<BillingHistory> searchByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    @Query("SELECT b FROM BillingHistory b WHERE b.user.id = :userId AND " + SEARCH_MATCH + " " +
+           "ORDER BY " + SEARCH_RANK + " DESC, b.fecha DESC")
+    Page<BillingHistory> searchRankedByUser(@Param("userId") Long userId, @Param("search") String search,
+                                            Pageable pageable);
 
-    @Query("SELECT b FROM BillingHistory b WHERE b.user = :user AND b.fecha >= :after AND " +
-           "(LOWER(b.descripcion) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+    @Query("SELECT b FROM BillingHistory b WHERE b.user.id = :userId AND b.fecha >= :after AND " + SEARCH_MATCH + " " +
            "ORDER BY b.fecha DESC")
     Page<BillingHistory> searchByUserAndDateAfter(
-            @Param("user") User user,
+            @Param("userId") Long userId,
+            @Param("search") String search,
+            @Param("after") LocalDate after,
+            Pageable pageable);
+
+    @Query("SELECT b FROM BillingHistory b WHERE b.user.id = :userId AND b.fecha >= :after AND " + SEARCH_MATCH + " " +
+           "ORDER BY " + SEARCH_RANK + " DESC, b.fecha DESC")
+    Page<BillingHistory> searchRankedByUserAndDateAfter(
+            @Param("userId") Long userId,
             @Param("search") String search,
             @Param("after") LocalDate after,
             Pageable pageable);
 
-    long countByUser(User user);
+    long countByUserId(Long userId);
 
-    void deleteByUser(User user);
+    void deleteByUserId(Long userId);
 }
@@ -1,84 +1,177 @@
 package com.taskmanager.backend.repository;
 
+import com.taskmanager.backend.dto.ContratoInterval;
+import com.taskmanager.backend.dto.ContratoListItem;
 import com.taskmanager.backend.model.Contrato;
-import com.taskmanager.backend.model.User;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.Propiedad;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ContratoRepository extends JpaRepository<Contrato, Long> {
 
-    List<Contrato> findByUserOrderByCreatedAtDesc(User user);
+    // List reads select only the columns the list pages render, straight into read-only rows
+    String LIST_ITEM = "SELECT new com.taskmanager.backend.dto.ContratoListItem(" +
+            "c.id, c.fechaInicio, c.fechaFin, c.rentaMensual, c.estado, c.pdfUrl, c.createdAt, " +
+            "i.id, i.nombre, i.apellido, i.email, i.avatar, " +
+            "p.id, p.nombre, p.direccion, p.ciudad, p.pais, p.rentaMensual, p.estado) " +
+            "FROM Contrato c JOIN c.inquilino i JOIN c.propiedad p ";
 
-    Page<Contrato> findByUser(User user, Pageable pageable);
+    @Query(LIST_ITEM + "WHERE c.user.id = :userId ORDER BY c.createdAt DESC")
+    List<ContratoListItem> findListByUser(@Param("userId") Long userId);
 
-    Optional<Contrato> findByIdAndUser(Long id, User user);
+    // Export: forward-only cursor read in fetch-size batches; must be consumed inside a transaction
+    @Query(LIST_ITEM + "WHERE c.user.id = :userId ORDER BY c.createdAt DESC, c.id DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<ContratoListItem> streamListByUser(@Param("userId") Long userId);
 
-    boolean existsByIdAndUser(Long id, User user);
+    @Query(value = LIST_ITEM + "WHERE c.user.id = :userId",
+           countQuery = "SELECT COUNT(c) FROM Contrato c WHERE c.user.id = :userId")
+    Page<ContratoListItem> findListPageByUser(@Param("userId") Long userId, Pageable pageable);
+
+    // Detail reads fetch the associations Jackson serializes in the same select (no N+1)
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    Optional<Contrato> findByIdAndUserId(Long id, Long userId);
+
+    boolean existsByIdAndUserId(Long id, Long userId);
 
     // Paginated query by estado
-    Page<Contrato> findByUserAndEstado(User user, String estado, Pageable pageable);
+    @Query(value = LIST_ITEM + "WHERE c.user.id = :userId AND c.estado = :estado",
+           countQuery = "SELECT COUNT(c) FROM Contrato c WHERE c.user.id = :userId AND c.estado = :estado")
+    Page<ContratoListItem> findListPageByUserAndEstado(@Param("userId") Long userId, @Param("estado") String estado,
+                                                       Pageable pageable);
 
     // List query by estado
-    @Query("SELECT c FROM Contrato c WHERE c.user = :user AND c.estado = :estado ORDER BY c.createdAt DESC")
-    List<Contrato> findByUserAndEstadoList(@Param("user") User user, @Param("estado") String estado);
+    @Query(LIST_ITEM + "WHERE c.user.id = :userId AND c.estado = :estado ORDER BY c.createdAt DESC")
+    List<ContratoListItem> findByUserAndEstadoList(@Param("userId") Long userId, @Param("estado") String estado);
 
-    List<Contrato> findByInquilinoAndUser(Inquilino inquilino, User user);
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    List<Contrato> findByInquilinoAndUserId(Inquilino inquilino, Long userId);
 
-    List<Contrato> findByPropiedadAndUser(Propiedad propiedad, User user);
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    List<Contrato> findByPropiedadAndUserId(Propiedad propiedad, Long userId);
 
-    @Query("SELECT COUNT(c) FROM Contrato c WHERE c.user = :user")
-    Long countByUser(@Param("user") User user);
+    @Query("SELECT COUNT(c) FROM Contrato c WHERE c.user.id = :userId")
+    Long countByUser(@Param("userId") Long userId);
 
-    @Query("SELECT COUNT(c) FROM Contrato c WHERE c.user = :user AND c.estado = :estado")
-    Long countByUserAndEstado(@Param("user") User user, @Param("estado") String estado);
+    @Query("SELECT COUNT(c) FROM Contrato c WHERE c.user.id = :userId AND c.estado = :estado")
+    Long countByUserAndEstado(@Param("userId") Long userId, @Param("estado") String estado);
 
-    @Query("SELECT c FROM Contrato c WHERE c.user = :user AND c.estado IN ('activo', 'firmado') " +
+    @Query(LIST_ITEM + "WHERE c.user.id = :userId AND c.estado IN ('activo', 'firmado', 'por_vencer') " +
            "AND c.fechaFin BETWEEN :today AND :futureDate ORDER BY c.fechaFin ASC")
-    List<Contrato> findProximosAVencer(@Param("user") User user,
-                                        @Param("today") LocalDate today,
-                                        @Param("futureDate") LocalDate futureDate);
+    List<ContratoListItem> findProximosAVencer(@Param("userId") Long userId,
+                                               @Param("today") LocalDate today,
+                                               @Param("futureDate") LocalDate futureDate);
 
-    @Query("SELECT c FROM Contrato c WHERE c.propiedad = :propiedad AND c.user = :user " +
+    @Query("SELECT c FROM Contrato c WHERE c.propiedad = :propiedad AND c.user.id = :userId " +
            "AND c.estado IN ('activo', 'por_vencer', 'firmado') ORDER BY c.fechaFin DESC")
     Optional<Contrato> findActiveByPropiedadAndUser(@Param("propiedad") Propiedad propiedad,
-                                                     @Param("user") User user);
+                                                     @Param("userId") Long userId);
 
-    @Query("SELECT c FROM Contrato c WHERE c.inquilino = :inquilino AND c.user = :user " +
+    @Query("SELECT c FROM Contrato c WHERE c.inquilino = :inquilino AND c.user.id = :userId " +
            "AND c.estado IN ('activo', 'por_vencer', 'firmado') ORDER BY c.fechaFin DESC")
     Optional<Contrato> findActiveByInquilinoAndUser(@Param("inquilino") Inquilino inquilino,
-                                                     @Param("user") User user);
-
-    @Query("SELECT c FROM Contrato c JOIN c.inquilino i JOIN c.propiedad p WHERE c.user = :user AND " +
-           "(LOWER(i.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(i.apellido) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.nombre) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Contrato> searchByUser(@Param("user") User user, @Param("search") String search, Pageable pageable);
-
-    @Query("SELECT c FROM Contrato c WHERE c.propiedad = :propiedad AND c.user = :user " +
-           "AND c.estado NOT IN ('finalizado', 'sin_firmar') AND " +
-           "((c.fechaInicio BETWEEN :startDate AND :endDate) OR " +
-           "(c.fechaFin BETWEEN :startDate AND :endDate) OR " +
-           "(c.fechaInicio <= :startDate AND c.fechaFin >= :endDate))")
-    List<Contrato> findOverlappingContracts(@Param("propiedad") Propiedad propiedad,
-                                             @Param("user") User user,
-                                             @Param("startDate") LocalDate startDate,
-                                             @Param("endDate") LocalDate endDate);
-
-    @Query("SELECT c FROM Contrato c WHERE c.inquilino = :inquilino AND c.user = :user " +
+                                                     @Param("userId") Long userId);
+
+    // Search box: tenant full name or property name, each backed by its own trigram index (V7)
+    String SEARCH_TENANT = "LOWER(CONCAT(COALESCE(i.nombre, ''), ' ', COALESCE(i.apellido, '')))";
+
+    String SEARCH_MATCH = "(" + SEARCH_TENANT + " LIKE LOWER(CONCAT('%', :search, '%')) OR " +
+            "LOWER(p.nombre) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    String SEARCH_RANK = "GREATEST(function('word_similarity', LOWER(:search), " + SEARCH_TENANT + "), " +
+            "function('word_similarity', LOWER(:search), LOWER(p.nombre)))";
+
+    String SEARCH_COUNT = "SELECT COUNT(c) FROM Contrato c JOIN c.inquilino i JOIN c.propiedad p " +
+            "WHERE c.user.id = :userId AND " + SEARCH_MATCH;
+
+    @Query(value = LIST_ITEM + "WHERE c.user.id = :userId AND " + SEARCH_MATCH, countQuery = SEARCH_COUNT)
+    Page<ContratoListItem> searchByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    @Query(value = LIST_ITEM + "WHERE c.user.id = :userId AND " + SEARCH_MATCH + " ORDER BY " + SEARCH_RANK + " DESC",
+           countQuery = SEARCH_COUNT)
+    Page<ContratoListItem> searchRankedByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    // Keyset page ordered by (createdAt DESC, id DESC): seeks past the cursor instead of OFFSET,
+    // served by the (user_id, created_at, id) index. An empty search means no filter.
+    @Query(LIST_ITEM + "WHERE c.user.id = :userId AND (:search = '' OR " + SEARCH_MATCH + ") " +
+           "AND (:estado = '' OR c.estado = :estado) " +
+           "AND (c.createdAt, c.id) < (:afterCreatedAt, :afterId) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<ContratoListItem> findPageAfter(@Param("userId") Long userId,
+                                         @Param("search") String search,
+                                         @Param("estado") String estado,
+                                         @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                         @Param("afterId") Long afterId,
+                                         Limit limit);
+
+    // Date ranges that keep a property busy (ContratoAvailabilityService.isBlocking), for its interval trees.
+    // No auto-flush: a contract being edited must not reach the exclusion constraint before it is checked.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT new com.taskmanager.backend.dto.ContratoInterval(c.id, c.propiedad.id, c.fechaInicio, c.fechaFin, c.estado) " +
+           "FROM Contrato c WHERE c.propiedad.id IN :propiedadIds AND c.estado NOT IN ('finalizado', 'sin_firmar')")
+    List<ContratoInterval> findBlockingIntervals(@Param("propiedadIds") Collection<Long> propiedadIds);
+
+    @Query("SELECT DISTINCT c.propiedad.id FROM Contrato c WHERE c.inquilino.id = :inquilinoId")
+    List<Long> findPropiedadIdsByInquilinoId(@Param("inquilinoId") Long inquilinoId);
+
+    @Query("SELECT c.pdfUrl FROM Contrato c WHERE c.inquilino.id = :inquilinoId AND c.pdfUrl IS NOT NULL")
+    List<String> findPdfUrlsByInquilinoId(@Param("inquilinoId") Long inquilinoId);
+
+    @Query("SELECT c.pdfUrl FROM Contrato c WHERE c.propiedad.id = :propiedadId AND c.pdfUrl IS NOT NULL")
+    List<String> findPdfUrlsByPropiedadId(@Param("propiedadId") Long propiedadId);
+
+    @Query("SELECT DISTINCT c.propiedad.id FROM Contrato c WHERE c.id IN :ids")
+    List<Long> findPropiedadIdsByIds(@Param("ids") List<Long> ids);
+
+    @Query("SELECT c FROM Contrato c WHERE c.inquilino = :inquilino AND c.user.id = :userId " +
            "AND c.estado NOT IN ('finalizado') ORDER BY c.createdAt DESC")
     List<Contrato> findActiveContractsByInquilino(@Param("inquilino") Inquilino inquilino,
-                                                   @Param("user") User user);
+                                                   @Param("userId") Long userId);
+
+    // Lifecycle sweeper: next chunk of signed contracts that crossed a date boundary.
+    // SKIP LOCKED lets several instances sweep at once without touching the same rows.
+    @Query(value = "SELECT c.id FROM contratos c WHERE c.estado IN ('firmado', 'activo', 'por_vencer') " +
+                   "AND c.fecha_fin < :today ORDER BY c.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockVencidos(@Param("today") LocalDate today, @Param("limit") int limit);
+
+    @Query(value = "SELECT c.id FROM contratos c WHERE c.estado IN ('firmado', 'activo') " +
+                   "AND c.fecha_inicio <= :today AND c.fecha_fin >= :today AND c.fecha_fin <= :porVencerDate " +
+                   "ORDER BY c.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockPorVencer(@Param("today") LocalDate today,
+                             @Param("porVencerDate") LocalDate porVencerDate,
+                             @Param("limit") int limit);
+
+    @Query(value = "SELECT c.id FROM contratos c WHERE c.estado IN ('firmado', 'por_vencer') " +
+                   "AND c.fecha_inicio <= :today AND c.fecha_fin > :porVencerDate " +
+                   "ORDER BY c.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockVigentes(@Param("today") LocalDate today,
+                            @Param("porVencerDate") LocalDate porVencerDate,
+                            @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Contrato c SET c.estado = :estado, c.updatedAt = CURRENT_TIMESTAMP WHERE c.id IN :ids")
+    int updateEstadoByIds(@Param("ids") List<Long> ids, @Param("estado") String estado);
 
     @Modifying
     @Transactional
@@ -1,48 +1,121 @@
 package com.taskmanager.backend.repository;
 
+import com.taskmanager.backend.dto.InquilinoListItem;
 import com.taskmanager.backend.model.Inquilino;
-import com.taskmanager.backend.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface InquilinoRepository extends JpaRepository<Inquilino, Long> {
 
-    List<Inquilino> findByUserOrderByCreatedAtDesc(User user);
+    // List reads select only the columns the list pages render, straight into read-only rows
+    String LIST_ITEM = "SELECT new com.taskmanager.backend.dto.InquilinoListItem(" +
+            "i.id, i.nombre, i.apellido, i.email, i.telefono, i.documento, i.avatar, i.avatarThumb, i.direccionContacto, " +
+            "i.documentoIdentidadUrl, i.contratoEstado, i.contratoFin, i.createdAt, " +
+            "p.id, p.nombre, p.direccion, p.ciudad, p.pais, p.rentaMensual, p.estado) " +
+            "FROM Inquilino i LEFT JOIN i.propiedad p ";
 
-    Page<Inquilino> findByUser(User user, Pageable pageable);
+    @Query(LIST_ITEM + "WHERE i.user.id = :userId ORDER BY i.createdAt DESC")
+    List<InquilinoListItem> findListByUser(@Param("userId") Long userId);
 
-    Optional<Inquilino> findByIdAndUser(Long id, User user);
+    // Export: forward-only cursor read in fetch-size batches; must be consumed inside a transaction
+    @Query(LIST_ITEM + "WHERE i.user.id = :userId ORDER BY i.createdAt DESC, i.id DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<InquilinoListItem> streamListByUser(@Param("userId") Long userId);
 
-    boolean existsByIdAndUser(Long id, User user);
+    @Query(value = LIST_ITEM + "WHERE i.user.id = :userId",
+           countQuery = "SELECT COUNT(i) FROM Inquilino i WHERE i.user.id = :userId")
+    Page<InquilinoListItem> findListPageByUser(@Param("userId") Long userId, Pageable pageable);
 
-    Optional<Inquilino> findByEmailAndUser(String email, User user);
+    // Detail reads fetch the associations Jackson serializes in the same select (no N+1)
+    @EntityGraph(attributePaths = "propiedad")
+    Optional<Inquilino> findByIdAndUserId(Long id, Long userId);
 
-    Optional<Inquilino> findByDocumentoAndUser(String documento, User user);
+    boolean existsByIdAndUserId(Long id, Long userId);
 
-    List<Inquilino> findByUserAndContratoEstado(User user, String contratoEstado);
+    Optional<Inquilino> findByEmailAndUserId(String email, Long userId);
+
+    Optional<Inquilino> findByDocumentoAndUserId(String documento, Long userId);
+
+    @EntityGraph(attributePaths = "propiedad")
+    List<Inquilino> findByUserIdAndContratoEstado(Long userId, String contratoEstado);
 
     // Find inquilinos by propiedad ID (for cascade operations)
     List<Inquilino> findByPropiedadId(Long propiedadId);
 
-    @Query("SELECT COUNT(i) FROM Inquilino i WHERE i.user = :user")
-    Long countByUser(@Param("user") User user);
+    @Query("SELECT COUNT(i) FROM Inquilino i WHERE i.user.id = :userId")
+    Long countByUser(@Param("userId") Long userId);
+
+    @Query("SELECT COUNT(i) FROM Inquilino i WHERE i.user.id = :userId AND i.contratoEstado = 'activo'")
+    Long countActiveByUser(@Param("userId") Long userId);
+
+    // Search box: substring match on one lowercased concatenation of the searched columns, the
+    // same expression V7 indexes with gin_trgm_ops on PostgreSQL (keep both in sync). The ranked
+    // variant orders by word_similarity; only used when TrigramSearchSupport allows it.
+    String SEARCH_TEXT = "LOWER(CONCAT(COALESCE(i.nombre, ''), ' ', COALESCE(i.apellido, ''), ' ', " +
+            "COALESCE(i.email, ''), ' ', COALESCE(i.telefono, '')))";
+
+    String SEARCH_MATCH = SEARCH_TEXT + " LIKE LOWER(CONCAT('%', :search, '%'))";
+
+    String SEARCH_RANK = "function('word_similarity', LOWER(:search), " + SEARCH_TEXT + ")";
+
+    String SEARCH_COUNT = "SELECT COUNT(i) FROM Inquilino i WHERE i.user.id = :userId AND " + SEARCH_MATCH;
+
+    @Query(value = LIST_ITEM + "WHERE i.user.id = :userId AND " + SEARCH_MATCH, countQuery = SEARCH_COUNT)
+    Page<InquilinoListItem> searchByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    @Query(value = LIST_ITEM + "WHERE i.user.id = :userId AND " + SEARCH_MATCH + " ORDER BY " + SEARCH_RANK + " DESC",
+           countQuery = SEARCH_COUNT)
+    Page<InquilinoListItem> searchRankedByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    // Keyset page ordered by (createdAt DESC, id DESC): seeks past the cursor instead of OFFSET,
+    // served by the (user_id, created_at, id) index. An empty search means no filter.
+    @Query(LIST_ITEM + "WHERE i.user.id = :userId AND (:search = '' OR " + SEARCH_MATCH + ") " +
+           "AND (i.createdAt, i.id) < (:afterCreatedAt, :afterId) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<InquilinoListItem> findPageAfter(@Param("userId") Long userId,
+                                          @Param("search") String search,
+                                          @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                          @Param("afterId") Long afterId,
+                                          Limit limit);
+
+    @Query(LIST_ITEM + "WHERE i.user.id = :userId AND i.propiedad IS NULL")
+    List<InquilinoListItem> findWithoutPropertyByUser(@Param("userId") Long userId);
 
-    @Query("SELECT COUNT(i) FROM Inquilino i WHERE i.user = :user AND i.contratoEstado = 'activo'")
-    Long countActiveByUser(@Param("user") User user);
+    // Lifecycle sweeper propagation (same mapping as ContratoService.syncInquilinoContratoEstado)
+    @Modifying
+    @Query("UPDATE Inquilino i SET i.contratoEstado = :contratoEstado, i.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE i.id IN (SELECT c.inquilino.id FROM Contrato c WHERE c.id IN :contratoIds)")
+    int updateContratoEstadoByContratos(@Param("contratoIds") List<Long> contratoIds,
+                                        @Param("contratoEstado") String contratoEstado);
 
-    @Query("SELECT i FROM Inquilino i WHERE i.user = :user AND " +
-           "(LOWER(i.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(i.apellido) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(i.email) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(i.telefono) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Inquilino> searchByUser(@Param("user") User user, @Param("search") String search, Pageable pageable);
+    // Finished contracts release the tenant unless another contract is still in progress
+    @Modifying
+    @Query("UPDATE Inquilino i SET i.contratoEstado = 'finalizado', i.propiedad = NULL, " +
+           "i.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE i.id IN (SELECT c.inquilino.id FROM Contrato c WHERE c.id IN :contratoIds) " +
+           "AND NOT EXISTS (SELECT c2.id FROM Contrato c2 WHERE c2.inquilino.id = i.id AND c2.estado <> 'finalizado')")
+    int finalizarByContratos(@Param("contratoIds") List<Long> contratoIds);
 
-    @Query("SELECT i FROM Inquilino i WHERE i.user = :user AND i.propiedad IS NULL")
-    List<Inquilino> findWithoutPropertyByUser(@Param("user") User user);
+    // Set by ImageDerivativeService once the variants are stored, unless the avatar changed meanwhile
+    @Modifying
+    @Transactional
+    @Query("UPDATE Inquilino i SET i.avatarThumb = :thumb, i.avatarMedium = :medium " +
+           "WHERE i.id = :id AND i.avatar = :avatar")
+    int updateAvatarVariants(@Param("id") Long id, @Param("avatar") String avatar,
+                             @Param("thumb") String thumb, @Param("medium") String medium);
 }
@@ -0,0 +1,107 @@
+package com.taskmanager.backend.repository;
+
+import com.taskmanager.backend.dto.DashboardTotals;
+import com.taskmanager.backend.model.PagoMonthlySummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface PagoMonthlySummaryRepository extends JpaRepository<PagoMonthlySummary, Long> {
+
+    // Dashboard figures for a month (and the previous month's income) read from the rollup
+    @Query("SELECT " +
+           "COALESCE(SUM(CASE WHEN s.estado = 'pagado' AND s.anio = :anio AND s.mes = :mes " +
+           "THEN s.montoTotal END), 0) AS ingresosMes, " +
+           "COALESCE(SUM(CASE WHEN s.estado = 'pagado' AND s.anio = :anioAnterior AND s.mes = :mesAnterior " +
+           "THEN s.montoTotal END), 0) AS ingresosMesAnterior, " +
+           "COALESCE(SUM(CASE WHEN s.estado IN ('pendiente', 'atrasado') AND s.anio = :anio AND s.mes = :mes " +
+           "THEN s.montoTotal END), 0) AS rentasPendientes, " +
+           "COALESCE(SUM(CASE WHEN s.estado = 'total' AND s.anio = :anio AND s.mes = :mes " +
+           "THEN s.propiedades END), 0) AS totalPropiedades, " +
+           "COALESCE(SUM(CASE WHEN s.estado = 'total' AND s.anio = :anio AND s.mes = :mes " +
+           "THEN s.inquilinos END), 0) AS inquilinosActivos, " +
+           "COALESCE(SUM(CASE WHEN s.estado = 'atrasado' AND s.anio = :anio AND s.mes = :mes " +
+           "THEN s.inquilinos END), 0) AS morosos " +
+           "FROM PagoMonthlySummary s WHERE s.userId = :userId AND " +
+           "((s.anio = :anio AND s.mes = :mes) OR (s.anio = :anioAnterior AND s.mes = :mesAnterior))")
+    DashboardTotals findDashboardTotals(@Param("userId") Long userId,
+                                        @Param("anio") int anio,
+                                        @Param("mes") int mes,
+                                        @Param("anioAnterior") int anioAnterior,
+                                        @Param("mesAnterior") int mesAnterior);
+
+    @Query("SELECT COALESCE(SUM(s.montoTotal), 0) FROM PagoMonthlySummary s " +
+           "WHERE s.userId = :userId AND s.estado = 'pagado' AND s.anio = :anio AND s.mes = :mes")
+    BigDecimal sumPagadosByUserAndMonth(@Param("userId") Long userId, @Param("anio") int anio, @Param("mes") int mes);
+
+    @Query("SELECT COALESCE(SUM(s.montoTotal), 0) FROM PagoMonthlySummary s " +
+           "WHERE s.userId = :userId AND s.estado IN ('pendiente', 'atrasado')")
+    BigDecimal sumPendientesByUser(@Param("userId") Long userId);
+
+    // Serializes concurrent refreshes of the same user's rollup rows
+    @Query(value = "SELECT id FROM users WHERE id = :userId FOR UPDATE", nativeQuery = true)
+    Long lockUser(@Param("userId") Long userId);
+
+    // The native writes name their table, so Hibernate does not clear every second-level cache region
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pago_monthly_summary"))
+    @Query(value = "DELETE FROM pago_monthly_summary WHERE user_id = :userId AND anio = :anio AND mes = :mes",
+           nativeQuery = true)
+    int deleteMonth(@Param("userId") Long userId, @Param("anio") int anio, @Param("mes") int mes);
+
+    // Recomputes one month from pagos: one row per estado plus the 'total' row
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pago_monthly_summary"))
+    @Query(value = "INSERT INTO pago_monthly_summary " +
+                   "(user_id, anio, mes, estado, monto_total, cantidad, inquilinos, propiedades) " +
+                   "SELECT p.user_id, CAST(:anio AS INTEGER), CAST(:mes AS INTEGER), p.estado, SUM(p.monto), COUNT(*), " +
+                   "COUNT(DISTINCT p.inquilino_id), COUNT(DISTINCT p.propiedad_id) " +
+                   "FROM pagos p WHERE p.user_id = :userId AND (" +
+                   "(p.estado = 'pagado' AND p.fecha_pago >= :monthStart AND p.fecha_pago < :nextMonthStart) OR " +
+                   "(p.estado <> 'pagado' AND p.fecha_vencimiento >= :monthStart AND p.fecha_vencimiento < :nextMonthStart)) " +
+                   "GROUP BY p.user_id, p.estado " +
+                   "UNION ALL " +
+                   "SELECT p.user_id, CAST(:anio AS INTEGER), CAST(:mes AS INTEGER), 'total', SUM(p.monto), COUNT(*), " +
+                   "COUNT(DISTINCT p.inquilino_id), COUNT(DISTINCT p.propiedad_id) " +
+                   "FROM pagos p WHERE p.user_id = :userId " +
+                   "AND p.fecha_vencimiento >= :monthStart AND p.fecha_vencimiento < :nextMonthStart " +
+                   "GROUP BY p.user_id",
+           nativeQuery = true)
+    int insertMonth(@Param("userId") Long userId,
+                    @Param("anio") int anio,
+                    @Param("mes") int mes,
+                    @Param("monthStart") LocalDate monthStart,
+                    @Param("nextMonthStart") LocalDate nextMonthStart);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pago_monthly_summary"))
+    @Query(value = "DELETE FROM pago_monthly_summary", nativeQuery = true)
+    int deleteAllRows();
+
+    // Full backfill over every user and month
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pago_monthly_summary"))
+    @Query(value = "INSERT INTO pago_monthly_summary " +
+                   "(user_id, anio, mes, estado, monto_total, cantidad, inquilinos, propiedades) " +
+                   "SELECT b.user_id, b.anio, b.mes, b.estado, SUM(b.monto), COUNT(*), " +
+                   "COUNT(DISTINCT b.inquilino_id), COUNT(DISTINCT b.propiedad_id) FROM (" +
+                   "SELECT p.user_id, p.estado, p.monto, p.inquilino_id, p.propiedad_id, " +
+                   "EXTRACT(YEAR FROM CASE WHEN p.estado = 'pagado' THEN p.fecha_pago ELSE p.fecha_vencimiento END) AS anio, " +
+                   "EXTRACT(MONTH FROM CASE WHEN p.estado = 'pagado' THEN p.fecha_pago ELSE p.fecha_vencimiento END) AS mes " +
+                   "FROM pagos p WHERE p.user_id IS NOT NULL " +
+                   "AND (CASE WHEN p.estado = 'pagado' THEN p.fecha_pago ELSE p.fecha_vencimiento END) IS NOT NULL " +
+                   "UNION ALL " +
+                   "SELECT p.user_id, 'total', p.monto, p.inquilino_id, p.propiedad_id, " +
+                   "EXTRACT(YEAR FROM p.fecha_vencimiento), EXTRACT(MONTH FROM p.fecha_vencimiento) " +
+                   "FROM pagos p WHERE p.user_id IS NOT NULL AND p.fecha_vencimiento IS NOT NULL" +
+                   ") b GROUP BY b.user_id, b.anio, b.mes, b.estado",
+           nativeQuery = true)
+    int insertAllRows();
+}
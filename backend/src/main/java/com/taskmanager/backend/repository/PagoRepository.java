@@ -1,97 +1,166 @@
 package com.taskmanager.backend.repository;
 
+import com.taskmanager.backend.dto.PagoListItem;
 import com.taskmanager.backend.model.Pago;
-import com.taskmanager.backend.model.User;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.Propiedad;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PagoRepository extends JpaRepository<Pago, Long> {
 
-    List<Pago> findByUserOrderByCreatedAtDesc(User user);
+    // List reads select only the columns the list pages render, straight into read-only rows
+    String LIST_ITEM = "SELECT new com.taskmanager.backend.dto.PagoListItem(" +
+            "p.id, p.monto, p.estado, p.fechaVencimiento, p.fechaPago, p.comprobante, p.createdAt, " +
+            "i.id, i.nombre, i.apellido, i.email, i.avatar, " +
+            "pr.id, pr.nombre, pr.direccion, pr.ciudad, pr.pais, pr.rentaMensual, pr.estado) " +
+            "FROM Pago p JOIN p.inquilino i JOIN p.propiedad pr ";
 
-    Page<Pago> findByUser(User user, Pageable pageable);
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId ORDER BY p.createdAt DESC")
+    List<PagoListItem> findListByUser(@Param("userId") Long userId);
 
-    Optional<Pago> findByIdAndUser(Long id, User user);
+    // Export: forward-only cursor read in fetch-size batches; must be consumed inside a transaction
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId ORDER BY p.createdAt DESC, p.id DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<PagoListItem> streamListByUser(@Param("userId") Long userId);
 
-    boolean existsByIdAndUser(Long id, User user);
+    @Query(value = LIST_ITEM + "WHERE p.user.id = :userId",
+           countQuery = "SELECT COUNT(p) FROM Pago p WHERE p.user.id = :userId")
+    Page<PagoListItem> findListPageByUser(@Param("userId") Long userId, Pageable pageable);
 
-    List<Pago> findByUserAndEstado(User user, String estado);
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId AND p.estado = :estado")
+    List<PagoListItem> findListByUserAndEstado(@Param("userId") Long userId, @Param("estado") String estado);
 
-    List<Pago> findByInquilinoAndUser(Inquilino inquilino, User user);
+    // Detail reads fetch the associations Jackson serializes in the same select (no N+1)
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    Optional<Pago> findByIdAndUserId(Long id, Long userId);
 
-    List<Pago> findByPropiedadAndUser(Propiedad propiedad, User user);
+    boolean existsByIdAndUserId(Long id, Long userId);
 
-    @Query("SELECT COUNT(p) FROM Pago p WHERE p.user = :user")
-    Long countByUser(@Param("user") User user);
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    List<Pago> findByInquilinoAndUserId(Inquilino inquilino, Long userId);
 
-    @Query("SELECT COUNT(p) FROM Pago p WHERE p.user = :user AND p.estado = :estado")
-    Long countByUserAndEstado(@Param("user") User user, @Param("estado") String estado);
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    List<Pago> findByPropiedadAndUserId(Propiedad propiedad, Long userId);
 
-    // Sum of payments in a given month
-    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.user = :user AND p.estado = 'pagado' " +
-           "AND MONTH(p.fechaPago) = :month AND YEAR(p.fechaPago) = :year")
-    BigDecimal sumPagadosByUserAndMonth(@Param("user") User user, @Param("month") int month, @Param("year") int year);
+    @Query("SELECT COUNT(p) FROM Pago p WHERE p.user.id = :userId")
+    Long countByUser(@Param("userId") Long userId);
+
+    @Query("SELECT COUNT(p) FROM Pago p WHERE p.user.id = :userId AND p.estado = :estado")
+    Long countByUserAndEstado(@Param("userId") Long userId, @Param("estado") String estado);
+
+    // Sum of payments in [monthStart, nextMonthStart). Plain ranges keep the (user_id, estado, date) indexes usable
+    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.user.id = :userId AND p.estado = 'pagado' " +
+           "AND p.fechaPago >= :monthStart AND p.fechaPago < :nextMonthStart")
+    BigDecimal sumPagadosByUserAndMonth(@Param("userId") Long userId, @Param("monthStart") LocalDate monthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
 
     // Sum of pending payments
-    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.user = :user AND p.estado IN ('pendiente', 'atrasado')")
-    BigDecimal sumPendientesByUser(@Param("user") User user);
+    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.user.id = :userId AND p.estado IN ('pendiente', 'atrasado')")
+    BigDecimal sumPendientesByUser(@Param("userId") Long userId);
 
-    // Sum of pending payments filtered by month/year
-    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.user = :user AND p.estado IN ('pendiente', 'atrasado') " +
-           "AND MONTH(p.fechaVencimiento) = :month AND YEAR(p.fechaVencimiento) = :year")
-    BigDecimal sumPendientesByUserAndMonth(@Param("user") User user, @Param("month") int month, @Param("year") int year);
+    // Sum of pending payments in [monthStart, nextMonthStart)
+    @Query("SELECT COALESCE(SUM(p.monto), 0) FROM Pago p WHERE p.user.id = :userId AND p.estado IN ('pendiente', 'atrasado') " +
+           "AND p.fechaVencimiento >= :monthStart AND p.fechaVencimiento < :nextMonthStart")
+    BigDecimal sumPendientesByUserAndMonth(@Param("userId") Long userId, @Param("monthStart") LocalDate monthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
 
     // Get overdue payments (morosos)
-    @Query("SELECT p FROM Pago p WHERE p.user = :user AND p.estado = 'atrasado' ORDER BY p.fechaVencimiento ASC")
-    List<Pago> findAtrasadosByUser(@Param("user") User user);
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId AND p.estado = 'atrasado' ORDER BY p.fechaVencimiento ASC")
+    List<PagoListItem> findAtrasadosByUser(@Param("userId") Long userId);
 
-    // Get overdue payments filtered by month/year
-    @Query("SELECT p FROM Pago p WHERE p.user = :user AND p.estado = 'atrasado' " +
-           "AND MONTH(p.fechaVencimiento) = :month AND YEAR(p.fechaVencimiento) = :year ORDER BY p.fechaVencimiento ASC")
-    List<Pago> findAtrasadosByUserAndMonth(@Param("user") User user, @Param("month") int month, @Param("year") int year);
+    // Get overdue payments in [monthStart, nextMonthStart)
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId AND p.estado = 'atrasado' " +
+           "AND p.fechaVencimiento >= :monthStart AND p.fechaVencimiento < :nextMonthStart ORDER BY p.fechaVencimiento ASC")
+    List<PagoListItem> findAtrasadosByUserAndMonth(@Param("userId") Long userId, @Param("monthStart") LocalDate monthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
 
     // Count distinct tenants with overdue payments
-    @Query("SELECT COUNT(DISTINCT p.inquilino) FROM Pago p WHERE p.user = :user AND p.estado = 'atrasado'")
-    Long countMorososByUser(@Param("user") User user);
+    @Query("SELECT COUNT(DISTINCT p.inquilino) FROM Pago p WHERE p.user.id = :userId AND p.estado = 'atrasado'")
+    Long countMorososByUser(@Param("userId") Long userId);
 
-    // Count distinct tenants with overdue payments filtered by month/year
-    @Query("SELECT COUNT(DISTINCT p.inquilino) FROM Pago p WHERE p.user = :user AND p.estado = 'atrasado' " +
-           "AND MONTH(p.fechaVencimiento) = :month AND YEAR(p.fechaVencimiento) = :year")
-    Long countMorososByUserAndMonth(@Param("user") User user, @Param("month") int month, @Param("year") int year);
+    // Count distinct tenants with overdue payments in [monthStart, nextMonthStart)
+    @Query("SELECT COUNT(DISTINCT p.inquilino) FROM Pago p WHERE p.user.id = :userId AND p.estado = 'atrasado' " +
+           "AND p.fechaVencimiento >= :monthStart AND p.fechaVencimiento < :nextMonthStart")
+    Long countMorososByUserAndMonth(@Param("userId") Long userId, @Param("monthStart") LocalDate monthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
 
     // Get payments by date range
-    @Query("SELECT p FROM Pago p WHERE p.user = :user AND p.fechaVencimiento BETWEEN :startDate AND :endDate")
-    List<Pago> findByUserAndDateRange(@Param("user") User user,
+    @Query("SELECT p FROM Pago p WHERE p.user.id = :userId AND p.fechaVencimiento BETWEEN :startDate AND :endDate")
+    @EntityGraph(attributePaths = {"inquilino", "propiedad"})
+    List<Pago> findByUserAndDateRange(@Param("userId") Long userId,
                                        @Param("startDate") LocalDate startDate,
                                        @Param("endDate") LocalDate endDate);
 
-    // Search payments
-    @Query("SELECT p FROM Pago p JOIN p.inquilino i WHERE p.user = :user AND " +
-           "(LOWER(i.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(i.apellido) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Pago> searchByUser(@Param("user") User user, @Param("search") String search, Pageable pageable);
-
-    // Count distinct properties with payments in a given month/year
-    @Query("SELECT COUNT(DISTINCT p.propiedad) FROM Pago p WHERE p.user = :user " +
-           "AND MONTH(p.fechaVencimiento) = :month AND YEAR(p.fechaVencimiento) = :year")
-    Long countDistinctPropiedadesByUserAndMonth(@Param("user") User user, @Param("month") int month, @Param("year") int year);
-
-    // Count distinct tenants with payments in a given month/year
-    @Query("SELECT COUNT(DISTINCT p.inquilino) FROM Pago p WHERE p.user = :user " +
-           "AND MONTH(p.fechaVencimiento) = :month AND YEAR(p.fechaVencimiento) = :year")
-    Long countDistinctInquilinosByUserAndMonth(@Param("user") User user, @Param("month") int month, @Param("year") int year);
+    // Search box: tenant full name, matched through the inquilinos name trigram index (V7)
+    String SEARCH_TEXT = "LOWER(CONCAT(COALESCE(i.nombre, ''), ' ', COALESCE(i.apellido, '')))";
+
+    String SEARCH_MATCH = SEARCH_TEXT + " LIKE LOWER(CONCAT('%', :search, '%'))";
+
+    String SEARCH_RANK = "function('word_similarity', LOWER(:search), " + SEARCH_TEXT + ")";
+
+    String SEARCH_COUNT = "SELECT COUNT(p) FROM Pago p JOIN p.inquilino i WHERE p.user.id = :userId AND " + SEARCH_MATCH;
+
+    @Query(value = LIST_ITEM + "WHERE p.user.id = :userId AND " + SEARCH_MATCH, countQuery = SEARCH_COUNT)
+    Page<PagoListItem> searchByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    @Query(value = LIST_ITEM + "WHERE p.user.id = :userId AND " + SEARCH_MATCH + " ORDER BY " + SEARCH_RANK + " DESC",
+           countQuery = SEARCH_COUNT)
+    Page<PagoListItem> searchRankedByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    // Keyset page ordered by (createdAt DESC, id DESC): seeks past the cursor instead of OFFSET,
+    // served by the (user_id, created_at, id) index. An empty search means no filter.
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId AND (:search = '' OR " + SEARCH_MATCH + ") " +
+           "AND (p.createdAt, p.id) < (:afterCreatedAt, :afterId) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PagoListItem> findPageAfter(@Param("userId") Long userId,
+                                     @Param("search") String search,
+                                     @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                     @Param("afterId") Long afterId,
+                                     Limit limit);
+
+    // Count distinct properties with payments in [monthStart, nextMonthStart)
+    @Query("SELECT COUNT(DISTINCT p.propiedad) FROM Pago p WHERE p.user.id = :userId " +
+           "AND p.fechaVencimiento >= :monthStart AND p.fechaVencimiento < :nextMonthStart")
+    Long countDistinctPropiedadesByUserAndMonth(@Param("userId") Long userId, @Param("monthStart") LocalDate monthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
+
+    // Count distinct tenants with payments in [monthStart, nextMonthStart)
+    @Query("SELECT COUNT(DISTINCT p.inquilino) FROM Pago p WHERE p.user.id = :userId " +
+           "AND p.fechaVencimiento >= :monthStart AND p.fechaVencimiento < :nextMonthStart")
+    Long countDistinctInquilinosByUserAndMonth(@Param("userId") Long userId, @Param("monthStart") LocalDate monthStart, @Param("nextMonthStart") LocalDate nextMonthStart);
+
+    // Payment dates of a tenant's or property's payments, read before a cascade delete
+    @Query("SELECT p.fechaPago, p.fechaVencimiento FROM Pago p WHERE p.inquilino.id = :inquilinoId")
+    List<Object[]> findFechasByInquilinoId(@Param("inquilinoId") Long inquilinoId);
+
+    @Query("SELECT p.fechaPago, p.fechaVencimiento FROM Pago p WHERE p.propiedad.id = :propiedadId")
+    List<Object[]> findFechasByPropiedadId(@Param("propiedadId") Long propiedadId);
+
+    // Next chunk of overdue 'pendiente' payments (id, user_id, fecha_vencimiento). SKIP LOCKED lets
+    // several instances run the estado job at once without touching the same rows.
+    @Query(value = "SELECT p.id, p.user_id, p.fecha_vencimiento FROM pagos p " +
+                   "WHERE p.estado = 'pendiente' AND p.fecha_vencimiento < :today " +
+                   "ORDER BY p.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Object[]> lockOverduePendientes(@Param("today") LocalDate today, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE Pago p SET p.estado = 'atrasado', p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id IN :ids AND p.estado = 'pendiente'")
+    int markAtrasado(@Param("ids") List<Long> ids);
 
     // DELETE methods for cascade deletion
     @Modifying
@@ -1,40 +1,116 @@
 package com.taskmanager.backend.repository;
 
+import com.taskmanager.backend.dto.OcupacionRow;
+import com.taskmanager.backend.dto.PropiedadListItem;
 import com.taskmanager.backend.model.Propiedad;
-import com.taskmanager.backend.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PropiedadRepository extends JpaRepository<Propiedad, Long> {
 
-    List<Propiedad> findByUserOrderByCreatedAtDesc(User user);
+    // List reads select only the columns the list pages render, straight into read-only rows
+    String LIST_ITEM = "SELECT new com.taskmanager.backend.dto.PropiedadListItem(" +
+            "p.id, p.nombre, p.direccion, p.ciudad, p.pais, p.tipo, p.rentaMensual, p.estado, p.imagen, p.imagenThumb, " +
+            "p.createdAt) " +
+            "FROM Propiedad p ";
 
-    Page<Propiedad> findByUser(User user, Pageable pageable);
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId ORDER BY p.createdAt DESC")
+    List<PropiedadListItem> findListByUser(@Param("userId") Long userId);
 
-    Optional<Propiedad> findByIdAndUser(Long id, User user);
+    @Query(value = LIST_ITEM + "WHERE p.user.id = :userId",
+           countQuery = "SELECT COUNT(p) FROM Propiedad p WHERE p.user.id = :userId")
+    Page<PropiedadListItem> findListPageByUser(@Param("userId") Long userId, Pageable pageable);
 
-    boolean existsByIdAndUser(Long id, User user);
+    Optional<Propiedad> findByIdAndUserId(Long id, Long userId);
 
-    List<Propiedad> findByUserAndEstado(User user, String estado);
+    boolean existsByIdAndUserId(Long id, Long userId);
 
-    @Query("SELECT COUNT(p) FROM Propiedad p WHERE p.user = :user")
-    Long countByUser(@Param("user") User user);
+    List<Propiedad> findByUserIdAndEstado(Long userId, String estado);
 
-    @Query("SELECT COUNT(p) FROM Propiedad p WHERE p.user = :user AND p.estado = :estado")
-    Long countByUserAndEstado(@Param("user") User user, @Param("estado") String estado);
+    @Query("SELECT COUNT(p) FROM Propiedad p WHERE p.user.id = :userId")
+    Long countByUser(@Param("userId") Long userId);
 
-    @Query("SELECT p FROM Propiedad p WHERE p.user = :user AND " +
-           "(LOWER(p.nombre) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.direccion) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.ciudad) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Propiedad> searchByUser(@Param("user") User user, @Param("search") String search, Pageable pageable);
+    @Query("SELECT COUNT(p) FROM Propiedad p WHERE p.user.id = :userId AND p.estado = :estado")
+    Long countByUserAndEstado(@Param("userId") Long userId, @Param("estado") String estado);
 
-    @Query("SELECT p FROM Propiedad p WHERE p.user = :user AND p.estado = 'disponible'")
-    List<Propiedad> findDisponiblesByUser(@Param("user") User user);
+    // Search box: nombre, direccion and ciudad as one lowercased string, matching the
+    // expression of the propiedades trigram index in V7
+    String SEARCH_TEXT = "LOWER(CONCAT(COALESCE(p.nombre, ''), ' ', COALESCE(p.direccion, ''), ' ', " +
+            "COALESCE(p.ciudad, '')))";
+
+    String SEARCH_MATCH = SEARCH_TEXT + " LIKE LOWER(CONCAT('%', :search, '%'))";
+
+    String SEARCH_RANK = "function('word_similarity', LOWER(:search), " + SEARCH_TEXT + ")";
+
+    String SEARCH_COUNT = "SELECT COUNT(p) FROM Propiedad p WHERE p.user.id = :userId AND " + SEARCH_MATCH;
+
+    @Query(value = LIST_ITEM + "WHERE p.user.id = :userId AND " + SEARCH_MATCH, countQuery = SEARCH_COUNT)
+    Page<PropiedadListItem> searchByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    @Query(value = LIST_ITEM + "WHERE p.user.id = :userId AND " + SEARCH_MATCH + " ORDER BY " + SEARCH_RANK + " DESC",
+           countQuery = SEARCH_COUNT)
+    Page<PropiedadListItem> searchRankedByUser(@Param("userId") Long userId, @Param("search") String search, Pageable pageable);
+
+    // Keyset page ordered by (createdAt DESC, id DESC): seeks past the cursor instead of OFFSET,
+    // served by the (user_id, created_at, id) index. An empty search means no filter.
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId AND (:search = '' OR " + SEARCH_MATCH + ") " +
+           "AND (p.createdAt, p.id) < (:afterCreatedAt, :afterId) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PropiedadListItem> findPageAfter(@Param("userId") Long userId,
+                                          @Param("search") String search,
+                                          @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                          @Param("afterId") Long afterId,
+                                          Limit limit);
+
+    @Query(LIST_ITEM + "WHERE p.user.id = :userId AND p.estado = 'disponible'")
+    List<PropiedadListItem> findDisponiblesByUser(@Param("userId") Long userId);
+
+    @Query("SELECT p.id FROM Propiedad p WHERE p.user.id = :userId ORDER BY p.id")
+    List<Long> findIdsByUser(@Param("userId") Long userId);
+
+    @Query("SELECT p.id FROM Propiedad p WHERE p.user.id = :userId AND p.id IN :ids")
+    List<Long> findIdsByUserAndIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    // Every property of the user, each with the contracts still in progress touching [from, to];
+    // ordered so PropiedadOcupacionService can sweep one property at a time
+    @Query("SELECT new com.taskmanager.backend.dto.OcupacionRow(p.id, p.nombre, c.fechaInicio, c.fechaFin, c.estado) " +
+           "FROM Propiedad p LEFT JOIN Contrato c ON c.propiedad.id = p.id AND c.estado <> 'finalizado' " +
+           "AND c.fechaInicio <= :to AND c.fechaFin >= :from " +
+           "WHERE p.user.id = :userId ORDER BY p.id")
+    List<OcupacionRow> findOcupacionRows(@Param("userId") Long userId,
+                                         @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to);
+
+    // Lifecycle sweeper propagation (same mapping as ContratoService.updatePropiedadEstado)
+    @Modifying
+    @Query("UPDATE Propiedad p SET p.estado = 'ocupada', p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id IN (SELECT c.propiedad.id FROM Contrato c WHERE c.id IN :contratoIds)")
+    int ocuparByContratos(@Param("contratoIds") List<Long> contratoIds);
+
+    // Finished contracts free the property unless another contract on it is still in progress
+    @Modifying
+    @Query("UPDATE Propiedad p SET p.estado = 'disponible', p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.id IN (SELECT c.propiedad.id FROM Contrato c WHERE c.id IN :contratoIds) " +
+           "AND NOT EXISTS (SELECT c2.id FROM Contrato c2 WHERE c2.propiedad.id = p.id AND c2.estado <> 'finalizado')")
+    int liberarByContratos(@Param("contratoIds") List<Long> contratoIds);
+
+    // Set by ImageDerivativeService once the variants are stored, unless the image changed meanwhile
+    @Modifying
+    @Transactional
+    @Query("UPDATE Propiedad p SET p.imagenThumb = :thumb, p.imagenMedium = :medium " +
+           "WHERE p.id = :id AND p.imagen = :imagen")
+    int updateImagenVariants(@Param("id") Long id, @Param("imagen") String imagen,
+                             @Param("thumb") String thumb, @Param("medium") String medium);
 }
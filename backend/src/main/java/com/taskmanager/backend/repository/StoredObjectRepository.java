@@ -0,0 +1,82 @@
+package com.taskmanager.backend.repository;
+
+import com.taskmanager.backend.model.StoredObject;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+
+    // A plain insert (save would merge into a row inserted concurrently for the same content).
+    // Names its table so Hibernate does not clear every second-level cache region
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "stored_objects"))
+    @Query(value = "INSERT INTO stored_objects (sha256, path, size, content_type, ref_count, created_at, referenced_at) " +
+                   "VALUES (:sha256, :path, :size, :contentType, 1, :createdAt, :createdAt)",
+           nativeQuery = true)
+    int insertObject(@Param("sha256") String sha256,
+                     @Param("path") String path,
+                     @Param("size") long size,
+                     @Param("contentType") String contentType,
+                     @Param("createdAt") LocalDateTime createdAt);
+
+    // Only while the object is still referenced: a row at zero is about to be deleted
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount + 1, o.referencedAt = :now " +
+           "WHERE o.sha256 = :sha256 AND o.size = :size AND o.refCount > 0")
+    int addReference(@Param("sha256") String sha256, @Param("size") long size, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount - 1 WHERE o.path = :path AND o.refCount > 0")
+    int removeReference(@Param("path") String path);
+
+    // Never the last reference: for an upload that resolved to an object its entity already held
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount - 1 WHERE o.path = :path AND o.refCount > 1")
+    int removeDuplicateReference(@Param("path") String path);
+
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.path = :path AND o.refCount <= 0")
+    int deleteUnreferenced(@Param("path") String path);
+
+    // Storage garbage collection: every column holding the URL of a stored file
+    String REFERENCED_URLS = "SELECT imagen AS url FROM propiedades " +
+            "UNION ALL SELECT imagen_thumb FROM propiedades " +
+            "UNION ALL SELECT imagen_medium FROM propiedades " +
+            "UNION ALL SELECT avatar FROM inquilinos " +
+            "UNION ALL SELECT avatar_thumb FROM inquilinos " +
+            "UNION ALL SELECT avatar_medium FROM inquilinos " +
+            "UNION ALL SELECT documento_identidad_url FROM inquilinos " +
+            "UNION ALL SELECT avatar FROM users " +
+            "UNION ALL SELECT avatar_thumb FROM users " +
+            "UNION ALL SELECT avatar_medium FROM users " +
+            "UNION ALL SELECT pdf_url FROM contratos " +
+            "UNION ALL SELECT comprobante FROM pagos " +
+            "UNION ALL SELECT factura_url FROM billing_history";
+
+    // The next page of distinct URLs under base after the given one, in byte order (the order object
+    // paths are listed in); keyset paging, so no cursor is held between pages. PostgreSQL only
+    @Query(value = "SELECT r.url FROM (" + REFERENCED_URLS + ") r " +
+                   "WHERE left(r.url, length(:base)) = :base AND r.url > :after COLLATE \"C\" " +
+                   "GROUP BY r.url ORDER BY r.url COLLATE \"C\" LIMIT :limit",
+           nativeQuery = true)
+    List<String> findReferencedUrlsAfter(@Param("base") String base, @Param("after") String after, @Param("limit") int limit);
+
+    @Query(value = "SELECT DISTINCT r.url FROM (" + REFERENCED_URLS + ") r WHERE r.url IN (:urls)", nativeQuery = true)
+    List<String> findReferencedUrls(@Param("urls") Collection<String> urls);
+
+    @Modifying
+    @Query("DELETE FROM StoredObject o WHERE o.path IN :paths AND o.referencedAt < :cutoff")
+    int deleteNotReferencedSince(@Param("paths") Collection<String> paths, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT o.path FROM StoredObject o WHERE o.path IN :paths")
+    List<String> findPathsIn(@Param("paths") Collection<String> paths);
+}
@@ -1,7 +1,6 @@
 package com.taskmanager.backend.repository;
 
 import com.taskmanager.backend.model.Task;
-import com.taskmanager.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
@@ -9,9 +8,9 @@ import java.util.Optional;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
     
-    List<Task> findByUserOrderByIdDesc(User user);
+    List<Task> findByUserIdOrderByIdDesc(Long userId);
     
-    Optional<Task> findByIdAndUser(Long id, User user);
+    Optional<Task> findByIdAndUserId(Long id, Long userId);
     
-    boolean existsByIdAndUser(Long id, User user);
+    boolean existsByIdAndUserId(Long id, Long userId);
 }
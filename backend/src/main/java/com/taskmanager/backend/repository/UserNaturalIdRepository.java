@@ -0,0 +1,14 @@
+package com.taskmanager.backend.repository;
+
+import com.taskmanager.backend.model.User;
+
+import java.util.Optional;
+
+/**
+ * Lookups by User's natural id, which are answered from the second-level
+ * cache when the user was loaded before.
+ */
+public interface UserNaturalIdRepository {
+
+    Optional<User> findByEmail(String email);
+}
@@ -2,12 +2,21 @@ package com.taskmanager.backend.repository;
 
 import com.taskmanager.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    
-    Optional<User> findByEmail(String email);
-    
     Boolean existsByEmail(String email);
+
+    // Set by ImageDerivativeService once the variants are stored, unless the avatar changed meanwhile.
+    // As a bulk update it evicts the whole users cache region
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.avatarThumb = :thumb, u.avatarMedium = :medium " +
+           "WHERE u.id = :id AND u.avatar = :avatar")
+    int updateAvatarVariants(@Param("id") Long id, @Param("avatar") String avatar,
+                             @Param("thumb") String thumb, @Param("medium") String medium);
 }
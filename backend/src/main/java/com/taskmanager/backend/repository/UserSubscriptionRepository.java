@@ -1,11 +1,16 @@
 package com.taskmanager.backend.repository;
 
-import com.taskmanager.backend.model.User;
 import com.taskmanager.backend.model.UserSubscription;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
 
 public interface UserSubscriptionRepository extends JpaRepository<UserSubscription, Long> {
-    Optional<UserSubscription> findByUser(User user);
+
+    // Cached result, dropped by Hibernate on any write to the table
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<UserSubscription> findByUserId(Long userId);
 }
@@ -0,0 +1,42 @@
+package com.taskmanager.backend.scheduler;
+
+import com.taskmanager.backend.config.CaffeineRegionFactory;
+import com.taskmanager.backend.security.VerifiedTokenCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs the counters of the verified token cache and of every second-level
+ * cache region, cumulative since startup, in a fixed format meant to be
+ * scraped from the logs.
+ */
+@Component
+public class CacheStatsScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheStatsScheduler.class);
+
+    private final VerifiedTokenCache tokenCache;
+    private final CaffeineRegionFactory regionFactory;
+
+    public CacheStatsScheduler(VerifiedTokenCache tokenCache, CaffeineRegionFactory regionFactory) {
+        this.tokenCache = tokenCache;
+        this.regionFactory = regionFactory;
+    }
+
+    @Scheduled(cron = "${cache.stats-cron:0 */15 * * * *}")
+    public void run() {
+        log("jwt-tokens", tokenCache.size(), tokenCache.puts(), tokenCache.stats());
+        for (CaffeineRegionFactory.RegionStats region : regionFactory.stats()) {
+            log(region.region(), region.size(), region.puts(), region.stats());
+        }
+    }
+
+    private static void log(String cache, long size, long puts, CacheStats stats) {
+        logger.info("Cache stats cache={} size={} hits={} misses={} hitRate={} puts={} evictions={}",
+                cache, size, stats.hitCount(), stats.missCount(), String.format("%.3f", stats.hitRate()),
+                puts, stats.evictionCount());
+    }
+}
@@ -0,0 +1,52 @@
+package com.taskmanager.backend.scheduler;
+
+import com.taskmanager.backend.service.ContratoLifecycleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.function.BiFunction;
+
+/**
+ * Daily sweep that moves signed contracts across the activo / por_vencer /
+ * finalizado date boundaries and propagates the change to tenants and
+ * properties. Chunks commit independently and skip rows locked by another
+ * instance.
+ */
+@Component
+public class ContratoLifecycleScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContratoLifecycleScheduler.class);
+
+    private final ContratoLifecycleService lifecycleService;
+    private final int chunkSize;
+
+    public ContratoLifecycleScheduler(ContratoLifecycleService lifecycleService,
+                                      @Value("${contratos.lifecycle-job.chunk-size:500}") int chunkSize) {
+        this.lifecycleService = lifecycleService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(cron = "${contratos.lifecycle-job.cron:0 10 0 * * *}")
+    public void run() {
+        LocalDate today = LocalDate.now();
+        int finalizados = sweep(lifecycleService::finalizarVencidosChunk, today);
+        int porVencer = sweep(lifecycleService::marcarPorVencerChunk, today);
+        int activos = sweep(lifecycleService::activarChunk, today);
+        logger.info("Contratos lifecycle job: {} finalizados, {} por vencer, {} activos",
+                finalizados, porVencer, activos);
+    }
+
+    private int sweep(BiFunction<LocalDate, Integer, Integer> chunk, LocalDate today) {
+        int total = 0;
+        int moved;
+        do {
+            moved = chunk.apply(today, chunkSize);
+            total += moved;
+        } while (moved == chunkSize);
+        return total;
+    }
+}
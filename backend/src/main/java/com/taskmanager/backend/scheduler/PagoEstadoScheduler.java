@@ -0,0 +1,49 @@
+package com.taskmanager.backend.scheduler;
+
+import com.taskmanager.backend.service.PagoEstadoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Periodically moves overdue 'pendiente' payments to 'atrasado' in chunks.
+ * Every chunk commits on its own, and rows locked by another instance are
+ * skipped, so several instances can run it at the same time.
+ */
+@Component
+public class PagoEstadoScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PagoEstadoScheduler.class);
+
+    private final PagoEstadoService pagoEstadoService;
+    private final int chunkSize;
+
+    public PagoEstadoScheduler(PagoEstadoService pagoEstadoService,
+                               @Value("${pagos.estado-job.chunk-size:500}") int chunkSize) {
+        this.pagoEstadoService = pagoEstadoService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(cron = "${pagos.estado-job.cron:0 5 * * * *}")
+    public void run() {
+        int moved = moveOverduePagos(LocalDate.now());
+        logger.info("Pagos estado job: {} pagos moved from pendiente to atrasado", moved);
+    }
+
+    /**
+     * @return The total number of payments moved in this run
+     */
+    public int moveOverduePagos(LocalDate today) {
+        int total = 0;
+        int moved;
+        do {
+            moved = pagoEstadoService.moveOverdueChunk(today, chunkSize);
+            total += moved;
+        } while (moved == chunkSize);
+        return total;
+    }
+}
@@ -0,0 +1,72 @@
+package com.taskmanager.backend.scheduler;
+
+import com.taskmanager.backend.service.StorageBackend;
+import com.taskmanager.backend.service.StorageGarbageCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Nightly reconciliation of the storage bucket with the database: objects
+ * older than the grace period that no entity refers to are deleted in
+ * batches, up to max-deletes per run. Safe to run on several instances at
+ * once, as every batch is checked again right before it is deleted.
+ */
+@Component
+public class StorageGcScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageGcScheduler.class);
+
+    private final StorageGarbageCollector collector;
+    private final Duration grace;
+    private final int maxDeletes;
+    private final int batchSize;
+
+    public StorageGcScheduler(StorageGarbageCollector collector,
+                              @Value("${storage.gc.grace-hours:24}") long graceHours,
+                              @Value("${storage.gc.max-deletes:10000}") int maxDeletes,
+                              @Value("${storage.gc.batch-size:500}") int batchSize) {
+        this.collector = collector;
+        this.grace = Duration.ofHours(graceHours);
+        this.maxDeletes = Math.max(1, maxDeletes);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Scheduled(cron = "${storage.gc.cron:0 30 3 * * *}")
+    public void run() {
+        collect(Instant.now());
+    }
+
+    /**
+     * @return The bytes reclaimed in this run
+     */
+    public long collect(Instant now) {
+        Instant cutoff = now.minus(grace);
+        StorageGarbageCollector.Scan scan = collector.findUnreferenced(cutoff, maxDeletes);
+        List<StorageBackend.ListedObject> unreferenced = scan.unreferenced();
+
+        int deleted = 0;
+        long reclaimed = 0;
+        for (int from = 0; from < unreferenced.size(); from += batchSize) {
+            List<StorageBackend.ListedObject> batch = unreferenced.subList(from, Math.min(from + batchSize, unreferenced.size()));
+            try {
+                for (StorageBackend.ListedObject object : collector.delete(batch, cutoff)) {
+                    deleted++;
+                    reclaimed += object.size();
+                }
+            } catch (RuntimeException e) {
+                // Left for the next run
+                logger.warn("Storage GC: could not delete a batch of {} objects: {}", batch.size(), e.getMessage());
+            }
+        }
+        logger.info("Storage GC: {} objects listed, {} referenced, {} unreferenced, {} deleted, {} bytes reclaimed",
+                scan.listed(), scan.referenced(), unreferenced.size(), deleted, reclaimed);
+        return reclaimed;
+    }
+}
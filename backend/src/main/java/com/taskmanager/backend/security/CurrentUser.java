@@ -0,0 +1,18 @@
+package com.taskmanager.backend.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the authenticated user into a handler parameter.
+ * Supported types are {@link AuthenticatedUser} and the {@code User} entity
+ * (an id-only reference that is not loaded unless one of its fields is read).
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
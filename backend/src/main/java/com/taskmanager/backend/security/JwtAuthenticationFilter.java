@@ -9,7 +9,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -28,18 +27,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            
-            if (jwt != null && jwtService.validateToken(jwt)) {
-                String email = jwtService.extractEmail(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+
+            if (jwt != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Repeat tokens are answered from the cache without verification or database access
+                AuthenticatedUser userDetails = tokenCache.get(jwt);
+
+                if (userDetails == null) {
+                    // Signature and expiration are checked once; everything below reads the verified claims
+                    VerifiedToken token = jwtService.verify(jwt);
+
+                    if (token != null && !tokenCache.isRevoked(token)) {
+                        // Tokens carry the user id; only older tokens without it need a lookup
+                        if (token.getUserId() != null) {
+                            userDetails = new AuthenticatedUser(token.getUserId(), token.getEmail(), token.getName());
+                        } else {
+                            AuthenticatedUser loaded = userDetailsService.loadUserByUsername(token.getEmail());
+                            // The cached principal must not keep the password hash
+                            userDetails = new AuthenticatedUser(loaded.getId(), loaded.getEmail(), loaded.getName());
+                        }
+                        tokenCache.put(jwt, token, userDetails);
+                    }
+                }
+
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
                                     userDetails,
@@ -0,0 +1,47 @@
+package com.taskmanager.backend.security;
+
+import java.time.Instant;
+
+/**
+ * Immutable result of verifying a JWT once: the signature and expiration
+ * have already been checked, so callers can trust these values directly.
+ */
+public final class VerifiedToken {
+
+    private final Long userId;
+    private final String email;
+    private final String name;
+    private final Instant issuedAt;
+    private final Instant expiration;
+
+    public VerifiedToken(Long userId, String email, String name, Instant issuedAt, Instant expiration) {
+        this.userId = userId;
+        this.email = email;
+        this.name = name;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    /**
+     * @return The user id claim, or null for tokens issued before it was added
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+}
@@ -0,0 +1,172 @@
+package com.taskmanager.backend.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of already verified tokens, keyed by a SHA-256 digest of the
+ * token so the raw bearer value is never kept in memory. Entries expire at
+ * the token's own expiration.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final Cache<String, Entry> cache;
+    private final LongAdder puts = new LongAdder();
+    private final long maxTokenLifetimeMillis;
+
+    // Users whose outstanding tokens were revoked: tokens issued before this instant are rejected
+    private final Map<Long, Instant> revokedBefore = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") long maxSize,
+                              @Value("${jwt.expiration}") long jwtExpiration) {
+        this.maxTokenLifetimeMillis = jwtExpiration;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.nanosUntilExpiration();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.nanosUntilExpiration();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return The cached principal for this token, or null if it has to be verified
+     * (including when it was revoked after being cached)
+     */
+    public AuthenticatedUser get(String token) {
+        String key = digest(token);
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isRevoked(entry.principal.getId(), entry.issuedAt)) {
+            cache.invalidate(key);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    public void put(String token, VerifiedToken verified, AuthenticatedUser principal) {
+        Instant expiration = verified.getExpiration() != null
+                ? verified.getExpiration()
+                : Instant.now().plusMillis(maxTokenLifetimeMillis);
+        cache.put(digest(token), new Entry(principal, verified.getIssuedAt(), expiration));
+        puts.increment();
+    }
+
+    /**
+     * Checks whether the token was issued before its user's tokens were revoked.
+     */
+    public boolean isRevoked(VerifiedToken verified) {
+        return isRevoked(verified.getUserId(), verified.getIssuedAt());
+    }
+
+    private boolean isRevoked(Long userId, Instant issuedAt) {
+        if (userId == null) {
+            return false;
+        }
+        Instant cutoff = revokedBefore.get(userId);
+        return cutoff != null && (issuedAt == null || issuedAt.isBefore(cutoff));
+    }
+
+    /**
+     * Rejects the user's tokens issued before the current second, which is as
+     * fine as a token's issue time goes, so a token issued right after (the
+     * one returned by a password change) is accepted. Used when the
+     * credentials change.
+     */
+    public void revokeEarlierTokens(Long userId) {
+        revoke(userId, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * Rejects every token of the user issued until now. Used when the account no longer exists.
+     */
+    public void revokeUser(Long userId) {
+        revoke(userId, Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+    }
+
+    private void revoke(Long userId, Instant cutoff) {
+        if (userId == null) {
+            return;
+        }
+        // Once every token issued before a cutoff has expired the entry is no longer needed
+        Instant oldestRelevant = Instant.now().minusMillis(maxTokenLifetimeMillis);
+        revokedBefore.values().removeIf(before -> before.isBefore(oldestRelevant));
+        revokedBefore.merge(userId, cutoff, (current, next) -> next.isAfter(current) ? next : current);
+        // Cache hits are checked too; dropping the user's entries just frees them early
+        cache.asMap().values().removeIf(entry -> userId.equals(entry.principal.getId()));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // Caffeine only counts loads, not explicit puts
+    public long puts() {
+        return puts.sum();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static String digest(String token) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static final class Entry {
+        private final AuthenticatedUser principal;
+        private final Instant issuedAt;
+        private final Instant expiration;
+
+        private Entry(AuthenticatedUser principal, Instant issuedAt, Instant expiration) {
+            this.principal = principal;
+            this.issuedAt = issuedAt;
+            this.expiration = expiration;
+        }
+
+        private long nanosUntilExpiration() {
+            return Math.max(0, Duration.between(Instant.now(), expiration).toNanos());
+        }
+    }
+}
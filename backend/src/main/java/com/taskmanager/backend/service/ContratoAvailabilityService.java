@@ -0,0 +1,193 @@
+package com.taskmanager.backend.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.taskmanager.backend.dto.ContratoInterval;
+import com.taskmanager.backend.dto.PropiedadDisponibilidad;
+import com.taskmanager.backend.model.Contrato;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.ContratoRepository;
+import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Overlap checks for contracts, answered from an interval tree per property
+ * holding the date ranges of its blocking contracts. Trees are loaded on first
+ * use (one query for all the properties asked for) and kept current by
+ * ContratoService once its transaction commits. They expire after a few minutes
+ * so writes made by other instances are eventually seen; the exclusion
+ * constraint on contratos (PostgreSQL, V8) is what guarantees correctness.
+ */
+@Service
+public class ContratoAvailabilityService {
+
+    public static final String OVERLAP_MESSAGE = "Ya existe un contrato activo para esta propiedad en las fechas especificadas";
+
+    private static final String EXCLUSION_CONSTRAINT = "ex_contratos_propiedad_periodo";
+
+    private final ContratoRepository contratoRepository;
+    private final PropiedadRepository propiedadRepository;
+    private final LoadingCache<Long, ContratoIntervalTree> trees;
+
+    public ContratoAvailabilityService(ContratoRepository contratoRepository,
+                                       PropiedadRepository propiedadRepository,
+                                       @Value("${contratos.interval-index.max-properties:20000}") long maxProperties,
+                                       @Value("${contratos.interval-index.ttl-minutes:10}") long ttlMinutes) {
+        this.contratoRepository = contratoRepository;
+        this.propiedadRepository = propiedadRepository;
+        this.trees = Caffeine.newBuilder()
+                .maximumSize(maxProperties)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public ContratoIntervalTree load(Long propiedadId) {
+                        return loadTrees(Set.of(propiedadId)).get(propiedadId);
+                    }
+
+                    @Override
+                    public Map<Long, ContratoIntervalTree> loadAll(Set<? extends Long> propiedadIds) {
+                        return loadTrees(propiedadIds);
+                    }
+                });
+    }
+
+    /**
+     * Contracts in every estado but sin_firmar and finalizado keep their
+     * property busy over [fechaInicio, fechaFin].
+     */
+    public static boolean isBlocking(String estado) {
+        return !"finalizado".equals(estado) && !"sin_firmar".equals(estado);
+    }
+
+    /**
+     * Whether a failed write hit the exclusion constraint, i.e. another
+     * transaction booked the same dates after our in-memory check.
+     */
+    public static boolean isOverlapViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.contains(EXCLUSION_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void validateFechas(LocalDate fechaInicio, LocalDate fechaFin) {
+        if (fechaInicio == null || fechaFin == null) {
+            throw new RuntimeException("Las fechas de inicio y fin son obligatorias");
+        }
+        if (fechaFin.isBefore(fechaInicio)) {
+            throw new RuntimeException("La fecha de fin no puede ser anterior a la fecha de inicio");
+        }
+    }
+
+    /**
+     * @param excludedContratoId The contract being changed (or null for a new one)
+     */
+    public void checkDisponible(Long propiedadId, LocalDate fechaInicio, LocalDate fechaFin, Long excludedContratoId) {
+        if (!trees.get(propiedadId).overlapping(fechaInicio, fechaFin, excludedContratoId).isEmpty()) {
+            throw new RuntimeException(OVERLAP_MESSAGE);
+        }
+    }
+
+    /**
+     * Availability of several of the user's properties over [fechaInicio, fechaFin],
+     * in the order given; all of them when propiedadIds is empty.
+     */
+    @Transactional(readOnly = true)
+    public List<PropiedadDisponibilidad> getDisponibilidad(User user, List<Long> propiedadIds,
+                                                           LocalDate fechaInicio, LocalDate fechaFin) {
+        validateFechas(fechaInicio, fechaFin);
+
+        Collection<Long> ids;
+        if (propiedadIds == null || propiedadIds.isEmpty()) {
+            ids = propiedadRepository.findIdsByUser(user.getId());
+        } else {
+            ids = new LinkedHashSet<>(propiedadIds);
+            Set<Long> owned = new HashSet<>(propiedadRepository.findIdsByUserAndIdIn(user.getId(), ids));
+            for (Long id : ids) {
+                if (!owned.contains(id)) {
+                    throw new RuntimeException("Propiedad no encontrada con id: " + id);
+                }
+            }
+        }
+
+        Map<Long, ContratoIntervalTree> loaded = trees.getAll(ids);
+        List<PropiedadDisponibilidad> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            List<ContratoInterval> conflictos = loaded.get(id).overlapping(fechaInicio, fechaFin, null);
+            result.add(new PropiedadDisponibilidad(id, conflictos.isEmpty(), conflictos));
+        }
+        return result;
+    }
+
+    /**
+     * Records the contract's current dates and estado once the transaction commits.
+     *
+     * @param previousPropiedadId The property the contract was on before this change, if it moved
+     */
+    public void contratoSaved(Contrato contrato, Long previousPropiedadId) {
+        ContratoInterval interval = new ContratoInterval(contrato.getId(), contrato.getPropiedad().getId(),
+                contrato.getFechaInicio(), contrato.getFechaFin(), contrato.getEstado());
+        AfterCommit.run(() -> {
+            if (previousPropiedadId != null && !previousPropiedadId.equals(interval.propiedadId())) {
+                change(previousPropiedadId, tree -> tree.remove(interval.contratoId()));
+            }
+            change(interval.propiedadId(), tree -> {
+                if (isBlocking(interval.estado())) {
+                    tree.add(interval);
+                } else {
+                    tree.remove(interval.contratoId());
+                }
+            });
+        });
+    }
+
+    public void contratoDeleted(Long propiedadId, Long contratoId) {
+        AfterCommit.run(() -> change(propiedadId, tree -> tree.remove(contratoId)));
+    }
+
+    /**
+     * Drops the trees of properties whose contracts were changed in bulk; they
+     * are reloaded on next use.
+     */
+    public void propiedadesChanged(Collection<Long> propiedadIds) {
+        List<Long> ids = List.copyOf(propiedadIds);
+        AfterCommit.run(() -> trees.invalidateAll(ids));
+    }
+
+    private void change(Long propiedadId, Consumer<ContratoIntervalTree> update) {
+        trees.asMap().computeIfPresent(propiedadId, (id, tree) -> {
+            update.accept(tree);
+            return tree;
+        });
+    }
+
+    private Map<Long, ContratoIntervalTree> loadTrees(Set<? extends Long> propiedadIds) {
+        Map<Long, ContratoIntervalTree> loaded = new HashMap<>();
+        for (Long id : propiedadIds) {
+            loaded.put(id, new ContratoIntervalTree());
+        }
+        for (ContratoInterval interval : contratoRepository.findBlockingIntervals(List.copyOf(propiedadIds))) {
+            loaded.get(interval.propiedadId()).add(interval);
+        }
+        return loaded;
+    }
+}
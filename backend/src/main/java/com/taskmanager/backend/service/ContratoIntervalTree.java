@@ -0,0 +1,149 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.dto.ContratoInterval;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Date ranges of the contracts that keep one property busy: a treap ordered by
+ * start date and augmented with the latest end date of each subtree, so an
+ * overlap check walks O(log n) nodes plus one per overlap it reports.
+ */
+final class ContratoIntervalTree {
+
+    private final Map<Long, ContratoInterval> byContrato = new HashMap<>();
+    private Node root;
+
+    synchronized void add(ContratoInterval interval) {
+        remove(interval.contratoId());
+        root = insert(root, new Node(interval));
+        byContrato.put(interval.contratoId(), interval);
+    }
+
+    synchronized void remove(Long contratoId) {
+        ContratoInterval interval = byContrato.remove(contratoId);
+        if (interval != null) {
+            root = delete(root, interval);
+        }
+    }
+
+    /**
+     * @param excludedContratoId The contract being changed, which cannot conflict with itself (or null)
+     * @return The intervals overlapping [inicio, fin], both ends included
+     */
+    synchronized List<ContratoInterval> overlapping(LocalDate inicio, LocalDate fin, Long excludedContratoId) {
+        List<ContratoInterval> result = new ArrayList<>();
+        collect(root, inicio, fin, excludedContratoId, result);
+        return result;
+    }
+
+    synchronized int size() {
+        return byContrato.size();
+    }
+
+    private static void collect(Node node, LocalDate inicio, LocalDate fin, Long excluded, List<ContratoInterval> result) {
+        // Nothing in this subtree ends on or after inicio
+        if (node == null || node.maxFin.isBefore(inicio)) {
+            return;
+        }
+        collect(node.left, inicio, fin, excluded, result);
+        // This node and its right subtree start after fin
+        if (node.interval.fechaInicio().isAfter(fin)) {
+            return;
+        }
+        if (node.interval.overlaps(inicio, fin) && !node.interval.contratoId().equals(excluded)) {
+            result.add(node.interval);
+        }
+        collect(node.right, inicio, fin, excluded, result);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.interval, node.interval) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        return node.update();
+    }
+
+    private static Node delete(Node node, ContratoInterval interval) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(interval, node.interval);
+        if (order < 0) {
+            node.left = delete(node.left, interval);
+        } else if (order > 0) {
+            node.right = delete(node.right, interval);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        } else if (node.left.priority > node.right.priority) {
+            node = rotateRight(node);
+            node.right = delete(node.right, interval);
+        } else {
+            node = rotateLeft(node);
+            node.left = delete(node.left, interval);
+        }
+        return node.update();
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node.update();
+        return pivot.update();
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node.update();
+        return pivot.update();
+    }
+
+    private static int compare(ContratoInterval a, ContratoInterval b) {
+        int order = a.fechaInicio().compareTo(b.fechaInicio());
+        return order != 0 ? order : a.contratoId().compareTo(b.contratoId());
+    }
+
+    private static final class Node {
+
+        private final ContratoInterval interval;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private LocalDate maxFin;
+
+        private Node(ContratoInterval interval) {
+            this.interval = interval;
+            this.maxFin = interval.fechaFin();
+        }
+
+        private Node update() {
+            maxFin = interval.fechaFin();
+            if (left != null && left.maxFin.isAfter(maxFin)) {
+                maxFin = left.maxFin;
+            }
+            if (right != null && right.maxFin.isAfter(maxFin)) {
+                maxFin = right.maxFin;
+            }
+            return this;
+        }
+    }
+}
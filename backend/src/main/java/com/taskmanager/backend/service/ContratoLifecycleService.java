@@ -0,0 +1,87 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.model.Contrato;
+import com.taskmanager.backend.repository.ContratoRepository;
+import com.taskmanager.backend.repository.InquilinoRepository;
+import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Set-based version of Contrato.updateEstado() for signed contracts. Each chunk
+ * moves the contracts and updates their tenants and properties in one
+ * transaction, without loading entities.
+ */
+@Service
+@Transactional
+public class ContratoLifecycleService {
+
+    private final ContratoRepository contratoRepository;
+    private final InquilinoRepository inquilinoRepository;
+    private final PropiedadRepository propiedadRepository;
+    private final ContratoAvailabilityService availability;
+    private final PropiedadOcupacionService ocupacion;
+
+    public ContratoLifecycleService(ContratoRepository contratoRepository,
+                                    InquilinoRepository inquilinoRepository,
+                                    PropiedadRepository propiedadRepository,
+                                    ContratoAvailabilityService availability,
+                                    PropiedadOcupacionService ocupacion) {
+        this.contratoRepository = contratoRepository;
+        this.inquilinoRepository = inquilinoRepository;
+        this.propiedadRepository = propiedadRepository;
+        this.availability = availability;
+        this.ocupacion = ocupacion;
+    }
+
+    /**
+     * Contracts whose fecha_fin has passed become 'finalizado'. Tenant and property
+     * are released unless they still have another contract in progress.
+     * @return The number of contracts moved
+     */
+    public int finalizarVencidosChunk(LocalDate today, int chunkSize) {
+        List<Long> ids = contratoRepository.lockVencidos(today, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        contratoRepository.updateEstadoByIds(ids, "finalizado");
+        inquilinoRepository.finalizarByContratos(ids);
+        propiedadRepository.liberarByContratos(ids);
+        availability.propiedadesChanged(contratoRepository.findPropiedadIdsByIds(ids));
+        ocupacion.invalidateAll();
+        return ids.size();
+    }
+
+    /**
+     * Started contracts ending within DAYS_THRESHOLD_POR_VENCER days become 'por_vencer'.
+     */
+    public int marcarPorVencerChunk(LocalDate today, int chunkSize) {
+        List<Long> ids = contratoRepository.lockPorVencer(today, porVencerDate(today), chunkSize);
+        return moveVigentes(ids, "por_vencer");
+    }
+
+    /**
+     * Started contracts ending later than the threshold become (or stay) 'activo'.
+     */
+    public int activarChunk(LocalDate today, int chunkSize) {
+        List<Long> ids = contratoRepository.lockVigentes(today, porVencerDate(today), chunkSize);
+        return moveVigentes(ids, "activo");
+    }
+
+    private int moveVigentes(List<Long> ids, String estado) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        contratoRepository.updateEstadoByIds(ids, estado);
+        inquilinoRepository.updateContratoEstadoByContratos(ids, "activo");
+        propiedadRepository.ocuparByContratos(ids);
+        return ids.size();
+    }
+
+    private static LocalDate porVencerDate(LocalDate today) {
+        return today.plusDays(Contrato.DAYS_THRESHOLD_POR_VENCER);
+    }
+}
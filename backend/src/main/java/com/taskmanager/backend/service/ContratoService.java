@@ -1,5 +1,10 @@
 package com.taskmanager.backend.service;
 
+import com.taskmanager.backend.config.TrigramSearchSupport;
+import com.taskmanager.backend.dto.ContratoListItem;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.PageCursor;
+import com.taskmanager.backend.dto.SearchHit;
 import com.taskmanager.backend.model.Contrato;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.Propiedad;
@@ -7,6 +12,8 @@ import com.taskmanager.backend.model.User;
 import com.taskmanager.backend.repository.ContratoRepository;
 import com.taskmanager.backend.repository.InquilinoRepository;
 import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -23,48 +30,69 @@ public class ContratoService {
     private final ContratoRepository repository;
     private final InquilinoRepository inquilinoRepository;
     private final PropiedadRepository propiedadRepository;
+    private final TrigramSearchSupport trigramSearch;
+    private final SearchIndexService searchIndex;
+    private final ContratoAvailabilityService availability;
+    private final PropiedadOcupacionService ocupacion;
+    private final FileStorageService fileStorageService;
 
     private static final List<String> VALID_ESTADOS = Arrays.asList(
         "sin_firmar", "en_proceso", "firmado", "activo", "por_vencer", "finalizado"
     );
 
     public ContratoService(ContratoRepository repository, InquilinoRepository inquilinoRepository,
-                           PropiedadRepository propiedadRepository) {
+                           PropiedadRepository propiedadRepository, TrigramSearchSupport trigramSearch,
+                           SearchIndexService searchIndex, ContratoAvailabilityService availability,
+                           PropiedadOcupacionService ocupacion, FileStorageService fileStorageService) {
         this.repository = repository;
         this.inquilinoRepository = inquilinoRepository;
         this.propiedadRepository = propiedadRepository;
+        this.trigramSearch = trigramSearch;
+        this.searchIndex = searchIndex;
+        this.availability = availability;
+        this.ocupacion = ocupacion;
+        this.fileStorageService = fileStorageService;
     }
 
-    public List<Contrato> getAllByUser(User user) {
-        return repository.findByUserOrderByCreatedAtDesc(user);
+    @Transactional(readOnly = true)
+    public List<ContratoListItem> getAllByUser(User user) {
+        return repository.findListByUser(user.getId());
     }
 
-    public Page<Contrato> getAllByUserPaginated(User user, Pageable pageable) {
-        return repository.findByUser(user, pageable);
+    @Transactional(readOnly = true)
+    public Page<ContratoListItem> getAllByUserPaginated(User user, Pageable pageable) {
+        return repository.findListPageByUser(user.getId(), pageable);
     }
 
-    public Page<Contrato> getByEstadoPaginated(User user, String estado, Pageable pageable) {
-        return repository.findByUserAndEstado(user, estado, pageable);
+    @Transactional(readOnly = true)
+    public Page<ContratoListItem> getByEstadoPaginated(User user, String estado, Pageable pageable) {
+        return repository.findListPageByUserAndEstado(user.getId(), estado, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ContratoListItem> getPageAfter(User user, String search, String estado, PageCursor after, int size) {
+        List<ContratoListItem> rows = repository.findPageAfter(user.getId(), nullToEmpty(search), nullToEmpty(estado),
+                after.getCreatedAt(), after.getId(),
+                Limit.of(size + 1));
+        return CursorPage.of(rows, size, row -> new PageCursor(row.createdAt(), row.id()));
     }
 
     public Contrato getById(Long id, User user) {
-        return repository.findByIdAndUser(id, user)
+        return repository.findByIdAndUserId(id, user.getId())
                 .orElseThrow(() -> new RuntimeException("Contrato no encontrado con id: " + id));
     }
 
     public Contrato create(Long inquilinoId, Long propiedadId, Contrato contrato, User user) {
-        Inquilino inquilino = inquilinoRepository.findByIdAndUser(inquilinoId, user)
+        Inquilino inquilino = inquilinoRepository.findByIdAndUserId(inquilinoId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Inquilino no encontrado con id: " + inquilinoId));
 
-        Propiedad propiedad = propiedadRepository.findByIdAndUser(propiedadId, user)
+        Propiedad propiedad = propiedadRepository.findByIdAndUserId(propiedadId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Propiedad no encontrada con id: " + propiedadId));
 
-        List<Contrato> overlapping = repository.findOverlappingContracts(
-                propiedad, user, contrato.getFechaInicio(), contrato.getFechaFin());
-        if (!overlapping.isEmpty()) {
-            throw new RuntimeException("Ya existe un contrato activo para esta propiedad en las fechas especificadas");
-        }
+        ContratoAvailabilityService.validateFechas(contrato.getFechaInicio(), contrato.getFechaFin());
+        availability.checkDisponible(propiedad.getId(), contrato.getFechaInicio(), contrato.getFechaFin(), null);
 
+        contrato.setPdfUrl(fileStorageService.acceptSubmittedUrl(null, contrato.getPdfUrl()));
         contrato.setInquilino(inquilino);
         contrato.setPropiedad(propiedad);
         contrato.setUser(user);
@@ -87,11 +115,19 @@ public class ContratoService {
         updatePropiedadEstado(propiedad, estado);
         propiedadRepository.save(propiedad);
 
-        return repository.save(contrato);
+        Contrato saved = saveChecked(contrato);
+        searchIndex.contratoSaved(user.getId(), saved);
+        availability.contratoSaved(saved, null);
+        ocupacion.userChanged(user.getId());
+        return saved;
     }
 
     public Contrato update(Long id, Contrato contratoDetails, Long inquilinoId, Long propiedadId, User user) {
         Contrato contrato = getById(id, user);
+        Long previousPropiedadId = contrato.getPropiedad().getId();
+        LocalDate previousInicio = contrato.getFechaInicio();
+        LocalDate previousFin = contrato.getFechaFin();
+        String previousEstado = contrato.getEstado();
 
         if (inquilinoId != null && !inquilinoId.equals(contrato.getInquilino().getId())) {
             Inquilino oldInquilino = contrato.getInquilino();
@@ -99,7 +135,7 @@ public class ContratoService {
             oldInquilino.setContratoFin(null);
             inquilinoRepository.save(oldInquilino);
 
-            Inquilino newInquilino = inquilinoRepository.findByIdAndUser(inquilinoId, user)
+            Inquilino newInquilino = inquilinoRepository.findByIdAndUserId(inquilinoId, user.getId())
                     .orElseThrow(() -> new RuntimeException("Inquilino no encontrado con id: " + inquilinoId));
             contrato.setInquilino(newInquilino);
         }
@@ -109,7 +145,7 @@ public class ContratoService {
             oldPropiedad.setEstado("disponible");
             propiedadRepository.save(oldPropiedad);
 
-            Propiedad newPropiedad = propiedadRepository.findByIdAndUser(propiedadId, user)
+            Propiedad newPropiedad = propiedadRepository.findByIdAndUserId(propiedadId, user.getId())
                     .orElseThrow(() -> new RuntimeException("Propiedad no encontrada con id: " + propiedadId));
             contrato.setPropiedad(newPropiedad);
             
@@ -130,7 +166,7 @@ public class ContratoService {
             contrato.setRentaMensual(contratoDetails.getRentaMensual());
         }
         if (contratoDetails.getPdfUrl() != null) {
-            contrato.setPdfUrl(contratoDetails.getPdfUrl());
+            contrato.setPdfUrl(fileStorageService.acceptSubmittedUrl(contrato.getPdfUrl(), contratoDetails.getPdfUrl()));
         }
 
         if (contratoDetails.getEstado() != null && !contratoDetails.getEstado().isEmpty()) {
@@ -146,9 +182,23 @@ public class ContratoService {
             propiedadRepository.save(contrato.getPropiedad());
         }
 
+        // Moving a contract is checked like creating one; a draft that starts blocking is checked too
+        ContratoAvailabilityService.validateFechas(contrato.getFechaInicio(), contrato.getFechaFin());
+        boolean moved = !contrato.getPropiedad().getId().equals(previousPropiedadId)
+                || !contrato.getFechaInicio().equals(previousInicio)
+                || !contrato.getFechaFin().equals(previousFin);
+        if (moved || becomesBlocking(previousEstado, contrato.getEstado())) {
+            availability.checkDisponible(contrato.getPropiedad().getId(),
+                    contrato.getFechaInicio(), contrato.getFechaFin(), contrato.getId());
+        }
+
         inquilinoRepository.save(contrato.getInquilino());
 
-        return repository.save(contrato);
+        Contrato saved = saveChecked(contrato);
+        searchIndex.contratoSaved(user.getId(), saved);
+        availability.contratoSaved(saved, previousPropiedadId);
+        ocupacion.userChanged(user.getId());
+        return saved;
     }
 
     public Contrato update(Long id, Contrato contratoDetails, User user) {
@@ -163,6 +213,11 @@ public class ContratoService {
             throw new RuntimeException("Estado inválido: " + estado);
         }
 
+        if (becomesBlocking(contrato.getEstado(), estado)) {
+            availability.checkDisponible(contrato.getPropiedad().getId(),
+                    contrato.getFechaInicio(), contrato.getFechaFin(), contrato.getId());
+        }
+
         contrato.setEstado(estado);
 
         Inquilino inquilino = contrato.getInquilino();
@@ -177,13 +232,19 @@ public class ContratoService {
             propiedadRepository.save(propiedad);
         }
 
-        return repository.save(contrato);
+        Contrato saved = saveChecked(contrato);
+        availability.contratoSaved(saved, null);
+        ocupacion.userChanged(user.getId());
+        return saved;
     }
 
     public Contrato updatePdfUrl(Long id, String pdfUrl, User user) {
         Contrato contrato = getById(id, user);
+        String oldPdfUrl = contrato.getPdfUrl();
         contrato.setPdfUrl(pdfUrl);
-        return repository.save(contrato);
+        Contrato saved = repository.save(contrato);
+        fileStorageService.releaseReplaced(oldPdfUrl, pdfUrl);
+        return saved;
     }
 
     public Contrato firmar(Long id, User user) {
@@ -207,7 +268,10 @@ public class ContratoService {
             propiedadRepository.save(propiedad);
         }
 
-        return repository.save(contrato);
+        Contrato saved = saveChecked(contrato);
+        availability.contratoSaved(saved, null);
+        ocupacion.userChanged(user.getId());
+        return saved;
     }
 
     public void delete(Long id, User user) {
@@ -232,36 +296,48 @@ public class ContratoService {
         }
 
         repository.deleteById(id);
+        fileStorageService.deleteFilesAfterCommit(Arrays.asList(contrato.getPdfUrl()));
+        searchIndex.deleted(user.getId(), SearchHit.Tipo.CONTRATO, id);
+        if (contrato.getPropiedad() != null) {
+            availability.contratoDeleted(contrato.getPropiedad().getId(), id);
+        }
+        ocupacion.userChanged(user.getId());
     }
 
-    public List<Contrato> getByEstado(User user, String estado) {
-        return repository.findByUserAndEstadoList(user, estado);
+    @Transactional(readOnly = true)
+    public List<ContratoListItem> getByEstado(User user, String estado) {
+        return repository.findByUserAndEstadoList(user.getId(), estado);
     }
 
-    public List<Contrato> getProximosAVencer(User user, int days) {
+    @Transactional(readOnly = true)
+    public List<ContratoListItem> getProximosAVencer(User user, int days) {
         LocalDate today = LocalDate.now();
         LocalDate futureDate = today.plusDays(days);
-        return repository.findProximosAVencer(user, today, futureDate);
+        return repository.findProximosAVencer(user.getId(), today, futureDate);
     }
 
     public List<Contrato> getByInquilino(Inquilino inquilino, User user) {
-        return repository.findByInquilinoAndUser(inquilino, user);
+        return repository.findByInquilinoAndUserId(inquilino, user.getId());
     }
 
     public List<Contrato> getByPropiedad(Propiedad propiedad, User user) {
-        return repository.findByPropiedadAndUser(propiedad, user);
+        return repository.findByPropiedadAndUserId(propiedad, user.getId());
     }
 
-    public Page<Contrato> search(User user, String search, Pageable pageable) {
-        return repository.searchByUser(user, search, pageable);
+    @Transactional(readOnly = true)
+    public Page<ContratoListItem> search(User user, String search, Pageable pageable) {
+        if (trigramSearch.useFor(search)) {
+            return repository.searchRankedByUser(user.getId(), search, pageable);
+        }
+        return repository.searchByUser(user.getId(), search, pageable);
     }
 
     public Long countByUser(User user) {
-        return repository.countByUser(user);
+        return repository.countByUser(user.getId());
     }
 
     public Long countByUserAndEstado(User user, String estado) {
-        return repository.countByUserAndEstado(user, estado);
+        return repository.countByUserAndEstado(user.getId(), estado);
     }
 
     /**
@@ -320,4 +396,29 @@ public class ContratoService {
                 break;
         }
     }
+
+    private static boolean becomesBlocking(String previousEstado, String estado) {
+        return ContratoAvailabilityService.isBlocking(estado) && !ContratoAvailabilityService.isBlocking(previousEstado);
+    }
+
+    /**
+     * Flushes so that a concurrent booking of the same dates, caught by the
+     * exclusion constraint on PostgreSQL, is reported like the in-memory check,
+     * and so the estado recorded in the interval index is the one Contrato's
+     * date-based @PreUpdate actually stored.
+     */
+    private Contrato saveChecked(Contrato contrato) {
+        try {
+            return repository.saveAndFlush(contrato);
+        } catch (DataIntegrityViolationException e) {
+            if (ContratoAvailabilityService.isOverlapViolation(e)) {
+                throw new RuntimeException(ContratoAvailabilityService.OVERLAP_MESSAGE);
+            }
+            throw e;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
 }
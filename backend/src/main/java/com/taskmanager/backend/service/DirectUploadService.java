@@ -0,0 +1,221 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.dto.DirectUpload;
+import com.taskmanager.backend.dto.DirectUploadRequest;
+import com.taskmanager.backend.dto.StoredFile;
+import com.taskmanager.backend.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Uploads that go from the client straight to storage. start checks the
+ * declared file against the target's rules, picks the object's path and
+ * returns a signed upload URL for it together with a token binding the path,
+ * size, type and checksum to the user and entity; confirm takes the token back
+ * once the client has uploaded, and checks the stored object against it.
+ * Objects uploaded but never confirmed are left for the storage cleanup.
+ */
+@Service
+public class DirectUploadService {
+
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * What a direct upload is for: the folder its objects go to and the files it accepts.
+     */
+    public enum Target {
+        CONTRATO_PDF("contratos", 10 * MB, "Solo se permiten archivos PDF",
+                type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_PDF)),
+        PROPIEDAD_IMAGEN("imagenes-propiedades", 5 * MB, "Solo se permiten archivos de imagen",
+                DirectUploadService::isRasterImage),
+        INQUILINO_AVATAR("avatars-inquilinos", 5 * MB, "Solo se permiten archivos de imagen",
+                DirectUploadService::isRasterImage),
+        INQUILINO_DOCUMENTO("documentos-identidad", 10 * MB, "Solo se permiten archivos de imagen o PDF",
+                type -> isRasterImage(type) || type.equalsTypeAndSubtype(MediaType.APPLICATION_PDF)),
+        USER_AVATAR("avatars", 5 * MB, "Solo se permiten archivos de imagen",
+                DirectUploadService::isRasterImage);
+
+        private final String folder;
+        private final long maxBytes;
+        private final String typeMessage;
+        private final Predicate<MediaType> accepts;
+
+        Target(String folder, long maxBytes, String typeMessage, Predicate<MediaType> accepts) {
+            this.folder = folder;
+            this.maxBytes = maxBytes;
+            this.typeMessage = typeMessage;
+            this.accepts = accepts;
+        }
+    }
+
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_TARGET = "target";
+    private static final String CLAIM_ENTITY_ID = "eid";
+    private static final String CLAIM_PATH = "path";
+    private static final String CLAIM_SIZE = "size";
+    private static final String CLAIM_TYPE = "type";
+    private static final String CLAIM_SHA256 = "sha256";
+
+    private final StorageBackend backend;
+    private final FileStorageService fileStorageService;
+    private final Duration ttl;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    public DirectUploadService(StorageBackend backend, FileStorageService fileStorageService,
+                               @Value("${jwt.secret}") String jwtSecret,
+                               @Value("${storage.direct-upload.ttl-seconds:600}") long ttlSeconds) {
+        this.backend = backend;
+        this.fileStorageService = fileStorageService;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        // A key of its own, so an upload token can never pass for a login token
+        this.signingKey = Keys.hmacShaKeyFor(derive(Decoders.BASE64.decode(jwtSecret), "direct-upload"));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
+    /**
+     * @param entityId The entity the file will be attached to (null when it is the user)
+     */
+    public DirectUpload start(User user, Target target, Long entityId, DirectUploadRequest request) {
+        MediaType contentType = parseType(request.getContentType());
+        if (!target.accepts.test(contentType)) {
+            throw new RuntimeException(target.typeMessage);
+        }
+        if (request.getSize() > target.maxBytes) {
+            throw new RuntimeException("El archivo no puede superar los " + target.maxBytes / MB + "MB");
+        }
+
+        String path = target.folder + "/" + UUID.randomUUID() + extension(request.getFileName(), contentType);
+        StorageBackend.SignedUpload upload;
+        try {
+            upload = backend.signUpload(path, contentType, request.getSize(), ttl);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al preparar la subida a storage: " + e.getMessage(), e);
+        }
+
+        Instant expiresAt = Instant.now().plus(ttl);
+        String token = Jwts.builder()
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_TARGET, target.name())
+                .claim(CLAIM_ENTITY_ID, entityId)
+                .claim(CLAIM_PATH, path)
+                .claim(CLAIM_SIZE, request.getSize())
+                .claim(CLAIM_TYPE, contentType.toString())
+                .claim(CLAIM_SHA256, request.getSha256().toLowerCase())
+                .expiration(Date.from(expiresAt))
+                .signWith(signingKey)
+                .compact();
+        return new DirectUpload(upload.method(), upload.url(), upload.headers(), path, token, expiresAt);
+    }
+
+    /**
+     * Checks the uploaded object against what was declared in start. An object
+     * that does not match is deleted.
+     * @return The stored file, ready to be attached to the entity
+     */
+    public StoredFile confirm(User user, Target target, Long entityId, String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException("Token de subida inválido o expirado");
+        }
+        if (!user.getId().equals(claims.get(CLAIM_USER_ID, Long.class))
+                || !target.name().equals(claims.get(CLAIM_TARGET, String.class))
+                || !Objects.equals(entityId, claims.get(CLAIM_ENTITY_ID, Long.class))) {
+            throw new RuntimeException("El token de subida no corresponde a este archivo");
+        }
+
+        String path = claims.get(CLAIM_PATH, String.class);
+        StorageBackend.ObjectInfo info;
+        try {
+            info = backend.stat(path);
+        } catch (Exception e) {
+            throw new RuntimeException("Error al verificar el archivo en storage: " + e.getMessage(), e);
+        }
+        if (info == null) {
+            throw new RuntimeException("El archivo no se ha subido");
+        }
+
+        String problem = mismatch(info, claims.get(CLAIM_SIZE, Long.class),
+                MediaType.parseMediaType(claims.get(CLAIM_TYPE, String.class)), claims.get(CLAIM_SHA256, String.class));
+        if (problem != null) {
+            fileStorageService.deleteFile(backend.publicUrl(path));
+            throw new RuntimeException(problem);
+        }
+        // Content that is already stored is kept once: this copy is dropped for the existing object
+        return fileStorageService.register(new StoredFile(backend.publicUrl(path), path, info.size(), info.sha256()),
+                info.contentType());
+    }
+
+    private static String mismatch(StorageBackend.ObjectInfo info, long size, MediaType contentType, String sha256) {
+        if (info.size() != size) {
+            return "El archivo subido no tiene el tamaño declarado";
+        }
+        if (info.contentType() == null || !info.contentType().equalsTypeAndSubtype(contentType)) {
+            return "El archivo subido no tiene el tipo declarado";
+        }
+        // Backends that cannot report a checksum are trusted on size and type
+        if (info.sha256() != null && !info.sha256().equalsIgnoreCase(sha256)) {
+            return "El checksum del archivo subido no coincide";
+        }
+        return null;
+    }
+
+    private static MediaType parseType(String contentType) {
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new RuntimeException("Tipo de archivo inválido: " + contentType);
+        }
+    }
+
+    // SVG is an image type but can carry script, so it is not accepted
+    private static boolean isRasterImage(MediaType type) {
+        return type.getType().equals("image") && !type.getSubtype().startsWith("svg");
+    }
+
+    // The original extension, if it is a plain one matching the declared type; it ends up in
+    // the object's URL, and the type files are served with is guessed from it
+    private static String extension(String fileName, MediaType contentType) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot).toLowerCase() : "";
+        if (!extension.matches("\\.[a-z0-9]{1,10}")) {
+            return "";
+        }
+        return MediaTypeFactory.getMediaType(extension)
+                .filter(contentType::equalsTypeAndSubtype)
+                .isPresent() ? extension : "";
+    }
+
+    private static byte[] derive(byte[] secret, String purpose) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+}
@@ -1,39 +1,130 @@
 package com.taskmanager.backend.service;
 
+import com.taskmanager.backend.dto.StoredFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class FileStorageService {
 
-    @Value("${supabase.url}")
-    private String supabaseUrl;
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
 
-    @Value("${supabase.key}")
-    private String supabaseKey;
+    private final StorageBackend backend;
+    private final StoredObjectService storedObjects;
+    private final UploadBufferPool bufferPool;
+    private final StorageBulkhead bulkhead;
+    private final Executor executor;
+    private final int deleteAttempts;
+    private final long deleteBackoffMillis;
 
-    @Value("${supabase.storage.bucket:contratos}")
-    private String storageBucket;
-
-    private final RestTemplate restTemplate;
-
-    public FileStorageService() {
-        this.restTemplate = new RestTemplate();
+    public FileStorageService(StorageBackend backend, StoredObjectService storedObjects,
+                              @Qualifier("storageExecutor") Executor executor,
+                              @Value("${storage.upload.buffers:16}") int buffers,
+                              @Value("${storage.upload.buffer-size-kb:64}") int bufferSizeKb,
+                              @Value("${storage.upload.buffer-wait-seconds:30}") long bufferWaitSeconds,
+                              @Value("${storage.http.max-in-flight:32}") int maxInFlight,
+                              @Value("${storage.http.bulkhead-wait-seconds:10}") long bulkheadWaitSeconds,
+                              @Value("${storage.delete.attempts:4}") int deleteAttempts,
+                              @Value("${storage.delete.backoff-ms:500}") long deleteBackoffMillis) {
+        this.backend = backend;
+        this.storedObjects = storedObjects;
+        this.executor = executor;
+        this.bufferPool = new UploadBufferPool(buffers, bufferSizeKb * 1024, bufferWaitSeconds * 1000);
+        this.bulkhead = new StorageBulkhead(maxInFlight, bulkheadWaitSeconds * 1000);
+        this.deleteAttempts = Math.max(1, deleteAttempts);
+        this.deleteBackoffMillis = deleteBackoffMillis;
     }
 
     /**
-     * Upload a file to Supabase Storage
+     * Upload a file to storage
      * @param file The file to upload
      * @param folder The folder within the bucket (optional)
      * @return The public URL of the uploaded file
      */
     public String uploadFile(MultipartFile file, String folder) {
+        return store(file, folder).url();
+    }
+
+    /**
+     * Stores a file, or adds a reference to the stored object if the same
+     * content was uploaded before: the multipart content is hashed first, and
+     * only streamed to the backend (through a pooled direct buffer, without
+     * loading it into the heap) when its SHA-256 is not indexed yet.
+     * @param file The file to upload
+     * @param folder The folder within the bucket (optional)
+     */
+    public StoredFile store(MultipartFile file, String folder) {
+        MediaType contentType = MediaType.valueOf(file.getContentType() != null ? file.getContentType() : "application/pdf");
+        String sha256;
+        try {
+            sha256 = hash(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el archivo: " + e.getMessage(), e);
+        }
+        String existing = storedObjects.reference(sha256, file.getSize());
+        if (existing != null) {
+            return new StoredFile(backend.publicUrl(existing), existing, file.getSize(), sha256);
+        }
+
+        StoredFile uploaded = upload(file, folder, contentType);
+        if (!uploaded.sha256().equals(sha256)) {
+            deleteObject(uploaded.path());
+            throw new RuntimeException("El archivo cambió durante la subida");
+        }
+        return register(uploaded, contentType);
+    }
+
+    /**
+     * Indexes a file just written to storage. If the same content was indexed
+     * meanwhile, the file is deleted and a reference to that object returned
+     * instead. Files without a checksum are left out of the index.
+     */
+    public StoredFile register(StoredFile file, MediaType contentType) {
+        if (file.sha256() == null) {
+            return file;
+        }
+        try {
+            storedObjects.register(file, contentType.toString());
+            return file;
+        } catch (DataIntegrityViolationException e) {
+            String existing = storedObjects.reference(file.sha256(), file.size());
+            if (existing == null) {
+                throw new RuntimeException("Error al registrar archivo: " + e.getMessage(), e);
+            }
+            // The same upload confirmed twice is already the indexed object
+            if (!existing.equals(file.path())) {
+                deleteObject(file.path());
+            }
+            return new StoredFile(backend.publicUrl(existing), existing, file.size(), file.sha256());
+        }
+    }
+
+    private StoredFile upload(MultipartFile file, String folder, MediaType contentType) {
         try {
             // Generate unique filename
             String originalFilename = file.getOriginalFilename();
@@ -47,74 +138,269 @@ public class FileStorageService {
                 ? folder + "/" + uniqueFilename 
                 : uniqueFilename;
 
-            // Build the upload URL
-            String uploadUrl = supabaseUrl + "/storage/v1/object/" + storageBucket + "/" + filePath;
-
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + supabaseKey);
-            headers.set("apikey", supabaseKey);
-            headers.setContentType(MediaType.valueOf(file.getContentType() != null ? file.getContentType() : "application/pdf"));
-
-            // Create request entity
-            HttpEntity<byte[]> requestEntity = new HttpEntity<>(file.getBytes(), headers);
-
-            // Upload file
-            ResponseEntity<String> response = restTemplate.exchange(
-                uploadUrl,
-                HttpMethod.POST,
-                requestEntity,
-                String.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                // Return public URL
-                return supabaseUrl + "/storage/v1/object/public/" + storageBucket + "/" + filePath;
-            } else {
-                throw new RuntimeException("Error al subir archivo: " + response.getStatusCode());
+            MessageDigest digest = sha256();
+            long stored = bulkhead.call(() ->
+                    backend.write(filePath, contentType, file.getSize(), target -> copy(file, target, digest)));
+            if (stored != file.getSize()) {
+                throw new RuntimeException("Se enviaron " + stored + " de " + file.getSize() + " bytes");
             }
+            return new StoredFile(backend.publicUrl(filePath), filePath, stored, HexFormat.of().formatHex(digest.digest()));
 
-        } catch (IOException e) {
-            throw new RuntimeException("Error al leer el archivo: " + e.getMessage(), e);
         } catch (Exception e) {
             throw new RuntimeException("Error al subir archivo a storage: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Delete a file from Supabase Storage
+     * Same as store, on the storage executor. The multipart content only lives
+     * as long as the request, so callers must wait for the result before returning.
+     */
+    public CompletableFuture<StoredFile> storeAsync(MultipartFile file, String folder) {
+        return CompletableFuture.supplyAsync(() -> store(file, folder), executor);
+    }
+
+    /**
+     * Streams a stored object's content to the reader, through the same
+     * bulkhead as the uploads.
+     * @param filePath The object's path, as returned by StorageBackend.pathOf
+     */
+    public <T> T read(String filePath, StorageBackend.ContentReader<T> reader) {
+        try {
+            return bulkhead.call(() -> backend.read(filePath, reader));
+        } catch (Exception e) {
+            throw new RuntimeException("Error al leer archivo de storage: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes content generated by the server (e.g. an image variant) at a
+     * fixed path. These objects are not indexed: they belong to the object
+     * they were derived from and are deleted with it.
+     */
+    public void writeDerived(String filePath, MediaType contentType, byte[] content) {
+        try {
+            bulkhead.call(() -> backend.write(filePath, contentType, content.length,
+                    target -> target.write(ByteBuffer.wrap(content))));
+        } catch (Exception e) {
+            throw new RuntimeException("Error al subir archivo a storage: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean exists(String filePath) {
+        try {
+            return bulkhead.call(() -> backend.stat(filePath)) != null;
+        } catch (Exception e) {
+            throw new RuntimeException("Error al verificar el archivo en storage: " + e.getMessage(), e);
+        }
+    }
+
+    private String hash(MultipartFile file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = bufferPool.acquire();
+        try (ReadableByteChannel source = Channels.newChannel(file.getInputStream())) {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private long copy(MultipartFile file, WritableByteChannel target, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = bufferPool.acquire();
+        try (ReadableByteChannel source = Channels.newChannel(file.getInputStream())) {
+            long total = 0;
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    total += target.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Drops a reference to a file in the background, deleting it from storage
+     * once nothing references it; failures are logged, as a leftover object is
+     * not worth failing the request for.
      * @param fileUrl The public URL of the file to delete
      */
     public void deleteFile(String fileUrl) {
+        deleteFileAsync(fileUrl).exceptionally(e -> {
+            logger.warn("Could not delete {} from storage: {}", fileUrl, unwrap(e).getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * deleteFile for each URL once the current transaction commits, so the
+     * files of an entity whose delete is rolled back are kept.
+     * @param fileUrls Public URLs of the files; nulls and empty ones are skipped
+     */
+    public void deleteFilesAfterCommit(List<String> fileUrls) {
+        AfterCommit.run(() -> fileUrls.forEach(this::deleteFile));
+    }
+
+    /**
+     * Once the current transaction commits (right away outside one), lets go of
+     * the file an entity held before an upload replaced it. When the upload
+     * resolved to that same object (identical content, a retried confirm), it
+     * took a second reference to it, and only that one is dropped.
+     * @param previousUrl The entity's file before the upload, if any
+     * @param currentUrl The URL the upload returned, now saved on the entity
+     */
+    public void releaseReplaced(String previousUrl, String currentUrl) {
+        if (previousUrl == null || previousUrl.isEmpty()) {
+            return;
+        }
+        if (!previousUrl.equals(currentUrl)) {
+            deleteFilesAfterCommit(List.of(previousUrl));
+            return;
+        }
+        String filePath = backend.pathOf(currentUrl);
+        if (filePath != null) {
+            AfterCommit.run(() -> CompletableFuture.runAsync(() -> storedObjects.releaseDuplicate(filePath), executor)
+                    .exceptionally(e -> {
+                        logger.warn("Could not release a duplicate reference to {}: {}", filePath, unwrap(e).getMessage());
+                        return null;
+                    }));
+        }
+    }
+
+    /**
+     * The file URL a plain create/update body may leave on an entity: the one it
+     * has, none, or a link outside storage. Only uploads take a reference, so an
+     * entity pointed at another stored object would release a reference it never
+     * held when it is deleted, taking it from whoever uploaded the file. A file
+     * the body drops is released once the current transaction commits.
+     * @param currentUrl The entity's file (null for a new entity)
+     * @param requestedUrl The URL in the body
+     */
+    public String acceptSubmittedUrl(String currentUrl, String requestedUrl) {
+        if (Objects.equals(requestedUrl, currentUrl)) {
+            return currentUrl;
+        }
+        if (requestedUrl != null && !requestedUrl.isEmpty() && backend.pathOf(requestedUrl) != null) {
+            throw new RuntimeException("Los archivos solo se pueden cambiar subiéndolos");
+        }
+        if (currentUrl != null && !currentUrl.isEmpty()) {
+            deleteFilesAfterCommit(List.of(currentUrl));
+        }
+        return requestedUrl;
+    }
+
+    /**
+     * Drops a reference to a file on the storage executor. When it was the last
+     * one, the file is deleted, retrying transient failures (I/O errors, 5xx,
+     * 408, 429) with exponential backoff. A file that is already gone counts
+     * as deleted. Image variants derived from the file go with it.
+     * @param fileUrl The public URL of the file to delete
+     */
+    public CompletableFuture<Void> deleteFileAsync(String fileUrl) {
         if (fileUrl == null || fileUrl.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Only files uploaded through the current backend
+        String filePath = backend.pathOf(fileUrl);
+        if (filePath == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> storedObjects.release(filePath), executor)
+                .thenCompose(unreferenced -> unreferenced
+                        ? delete(filePath, 1, executor).thenRun(() -> deleteVariants(filePath))
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    // One attempt each (started as the last of deleteAttempts, so never retried), logged at debug:
+    // many images never got some or all of their variants
+    private void deleteVariants(String filePath) {
+        if (!ImageVariant.isImage(filePath)) {
             return;
         }
+        for (ImageVariant variant : ImageVariant.values()) {
+            String variantPath = variant.pathFor(filePath);
+            delete(variantPath, deleteAttempts, executor).exceptionally(e -> {
+                logger.debug("Could not delete {} from storage: {}", variantPath, unwrap(e).getMessage());
+                return null;
+            });
+        }
+    }
 
+    /**
+     * Deletes objects right away, in one call where the backend allows it,
+     * without looking at their references. For the storage garbage collector,
+     * which has checked that nothing refers to them.
+     * @param filePaths The objects' paths, as returned by StorageBackend.pathOf
+     */
+    public void deleteObjects(Collection<String> filePaths) {
         try {
-            // Extract file path from URL
-            String basePath = supabaseUrl + "/storage/v1/object/public/" + storageBucket + "/";
-            if (!fileUrl.startsWith(basePath)) {
-                return;
-            }
+            bulkhead.call(() -> {
+                backend.deleteAll(filePaths);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new RuntimeException("Error al eliminar archivos de storage: " + e.getMessage(), e);
+        }
+    }
 
-            String filePath = fileUrl.substring(basePath.length());
-            String deleteUrl = supabaseUrl + "/storage/v1/object/" + storageBucket + "/" + filePath;
+    // A copy that was never referenced (duplicate or rejected content)
+    private void deleteObject(String filePath) {
+        delete(filePath, 1, executor).exceptionally(e -> {
+            logger.warn("Could not delete {} from storage: {}", filePath, unwrap(e).getMessage());
+            return null;
+        });
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + supabaseKey);
-            headers.set("apikey", supabaseKey);
+    // attempt is this try's number, from 1; transient failures are retried until it reaches deleteAttempts
+    private CompletableFuture<Void> delete(String filePath, int attempt, Executor runOn) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                bulkhead.call(() -> {
+                    backend.delete(filePath);
+                    return null;
+                });
+            } catch (HttpClientErrorException.NotFound e) {
+                // Already deleted
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, runOn).exceptionallyCompose(e -> {
+            Throwable cause = unwrap(e);
+            if (attempt >= deleteAttempts || !isRetryable(cause)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            long delay = deleteBackoffMillis << (attempt - 1);
+            logger.debug("Retrying delete of {} in {} ms (attempt {} failed: {})", filePath, delay, attempt, cause.getMessage());
+            return delete(filePath, attempt + 1, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor));
+        });
+    }
 
-            HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
 
-            restTemplate.exchange(
-                deleteUrl,
-                HttpMethod.DELETE,
-                requestEntity,
-                String.class
-            );
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error al eliminar archivo: " + e.getMessage());
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof HttpClientErrorException clientError) {
+            HttpStatus status = HttpStatus.resolve(clientError.getStatusCode().value());
+            return status == HttpStatus.REQUEST_TIMEOUT || status == HttpStatus.TOO_MANY_REQUESTS;
         }
+        return true;
     }
 }
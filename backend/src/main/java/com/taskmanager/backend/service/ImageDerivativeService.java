@@ -0,0 +1,204 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.model.Inquilino;
+import com.taskmanager.backend.model.Propiedad;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.InquilinoRepository;
+import com.taskmanager.backend.repository.PropiedadRepository;
+import com.taskmanager.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * Generates the ImageVariant copies of property images and avatars in the
+ * background, after the upload has been answered, and records their URLs on
+ * the entity. The entity is only updated if it still shows the same image.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    @FunctionalInterface
+    private interface VariantsUpdate {
+        int apply(String thumbUrl, String mediumUrl);
+    }
+
+    private final FileStorageService fileStorageService;
+    private final StorageBackend backend;
+    private final PropiedadRepository propiedadRepository;
+    private final InquilinoRepository inquilinoRepository;
+    private final UserRepository userRepository;
+    private final Executor executor;
+    private final long maxPixels;
+    private final float jpegQuality;
+
+    public ImageDerivativeService(FileStorageService fileStorageService, StorageBackend backend,
+                                  PropiedadRepository propiedadRepository, InquilinoRepository inquilinoRepository,
+                                  UserRepository userRepository,
+                                  @Qualifier("imageExecutor") Executor executor,
+                                  @Value("${storage.images.max-megapixels:40}") long maxMegapixels,
+                                  @Value("${storage.images.jpeg-quality:0.8}") float jpegQuality) {
+        this.fileStorageService = fileStorageService;
+        this.backend = backend;
+        this.propiedadRepository = propiedadRepository;
+        this.inquilinoRepository = inquilinoRepository;
+        this.userRepository = userRepository;
+        this.executor = executor;
+        this.maxPixels = maxMegapixels * 1_000_000;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public void generateFor(Propiedad propiedad) {
+        Long id = propiedad.getId();
+        String imagen = propiedad.getImagen();
+        enqueue(imagen, (thumb, medium) -> propiedadRepository.updateImagenVariants(id, imagen, thumb, medium));
+    }
+
+    public void generateFor(Inquilino inquilino) {
+        Long id = inquilino.getId();
+        String avatar = inquilino.getAvatar();
+        enqueue(avatar, (thumb, medium) -> inquilinoRepository.updateAvatarVariants(id, avatar, thumb, medium));
+    }
+
+    public void generateFor(User user) {
+        Long id = user.getId();
+        String avatar = user.getAvatar();
+        enqueue(avatar, (thumb, medium) -> userRepository.updateAvatarVariants(id, avatar, thumb, medium));
+    }
+
+    // Only images in our storage: URLs set by hand are left as they are
+    private void enqueue(String imageUrl, VariantsUpdate update) {
+        String path = imageUrl != null ? backend.pathOf(imageUrl) : null;
+        if (path == null || !ImageVariant.isImage(path)) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(imageUrl, path, update));
+        } catch (TaskRejectedException e) {
+            logger.warn("Image queue full, {} is left without variants", imageUrl);
+        }
+    }
+
+    private void generate(String imageUrl, String path, VariantsUpdate update) {
+        String thumbPath = ImageVariant.THUMB.pathFor(path);
+        String mediumPath = ImageVariant.MEDIUM.pathFor(path);
+        try {
+            // Deduplicated images share their variants, which may exist already
+            if (!fileStorageService.exists(thumbPath) || !fileStorageService.exists(mediumPath)) {
+                BufferedImage source = fileStorageService.read(path, this::decode);
+                // Each variant is scaled from the next larger one, which is cheaper than from the original
+                BufferedImage medium = resize(source, ImageVariant.MEDIUM.maxSide());
+                BufferedImage thumb = resize(medium, ImageVariant.THUMB.maxSide());
+                fileStorageService.writeDerived(mediumPath, MediaType.IMAGE_JPEG, encode(medium));
+                fileStorageService.writeDerived(thumbPath, MediaType.IMAGE_JPEG, encode(thumb));
+            }
+            if (update.apply(backend.publicUrl(thumbPath), backend.publicUrl(mediumPath)) == 0) {
+                logger.debug("{} was replaced before its variants were ready", imageUrl);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not generate variants of {}: {}", imageUrl, e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes the image, reading only every n-th row and column of those much
+     * larger than MEDIUM, so the decoded copy stays small.
+     */
+    private BufferedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("image of " + width + "x" + height + " is too large");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (2 * ImageVariant.MEDIUM.maxSide()));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits the image within maxSide x maxSide, halving it while it is more than
+     * twice that size: a single bilinear step from far larger skips most pixels.
+     * The result is opaque RGB, with transparency over white.
+     */
+    private static BufferedImage resize(BufferedImage image, int maxSide) {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage current = image;
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+            current = draw(current, width, height);
+        } while (current.getWidth() > targetWidth || current.getHeight() > targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
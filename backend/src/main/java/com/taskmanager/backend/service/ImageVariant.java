@@ -0,0 +1,49 @@
+package com.taskmanager.backend.service;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+/**
+ * Downscaled JPEG copies kept next to an uploaded image, for the list pages
+ * (THUMB) and the detail pages (MEDIUM). Each is stored at a path derived from
+ * the original's, so deduplicated images share their variants too.
+ */
+public enum ImageVariant {
+
+    THUMB("thumb", 200),
+    MEDIUM("medium", 800);
+
+    private final String suffix;
+    private final int maxSide;
+
+    ImageVariant(String suffix, int maxSide) {
+        this.suffix = suffix;
+        this.maxSide = maxSide;
+    }
+
+    /**
+     * The longest side of the variant, in pixels; smaller images are not upscaled.
+     */
+    public int maxSide() {
+        return maxSide;
+    }
+
+    /**
+     * e.g. imagenes-propiedades/1b2c.png becomes imagenes-propiedades/1b2c.thumb.jpg
+     */
+    public String pathFor(String originalPath) {
+        int slash = originalPath.lastIndexOf('/');
+        int dot = originalPath.lastIndexOf('.');
+        String base = dot > slash ? originalPath.substring(0, dot) : originalPath;
+        return base + "." + suffix + ".jpg";
+    }
+
+    /**
+     * Whether the object at path is an image, judging by its extension.
+     */
+    public static boolean isImage(String path) {
+        return MediaTypeFactory.getMediaType(path)
+                .map(type -> type.getType().equals(MediaType.IMAGE_JPEG.getType()))
+                .orElse(false);
+    }
+}
@@ -1,5 +1,10 @@
 package com.taskmanager.backend.service;
 
+import com.taskmanager.backend.config.TrigramSearchSupport;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.InquilinoListItem;
+import com.taskmanager.backend.dto.PageCursor;
+import com.taskmanager.backend.dto.SearchHit;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.Propiedad;
 import com.taskmanager.backend.model.User;
@@ -7,12 +12,16 @@ import com.taskmanager.backend.repository.ContratoRepository;
 import com.taskmanager.backend.repository.InquilinoRepository;
 import com.taskmanager.backend.repository.PagoRepository;
 import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -22,41 +31,70 @@ public class InquilinoService {
     private final PropiedadRepository propiedadRepository;
     private final ContratoRepository contratoRepository;
     private final PagoRepository pagoRepository;
+    private final PagoSummaryService pagoSummaryService;
+    private final TrigramSearchSupport trigramSearch;
+    private final SearchIndexService searchIndex;
+    private final ContratoAvailabilityService availability;
+    private final PropiedadOcupacionService ocupacion;
+    private final FileStorageService fileStorageService;
 
     public InquilinoService(InquilinoRepository repository, 
                            PropiedadRepository propiedadRepository,
                            ContratoRepository contratoRepository,
-                           PagoRepository pagoRepository) {
+                           PagoRepository pagoRepository,
+                           PagoSummaryService pagoSummaryService,
+                           TrigramSearchSupport trigramSearch,
+                           SearchIndexService searchIndex,
+                           ContratoAvailabilityService availability,
+                           PropiedadOcupacionService ocupacion,
+                           FileStorageService fileStorageService) {
         this.repository = repository;
         this.propiedadRepository = propiedadRepository;
         this.contratoRepository = contratoRepository;
         this.pagoRepository = pagoRepository;
+        this.pagoSummaryService = pagoSummaryService;
+        this.trigramSearch = trigramSearch;
+        this.searchIndex = searchIndex;
+        this.availability = availability;
+        this.ocupacion = ocupacion;
+        this.fileStorageService = fileStorageService;
     }
 
-    public List<Inquilino> getAllByUser(User user) {
-        return repository.findByUserOrderByCreatedAtDesc(user);
+    @Transactional(readOnly = true)
+    public List<InquilinoListItem> getAllByUser(User user) {
+        return repository.findListByUser(user.getId());
     }
 
-    public Page<Inquilino> getAllByUserPaginated(User user, Pageable pageable) {
-        return repository.findByUser(user, pageable);
+    @Transactional(readOnly = true)
+    public Page<InquilinoListItem> getAllByUserPaginated(User user, Pageable pageable) {
+        return repository.findListPageByUser(user.getId(), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<InquilinoListItem> getPageAfter(User user, String search, PageCursor after, int size) {
+        List<InquilinoListItem> rows = repository.findPageAfter(user.getId(), nullToEmpty(search),
+                after.getCreatedAt(), after.getId(),
+                Limit.of(size + 1));
+        return CursorPage.of(rows, size, row -> new PageCursor(row.createdAt(), row.id()));
     }
 
     public Inquilino getById(Long id, User user) {
-        return repository.findByIdAndUser(id, user)
+        return repository.findByIdAndUserId(id, user.getId())
                 .orElseThrow(() -> new RuntimeException("Inquilino no encontrado con id: " + id));
     }
 
     public Inquilino create(Inquilino inquilino, Long propiedadId, User user) {
         // Check if email is unique for this user
-        if (repository.findByEmailAndUser(inquilino.getEmail(), user).isPresent()) {
+        if (repository.findByEmailAndUserId(inquilino.getEmail(), user.getId()).isPresent()) {
             throw new RuntimeException("Ya existe un inquilino con este email");
         }
 
+        inquilino.setAvatar(fileStorageService.acceptSubmittedUrl(null, inquilino.getAvatar()));
         inquilino.setUser(user);
 
         // Assign property if provided
         if (propiedadId != null) {
-            Propiedad propiedad = propiedadRepository.findByIdAndUser(propiedadId, user)
+            Propiedad propiedad = propiedadRepository.findByIdAndUserId(propiedadId, user.getId())
                     .orElseThrow(() -> new RuntimeException("Propiedad no encontrada con id: " + propiedadId));
             inquilino.setPropiedad(propiedad);
             // Update property status
@@ -64,7 +102,9 @@ public class InquilinoService {
             propiedadRepository.save(propiedad);
         }
 
-        return repository.save(inquilino);
+        Inquilino saved = repository.save(inquilino);
+        searchIndex.inquilinoSaved(user.getId(), saved);
+        return saved;
     }
 
     public Inquilino update(Long id, Inquilino inquilinoDetails, Long propiedadId, User user) {
@@ -78,7 +118,7 @@ public class InquilinoService {
         }
         if (inquilinoDetails.getEmail() != null && !inquilinoDetails.getEmail().equals(inquilino.getEmail())) {
             // Check if new email is unique
-            if (repository.findByEmailAndUser(inquilinoDetails.getEmail(), user).isPresent()) {
+            if (repository.findByEmailAndUserId(inquilinoDetails.getEmail(), user.getId()).isPresent()) {
                 throw new RuntimeException("Ya existe un inquilino con este email");
             }
             inquilino.setEmail(inquilinoDetails.getEmail());
@@ -90,7 +130,7 @@ public class InquilinoService {
             inquilino.setDocumento(inquilinoDetails.getDocumento());
         }
         // Always update avatar (even if null or empty to allow clearing it)
-        inquilino.setAvatar(inquilinoDetails.getAvatar());
+        inquilino.setAvatar(fileStorageService.acceptSubmittedUrl(inquilino.getAvatar(), inquilinoDetails.getAvatar()));
         // Update contact address
         inquilino.setDireccionContacto(inquilinoDetails.getDireccionContacto());
 
@@ -118,7 +158,7 @@ public class InquilinoService {
 
             // Assign new property if provided
             if (propiedadId != null) {
-                Propiedad newPropiedad = propiedadRepository.findByIdAndUser(propiedadId, user)
+                Propiedad newPropiedad = propiedadRepository.findByIdAndUserId(propiedadId, user.getId())
                         .orElseThrow(() -> new RuntimeException("Propiedad no encontrada con id: " + propiedadId));
                 inquilino.setPropiedad(newPropiedad);
                 newPropiedad.setEstado("ocupada");
@@ -126,17 +166,27 @@ public class InquilinoService {
             }
         }
 
-        return repository.save(inquilino);
+        Inquilino saved = repository.save(inquilino);
+        searchIndex.inquilinoSaved(user.getId(), saved);
+        return saved;
     }
 
     public void delete(Long id, User user) {
         Inquilino inquilino = getById(id, user);
 
-        // Delete associated payments first
+        // Delete associated payments first, remembering the months they were counted in
+        Set<YearMonth> periods = pagoSummaryService.periodsOfInquilino(id);
         pagoRepository.deleteByInquilinoId(id);
+        pagoSummaryService.refresh(user.getId(), periods);
 
-        // Delete associated contracts
+        // Delete associated contracts, and with them their PDFs and the tenant's files
+        List<String> files = new ArrayList<>(contratoRepository.findPdfUrlsByInquilinoId(id));
+        files.add(inquilino.getAvatar());
+        files.add(inquilino.getDocumentoIdentidadUrl());
+        List<Long> propiedadIds = contratoRepository.findPropiedadIdsByInquilinoId(id);
         contratoRepository.deleteByInquilinoId(id);
+        availability.propiedadesChanged(propiedadIds);
+        ocupacion.userChanged(user.getId());
 
         // Free up property if assigned
         if (inquilino.getPropiedad() != null) {
@@ -146,29 +196,40 @@ public class InquilinoService {
         }
 
         repository.deleteById(id);
+        fileStorageService.deleteFilesAfterCommit(files);
+        searchIndex.deleted(user.getId(), SearchHit.Tipo.INQUILINO, id);
     }
 
     public List<Inquilino> getByContratoEstado(User user, String contratoEstado) {
-        return repository.findByUserAndContratoEstado(user, contratoEstado);
+        return repository.findByUserIdAndContratoEstado(user.getId(), contratoEstado);
     }
 
-    public List<Inquilino> getWithoutProperty(User user) {
-        return repository.findWithoutPropertyByUser(user);
+    @Transactional(readOnly = true)
+    public List<InquilinoListItem> getWithoutProperty(User user) {
+        return repository.findWithoutPropertyByUser(user.getId());
     }
 
-    public Page<Inquilino> search(User user, String search, Pageable pageable) {
-        return repository.searchByUser(user, search, pageable);
+    @Transactional(readOnly = true)
+    public Page<InquilinoListItem> search(User user, String search, Pageable pageable) {
+        if (trigramSearch.useFor(search)) {
+            return repository.searchRankedByUser(user.getId(), search, pageable);
+        }
+        return repository.searchByUser(user.getId(), search, pageable);
     }
 
     public Long countByUser(User user) {
-        return repository.countByUser(user);
+        return repository.countByUser(user.getId());
     }
 
     public Long countActiveByUser(User user) {
-        return repository.countActiveByUser(user);
+        return repository.countActiveByUser(user.getId());
     }
 
     public Inquilino save(Inquilino inquilino) {
         return repository.save(inquilino);
     }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
 }
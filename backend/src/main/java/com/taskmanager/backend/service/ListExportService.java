@@ -0,0 +1,181 @@
+package com.taskmanager.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.backend.dto.ContratoListItem;
+import com.taskmanager.backend.dto.InquilinoListItem;
+import com.taskmanager.backend.dto.PagoListItem;
+import com.taskmanager.backend.exception.TooManyExportsException;
+import com.taskmanager.backend.repository.ContratoRepository;
+import com.taskmanager.backend.repository.InquilinoRepository;
+import com.taskmanager.backend.repository.PagoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's pagos, contratos or inquilinos as CSV or NDJSON row by row
+ * while the database cursor advances, so memory use does not grow with the
+ * number of rows and the response starts before the query has finished.
+ * Each export holds a pool connection and its cursor until the last row is
+ * written, so at most exports.max-concurrent run at once.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ListExportService {
+
+    private static final List<Column<PagoListItem>> PAGO_COLUMNS = List.of(
+            new Column<>("id", PagoListItem::id),
+            new Column<>("inquilino", p -> p.inquilino().nombre() + " " + p.inquilino().apellido()),
+            new Column<>("email", p -> p.inquilino().email()),
+            new Column<>("propiedad", p -> p.propiedad().nombre()),
+            new Column<>("direccion", p -> p.propiedad().direccion()),
+            new Column<>("monto", PagoListItem::monto),
+            new Column<>("estado", PagoListItem::estado),
+            new Column<>("fechaVencimiento", PagoListItem::fechaVencimiento),
+            new Column<>("fechaPago", PagoListItem::fechaPago),
+            new Column<>("diasAtrasado", PagoListItem::diasAtrasado),
+            new Column<>("comprobante", PagoListItem::comprobante));
+
+    private static final List<Column<ContratoListItem>> CONTRATO_COLUMNS = List.of(
+            new Column<>("id", ContratoListItem::id),
+            new Column<>("inquilino", c -> c.inquilino().nombre() + " " + c.inquilino().apellido()),
+            new Column<>("email", c -> c.inquilino().email()),
+            new Column<>("propiedad", c -> c.propiedad().nombre()),
+            new Column<>("direccion", c -> c.propiedad().direccion()),
+            new Column<>("fechaInicio", ContratoListItem::fechaInicio),
+            new Column<>("fechaFin", ContratoListItem::fechaFin),
+            new Column<>("rentaMensual", ContratoListItem::rentaMensual),
+            new Column<>("estado", ContratoListItem::estado),
+            new Column<>("diasRestantes", ContratoListItem::diasRestantes));
+
+    private static final List<Column<InquilinoListItem>> INQUILINO_COLUMNS = List.of(
+            new Column<>("id", InquilinoListItem::id),
+            new Column<>("nombre", InquilinoListItem::nombre),
+            new Column<>("apellido", InquilinoListItem::apellido),
+            new Column<>("email", InquilinoListItem::email),
+            new Column<>("telefono", InquilinoListItem::telefono),
+            new Column<>("documento", InquilinoListItem::documento),
+            new Column<>("propiedad", i -> i.propiedad() != null ? i.propiedad().nombre() : null),
+            new Column<>("contratoEstado", InquilinoListItem::contratoEstado),
+            new Column<>("contratoFin", InquilinoListItem::contratoFin));
+
+    private final PagoRepository pagoRepository;
+    private final ContratoRepository contratoRepository;
+    private final InquilinoRepository inquilinoRepository;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exportSlots;
+
+    public ListExportService(PagoRepository pagoRepository, ContratoRepository contratoRepository,
+                             InquilinoRepository inquilinoRepository, ObjectMapper objectMapper,
+                             @Value("${exports.max-concurrent:2}") int maxConcurrent) {
+        this.pagoRepository = pagoRepository;
+        this.contratoRepository = contratoRepository;
+        this.inquilinoRepository = inquilinoRepository;
+        this.objectMapper = objectMapper;
+        this.exportSlots = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Takes an export slot for the duration of one streamed response, without waiting.
+     * @return Gives the slot back; only the first call has an effect
+     * @throws TooManyExportsException if every slot is in use
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Runnable acquireSlot() {
+        if (!exportSlots.tryAcquire()) {
+            throw new TooManyExportsException();
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                exportSlots.release();
+            }
+        };
+    }
+
+    public void exportPagos(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<PagoListItem> rows = pagoRepository.streamListByUser(userId)) {
+            write(rows, PAGO_COLUMNS, format, out);
+        }
+    }
+
+    public void exportContratos(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<ContratoListItem> rows = contratoRepository.streamListByUser(userId)) {
+            write(rows, CONTRATO_COLUMNS, format, out);
+        }
+    }
+
+    public void exportInquilinos(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<InquilinoListItem> rows = inquilinoRepository.streamListByUser(userId)) {
+            write(rows, INQUILINO_COLUMNS, format, out);
+        }
+    }
+
+    private <T> void write(Stream<T> rows, List<Column<T>> columns, ExportFormat format, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            if (format == ExportFormat.CSV) {
+                writeCsvLine(writer, columns.stream().map(Column::header).toList());
+                rows.forEach(row -> writeCsvLine(writer, columns.stream().map(c -> c.value().apply(row)).toList()));
+            } else {
+                rows.forEach(row -> writeJsonLine(writer, row));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeJsonLine(Writer writer, Object row) {
+        try {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, List<?> values) {
+        try {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvField(values.get(i)));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private record Column<T>(String header, Function<T, Object> value) {
+    }
+}
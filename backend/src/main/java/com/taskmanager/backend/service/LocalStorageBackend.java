@@ -0,0 +1,243 @@
+package com.taskmanager.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Objects kept as files under storage.local.root, for installs without
+ * Supabase and for local testing. Files are served by FileController, which
+ * also accepts the signed uploads (PUT to the file's URL with the signature
+ * in the query), like Supabase's signed upload URLs do.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    private static final String SIGNATURE = "HmacSHA256";
+
+    private final Path root;
+    private final String publicBase;
+    // Signed upload URLs do not outlive the process, which is fine for a stand-in
+    private final SecretKeySpec signingKey;
+
+    public LocalStorageBackend(@Value("${storage.local.root:./storage}") String root,
+                               @Value("${storage.local.public-url:http://localhost:8080/api/files}") String publicUrl)
+            throws IOException {
+        this.root = Files.createDirectories(Path.of(root)).toRealPath();
+        this.publicBase = publicUrl.endsWith("/") ? publicUrl : publicUrl + "/";
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.signingKey = new SecretKeySpec(key, SIGNATURE);
+    }
+
+    /**
+     * Written to a temporary file next to the target and moved into place once
+     * complete, so a failed upload never leaves a partial object behind.
+     */
+    @Override
+    public long write(String path, MediaType contentType, long size, Content content) throws IOException {
+        Path target = resolve(path);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            long written;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                written = content.copyTo(channel);
+                channel.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void delete(String path) throws IOException {
+        Files.deleteIfExists(resolve(path));
+    }
+
+    @Override
+    public void deleteAll(Collection<String> paths) throws IOException {
+        for (String path : paths) {
+            delete(path);
+        }
+    }
+
+    /**
+     * Depth first, each directory's entries sorted when it is reached. Temp
+     * files left behind by interrupted writes are listed too, so they get
+     * collected like any other unreferenced object.
+     */
+    @Override
+    public Stream<ListedObject> list() {
+        return listDirectory(root);
+    }
+
+    private Stream<ListedObject> listDirectory(Path directory) {
+        record Entry(Path path, boolean directory, String sortKey) {
+        }
+        List<Entry> entries;
+        try (Stream<Path> children = Files.list(directory)) {
+            entries = children
+                    .map(child -> {
+                        boolean isDirectory = Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+                        String name = child.getFileName().toString();
+                        return new Entry(child, isDirectory, isDirectory ? name + "/" : name);
+                    })
+                    .sorted(Comparator.comparing(Entry::sortKey))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries.stream().flatMap(entry -> entry.directory() ? listDirectory(entry.path()) : listed(entry.path()));
+    }
+
+    private Stream<ListedObject> listed(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attributes.isRegularFile()) {
+                return Stream.empty();
+            }
+            String path = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            return Stream.of(new ListedObject(path, attributes.size(), attributes.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException e) {
+            // Deleted since the directory was read
+            return Stream.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T read(String path, ContentReader<T> reader) throws IOException {
+        try (InputStream in = Files.newInputStream(resolve(path))) {
+            return reader.readFrom(in);
+        }
+    }
+
+    @Override
+    public SignedUpload signUpload(String path, MediaType contentType, long size, Duration ttl) {
+        resolve(path);
+        long expires = Instant.now().plus(ttl).getEpochSecond();
+        String url = publicBase + UriUtils.encodePath(path, StandardCharsets.UTF_8)
+                + "?expires=" + expires + "&size=" + size + "&signature=" + sign(path, expires, size);
+        return new SignedUpload("PUT", url, Map.of(HttpHeaders.CONTENT_TYPE, contentType.toString()));
+    }
+
+    /**
+     * Whether the query of a signed upload URL authorizes writing size bytes at path now.
+     */
+    public boolean isUploadAllowed(String path, long expires, long size, String signature) {
+        if (signature == null || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(path, expires, size).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public ObjectInfo stat(String path) throws IOException {
+        Path file = find(path);
+        if (file == null) {
+            return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (int read; (read = channel.read(buffer)) >= 0; buffer.clear()) {
+                buffer.flip();
+                digest.update(buffer);
+                size += read;
+            }
+        }
+        MediaType contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        return new ObjectInfo(size, contentType, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    @Override
+    public String publicUrl(String path) {
+        return publicBase + path;
+    }
+
+    @Override
+    public String pathOf(String url) {
+        return url.startsWith(publicBase) ? url.substring(publicBase.length()) : null;
+    }
+
+    /**
+     * @return The stored file at path, or null if there is none (or path points outside the root)
+     */
+    public Path find(String path) {
+        try {
+            Path file = resolve(path);
+            if (!Files.isRegularFile(file) || file.getFileName().toString().startsWith(".")) {
+                return null;
+            }
+            // Also rejects symlinks leading outside the root
+            Path real = file.toRealPath();
+            return real.startsWith(root) ? real : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String sign(String path, long expires, long size) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal((path + "\n" + expires + "\n" + size).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(SIGNATURE + " no disponible", e);
+        }
+    }
+
+    private Path resolve(String path) {
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw new RuntimeException("Ruta de archivo inválida: " + path);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,63 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.repository.PagoRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Set-based estado transitions for pagos, so stored estados stay correct
+ * without waiting for each row to be edited.
+ */
+@Service
+@Transactional
+public class PagoEstadoService {
+
+    private final PagoRepository pagoRepository;
+    private final PagoSummaryService pagoSummaryService;
+
+    public PagoEstadoService(PagoRepository pagoRepository, PagoSummaryService pagoSummaryService) {
+        this.pagoRepository = pagoRepository;
+        this.pagoSummaryService = pagoSummaryService;
+    }
+
+    /**
+     * Moves one chunk of 'pendiente' payments due before today to 'atrasado' and
+     * refreshes the rollup months they belong to, all in one transaction.
+     * @return The number of payments moved; less than chunkSize when nothing is left
+     */
+    public int moveOverdueChunk(LocalDate today, int chunkSize) {
+        List<Object[]> rows = pagoRepository.lockOverduePendientes(today, chunkSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        // Sorted by user id so concurrent runs take the per-user rollup locks in the same order
+        Map<Long, Set<YearMonth>> periodsByUser = new TreeMap<>();
+        for (Object[] row : rows) {
+            ids.add(((Number) row[0]).longValue());
+            if (row[1] != null) {
+                Long userId = ((Number) row[1]).longValue();
+                periodsByUser.computeIfAbsent(userId, k -> new TreeSet<>())
+                        .add(YearMonth.from(toLocalDate(row[2])));
+            }
+        }
+
+        int moved = pagoRepository.markAtrasado(ids);
+        periodsByUser.forEach(pagoSummaryService::refresh);
+        return moved;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+}
@@ -1,20 +1,31 @@
 package com.taskmanager.backend.service;
 
+import com.taskmanager.backend.config.TrigramSearchSupport;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.DashboardStatsResponse;
+import com.taskmanager.backend.dto.DashboardTotals;
+import com.taskmanager.backend.dto.PageCursor;
+import com.taskmanager.backend.dto.PagoListItem;
 import com.taskmanager.backend.model.Pago;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.Propiedad;
 import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.PagoMonthlySummaryRepository;
 import com.taskmanager.backend.repository.PagoRepository;
 import com.taskmanager.backend.repository.InquilinoRepository;
 import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -23,32 +34,49 @@ public class PagoService {
     private final PagoRepository repository;
     private final InquilinoRepository inquilinoRepository;
     private final PropiedadRepository propiedadRepository;
+    private final PagoMonthlySummaryRepository summaryRepository;
+    private final PagoSummaryService summaryService;
+    private final TrigramSearchSupport trigramSearch;
 
     public PagoService(PagoRepository repository, InquilinoRepository inquilinoRepository,
-                       PropiedadRepository propiedadRepository) {
+                       PropiedadRepository propiedadRepository, PagoMonthlySummaryRepository summaryRepository,
+                       PagoSummaryService summaryService, TrigramSearchSupport trigramSearch) {
         this.repository = repository;
         this.inquilinoRepository = inquilinoRepository;
         this.propiedadRepository = propiedadRepository;
+        this.summaryRepository = summaryRepository;
+        this.summaryService = summaryService;
+        this.trigramSearch = trigramSearch;
     }
 
-    public List<Pago> getAllByUser(User user) {
-        return repository.findByUserOrderByCreatedAtDesc(user);
+    @Transactional(readOnly = true)
+    public List<PagoListItem> getAllByUser(User user) {
+        return repository.findListByUser(user.getId());
     }
 
-    public Page<Pago> getAllByUserPaginated(User user, Pageable pageable) {
-        return repository.findByUser(user, pageable);
+    @Transactional(readOnly = true)
+    public Page<PagoListItem> getAllByUserPaginated(User user, Pageable pageable) {
+        return repository.findListPageByUser(user.getId(), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PagoListItem> getPageAfter(User user, String search, PageCursor after, int size) {
+        List<PagoListItem> rows = repository.findPageAfter(user.getId(), nullToEmpty(search),
+                after.getCreatedAt(), after.getId(),
+                Limit.of(size + 1));
+        return CursorPage.of(rows, size, row -> new PageCursor(row.createdAt(), row.id()));
     }
 
     public Pago getById(Long id, User user) {
-        return repository.findByIdAndUser(id, user)
+        return repository.findByIdAndUserId(id, user.getId())
                 .orElseThrow(() -> new RuntimeException("Pago no encontrado con id: " + id));
     }
 
     public Pago create(Long inquilinoId, Long propiedadId, Pago pago, User user) {
-        Inquilino inquilino = inquilinoRepository.findByIdAndUser(inquilinoId, user)
+        Inquilino inquilino = inquilinoRepository.findByIdAndUserId(inquilinoId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Inquilino no encontrado con id: " + inquilinoId));
 
-        Propiedad propiedad = propiedadRepository.findByIdAndUser(propiedadId, user)
+        Propiedad propiedad = propiedadRepository.findByIdAndUserId(propiedadId, user.getId())
                 .orElseThrow(() -> new RuntimeException("Propiedad no encontrada con id: " + propiedadId));
 
         pago.setInquilino(inquilino);
@@ -66,11 +94,14 @@ public class PagoService {
             }
         }
 
-        return repository.save(pago);
+        Pago saved = repository.saveAndFlush(pago);
+        summaryService.refresh(user.getId(), PagoSummaryService.periodsOf(saved));
+        return saved;
     }
 
     public Pago update(Long id, Pago pagoDetails, User user) {
         Pago pago = getById(id, user);
+        Set<YearMonth> periods = PagoSummaryService.periodsOf(pago);
 
         if (pagoDetails.getMonto() != null) {
             pago.setMonto(pagoDetails.getMonto());
@@ -103,87 +134,146 @@ public class PagoService {
             pago.setEstado("pagado");
         }
 
-        return repository.save(pago);
+        return saveAndRefresh(pago, periods, user);
     }
 
     public Pago registrarPago(Long id, LocalDate fechaPago, String comprobante, User user) {
         Pago pago = getById(id, user);
+        Set<YearMonth> periods = PagoSummaryService.periodsOf(pago);
         pago.setFechaPago(fechaPago != null ? fechaPago : LocalDate.now());
         pago.setEstado("pagado");
         if (comprobante != null) {
             pago.setComprobante(comprobante);
         }
-        return repository.save(pago);
+        return saveAndRefresh(pago, periods, user);
     }
 
     public void delete(Long id, User user) {
-        if (!repository.existsByIdAndUser(id, user)) {
-            throw new RuntimeException("Pago no encontrado con id: " + id);
-        }
-        repository.deleteById(id);
+        Pago pago = getById(id, user);
+        Set<YearMonth> periods = PagoSummaryService.periodsOf(pago);
+        repository.delete(pago);
+        summaryService.refresh(user.getId(), periods);
     }
 
-    public List<Pago> getByEstado(User user, String estado) {
-        return repository.findByUserAndEstado(user, estado);
+    // Refreshes the months the payment was counted in before the change and the ones it is counted in now
+    private Pago saveAndRefresh(Pago pago, Set<YearMonth> previousPeriods, User user) {
+        Pago saved = repository.saveAndFlush(pago);
+        previousPeriods.addAll(PagoSummaryService.periodsOf(saved));
+        summaryService.refresh(user.getId(), previousPeriods);
+        return saved;
     }
 
-    public List<Pago> getAtrasados(User user) {
-        return repository.findAtrasadosByUser(user);
+    @Transactional(readOnly = true)
+    public List<PagoListItem> getByEstado(User user, String estado) {
+        return repository.findListByUserAndEstado(user.getId(), estado);
     }
 
-    public List<Pago> getAtrasados(User user, int month, int year) {
-        return repository.findAtrasadosByUserAndMonth(user, month, year);
+    @Transactional(readOnly = true)
+    public List<PagoListItem> getAtrasados(User user) {
+        return repository.findAtrasadosByUser(user.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<PagoListItem> getAtrasados(User user, int month, int year) {
+        LocalDate monthStart = firstDayOf(month, year);
+        return repository.findAtrasadosByUserAndMonth(user.getId(), monthStart, monthStart.plusMonths(1));
     }
 
     public List<Pago> getByInquilino(Inquilino inquilino, User user) {
-        return repository.findByInquilinoAndUser(inquilino, user);
+        return repository.findByInquilinoAndUserId(inquilino, user.getId());
     }
 
     public List<Pago> getByPropiedad(Propiedad propiedad, User user) {
-        return repository.findByPropiedadAndUser(propiedad, user);
+        return repository.findByPropiedadAndUserId(propiedad, user.getId());
     }
 
     public List<Pago> getByDateRange(User user, LocalDate startDate, LocalDate endDate) {
-        return repository.findByUserAndDateRange(user, startDate, endDate);
+        return repository.findByUserAndDateRange(user.getId(), startDate, endDate);
     }
 
-    public Page<Pago> search(User user, String search, Pageable pageable) {
-        return repository.searchByUser(user, search, pageable);
+    @Transactional(readOnly = true)
+    public Page<PagoListItem> search(User user, String search, Pageable pageable) {
+        if (trigramSearch.useFor(search)) {
+            return repository.searchRankedByUser(user.getId(), search, pageable);
+        }
+        return repository.searchByUser(user.getId(), search, pageable);
     }
 
     public Long countByUser(User user) {
-        return repository.countByUser(user);
+        return repository.countByUser(user.getId());
     }
 
     public Long countByUserAndEstado(User user, String estado) {
-        return repository.countByUserAndEstado(user, estado);
+        return repository.countByUserAndEstado(user.getId(), estado);
     }
 
     public Long countMorosos(User user) {
-        return repository.countMorososByUser(user);
+        return repository.countMorososByUser(user.getId());
     }
 
     public Long countMorosos(User user, int month, int year) {
-        return repository.countMorososByUserAndMonth(user, month, year);
+        LocalDate monthStart = firstDayOf(month, year);
+        return repository.countMorososByUserAndMonth(user.getId(), monthStart, monthStart.plusMonths(1));
     }
 
     public BigDecimal sumIngresosMes(User user, int month, int year) {
-        return repository.sumPagadosByUserAndMonth(user, month, year);
+        return summaryRepository.sumPagadosByUserAndMonth(user.getId(), year, month);
     }
 
     public BigDecimal sumPendientes(User user) {
-        return repository.sumPendientesByUser(user);
+        return summaryRepository.sumPendientesByUser(user.getId());
     }
 
     public BigDecimal sumPendientes(User user, int month, int year) {
-        return repository.sumPendientesByUserAndMonth(user, month, year);
+        LocalDate monthStart = firstDayOf(month, year);
+        return repository.sumPendientesByUserAndMonth(user.getId(), monthStart, monthStart.plusMonths(1));
+    }
+
+    /**
+     * Reads every dashboard figure for the given month from the monthly rollup
+     */
+    public DashboardStatsResponse getDashboardStats(User user, int month, int year) {
+        YearMonth previous = YearMonth.of(year, month).minusMonths(1);
+        DashboardTotals totals = summaryRepository.findDashboardTotals(
+                user.getId(), year, month, previous.getYear(), previous.getMonthValue());
+
+        BigDecimal ingresosMes = totals.getIngresosMes();
+        BigDecimal ingresosMesAnterior = totals.getIngresosMesAnterior();
+
+        // Calculate variation percentage
+        BigDecimal variacion = BigDecimal.ZERO;
+        if (ingresosMesAnterior.compareTo(BigDecimal.ZERO) > 0) {
+            variacion = ingresosMes.subtract(ingresosMesAnterior)
+                    .divide(ingresosMesAnterior, 4, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal("100"))
+                    .setScale(1, RoundingMode.HALF_UP);
+        }
+
+        return new DashboardStatsResponse(
+                ingresosMes,
+                variacion,
+                totals.getRentasPendientes(),
+                totals.getTotalPropiedades(),
+                totals.getInquilinosActivos(),
+                totals.getMorosos()
+        );
     }
 
     public Long countPropiedadesByMonth(User user, int month, int year) {
-        return repository.countDistinctPropiedadesByUserAndMonth(user, month, year);
+        LocalDate monthStart = firstDayOf(month, year);
+        return repository.countDistinctPropiedadesByUserAndMonth(user.getId(), monthStart, monthStart.plusMonths(1));
     }
 
     public Long countInquilinosByMonth(User user, int month, int year) {
-        return repository.countDistinctInquilinosByUserAndMonth(user, month, year);
+        LocalDate monthStart = firstDayOf(month, year);
+        return repository.countDistinctInquilinosByUserAndMonth(user.getId(), monthStart, monthStart.plusMonths(1));
+    }
+
+    private static LocalDate firstDayOf(int month, int year) {
+        return LocalDate.of(year, month, 1);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
     }
 }
@@ -0,0 +1,104 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.model.Pago;
+import com.taskmanager.backend.repository.PagoMonthlySummaryRepository;
+import com.taskmanager.backend.repository.PagoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the pago_monthly_summary rollup in sync with pagos. Every mutation
+ * recomputes only the months it touched, inside the caller's transaction.
+ */
+@Service
+@Transactional
+public class PagoSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PagoSummaryService.class);
+
+    private final PagoMonthlySummaryRepository summaryRepository;
+    private final PagoRepository pagoRepository;
+
+    public PagoSummaryService(PagoMonthlySummaryRepository summaryRepository, PagoRepository pagoRepository) {
+        this.summaryRepository = summaryRepository;
+        this.pagoRepository = pagoRepository;
+    }
+
+    /**
+     * Months whose rollup rows depend on this payment: the month it is reported
+     * in for its estado, and its due month (used by the 'total' row).
+     */
+    public static Set<YearMonth> periodsOf(Pago pago) {
+        Set<YearMonth> periods = new TreeSet<>();
+        addPeriods(periods, pago.getFechaPago(), pago.getFechaVencimiento());
+        return periods;
+    }
+
+    public static void addPeriods(Set<YearMonth> periods, LocalDate fechaPago, LocalDate fechaVencimiento) {
+        if (fechaPago != null) {
+            periods.add(YearMonth.from(fechaPago));
+        }
+        if (fechaVencimiento != null) {
+            periods.add(YearMonth.from(fechaVencimiento));
+        }
+    }
+
+    /**
+     * Months touched by the payments of a tenant or property, read before a cascade delete.
+     */
+    @Transactional(readOnly = true)
+    public Set<YearMonth> periodsOfInquilino(Long inquilinoId) {
+        Set<YearMonth> periods = new TreeSet<>();
+        for (Object[] row : pagoRepository.findFechasByInquilinoId(inquilinoId)) {
+            addPeriods(periods, (LocalDate) row[0], (LocalDate) row[1]);
+        }
+        return periods;
+    }
+
+    @Transactional(readOnly = true)
+    public Set<YearMonth> periodsOfPropiedad(Long propiedadId) {
+        Set<YearMonth> periods = new TreeSet<>();
+        for (Object[] row : pagoRepository.findFechasByPropiedadId(propiedadId)) {
+            addPeriods(periods, (LocalDate) row[0], (LocalDate) row[1]);
+        }
+        return periods;
+    }
+
+    /**
+     * Recomputes the given months of a user's rollup from the current pagos rows.
+     */
+    public void refresh(Long userId, Collection<YearMonth> periods) {
+        if (userId == null || periods.isEmpty()) {
+            return;
+        }
+        // Pending entity changes must be visible to the native INSERT ... SELECT
+        pagoRepository.flush();
+        summaryRepository.lockUser(userId);
+
+        for (YearMonth period : periods) {
+            LocalDate monthStart = period.atDay(1);
+            summaryRepository.deleteMonth(userId, period.getYear(), period.getMonthValue());
+            summaryRepository.insertMonth(userId, period.getYear(), period.getMonthValue(),
+                    monthStart, monthStart.plusMonths(1));
+        }
+    }
+
+    /**
+     * Rebuilds the whole rollup from pagos. Used for backfill and to repair drift.
+     * @return The number of rollup rows written
+     */
+    public int rebuildAll() {
+        int deleted = summaryRepository.deleteAllRows();
+        int inserted = summaryRepository.insertAllRows();
+        logger.info("pago_monthly_summary rebuilt: {} rows removed, {} rows written", deleted, inserted);
+        return inserted;
+    }
+}
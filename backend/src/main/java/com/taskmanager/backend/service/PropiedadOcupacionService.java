@@ -0,0 +1,182 @@
+package com.taskmanager.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taskmanager.backend.dto.OcupacionRow;
+import com.taskmanager.backend.dto.PropiedadOcupacion;
+import com.taskmanager.backend.dto.PropiedadOcupacion.Segmento;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Occupancy timelines of a user's properties over a window, computed from one
+ * query (properties left-joined with the contracts touching the window) and a
+ * sweep over each property's contract boundaries. Results are cached per
+ * (user, window) and dropped when the user's contracts or properties change.
+ */
+@Service
+public class PropiedadOcupacionService {
+
+    private static final long MAX_DIAS = 3660;
+
+    private final PropiedadRepository propiedadRepository;
+    private final Cache<Ventana, List<PropiedadOcupacion>> timelines;
+
+    public PropiedadOcupacionService(PropiedadRepository propiedadRepository,
+                                     @Value("${propiedades.ocupacion-cache.max-entries:2000}") long maxEntries,
+                                     @Value("${propiedades.ocupacion-cache.ttl-minutes:15}") long ttlMinutes) {
+        this.propiedadRepository = propiedadRepository;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public List<PropiedadOcupacion> getOcupacion(User user, LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new RuntimeException("Las fechas from y to son obligatorias");
+        }
+        if (to.isBefore(from)) {
+            throw new RuntimeException("La fecha to no puede ser anterior a la fecha from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DIAS) {
+            throw new RuntimeException("El rango no puede superar " + MAX_DIAS + " días");
+        }
+        return timelines.get(new Ventana(user.getId(), from, to), this::compute);
+    }
+
+    public void userChanged(Long userId) {
+        AfterCommit.run(() -> timelines.asMap().keySet().removeIf(ventana -> ventana.userId().equals(userId)));
+    }
+
+    public void invalidateAll() {
+        AfterCommit.run(timelines::invalidateAll);
+    }
+
+    private List<PropiedadOcupacion> compute(Ventana ventana) {
+        List<OcupacionRow> rows = propiedadRepository.findOcupacionRows(ventana.userId(), ventana.from(), ventana.to());
+        List<PropiedadOcupacion> result = new ArrayList<>();
+        // Rows come ordered by property
+        int start = 0;
+        for (int i = 1; i <= rows.size(); i++) {
+            if (i == rows.size() || !rows.get(i).propiedadId().equals(rows.get(start).propiedadId())) {
+                result.add(sweep(rows.subList(start, i), ventana.from(), ventana.to()));
+                start = i;
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Turns each contract into +1/-1 boundaries (clipped to the window, end
+     * exclusive) and walks them in date order; a segment ends wherever the
+     * kind of the day changes. Signed contracts take precedence over drafts.
+     */
+    private static PropiedadOcupacion sweep(List<OcupacionRow> rows, LocalDate from, LocalDate to) {
+        List<Boundary> boundaries = new ArrayList<>(rows.size() * 2);
+        for (OcupacionRow row : rows) {
+            String kind = kindOf(row.estado());
+            if (kind == null) {
+                continue;
+            }
+            LocalDate desde = row.fechaInicio().isBefore(from) ? from : row.fechaInicio();
+            LocalDate hasta = row.fechaFin().isAfter(to) ? to : row.fechaFin();
+            if (hasta.isBefore(desde)) {
+                continue;
+            }
+            boolean ocupa = PropiedadOcupacion.OCUPADA.equals(kind);
+            boundaries.add(new Boundary(desde, ocupa, 1));
+            boundaries.add(new Boundary(hasta.plusDays(1), ocupa, -1));
+        }
+        boundaries.sort(Comparator.comparing(Boundary::fecha));
+
+        Timeline timeline = new Timeline();
+        int ocupadas = 0;
+        int reservadas = 0;
+        LocalDate cursor = from;
+        String current = PropiedadOcupacion.VACANTE;
+        int i = 0;
+        while (i < boundaries.size()) {
+            LocalDate fecha = boundaries.get(i).fecha();
+            for (; i < boundaries.size() && boundaries.get(i).fecha().equals(fecha); i++) {
+                Boundary boundary = boundaries.get(i);
+                if (boundary.ocupa()) {
+                    ocupadas += boundary.delta();
+                } else {
+                    reservadas += boundary.delta();
+                }
+            }
+            String kind = ocupadas > 0 ? PropiedadOcupacion.OCUPADA
+                    : reservadas > 0 ? PropiedadOcupacion.RESERVADA : PropiedadOcupacion.VACANTE;
+            if (!kind.equals(current)) {
+                if (fecha.isAfter(cursor)) {
+                    timeline.add(current, cursor, fecha.minusDays(1));
+                }
+                cursor = fecha;
+                current = kind;
+            }
+        }
+        if (!cursor.isAfter(to)) {
+            timeline.add(current, cursor, to);
+        }
+
+        OcupacionRow first = rows.get(0);
+        return new PropiedadOcupacion(first.propiedadId(), first.nombre(), List.copyOf(timeline.segmentos),
+                timeline.ocupados, timeline.reservados, timeline.vacantes);
+    }
+
+    // Same mapping as the property estado in ContratoService.updatePropiedadEstado
+    private static String kindOf(String estado) {
+        if (estado == null) {
+            return null;
+        }
+        switch (estado) {
+            case "firmado":
+            case "activo":
+            case "por_vencer":
+                return PropiedadOcupacion.OCUPADA;
+            case "sin_firmar":
+            case "en_proceso":
+                return PropiedadOcupacion.RESERVADA;
+            default:
+                return null;
+        }
+    }
+
+    private record Ventana(Long userId, LocalDate from, LocalDate to) {
+    }
+
+    private record Boundary(LocalDate fecha, boolean ocupa, int delta) {
+    }
+
+    private static final class Timeline {
+
+        private final List<Segmento> segmentos = new ArrayList<>();
+        private long ocupados;
+        private long reservados;
+        private long vacantes;
+
+        private void add(String estado, LocalDate desde, LocalDate hasta) {
+            segmentos.add(new Segmento(estado, desde, hasta));
+            long dias = ChronoUnit.DAYS.between(desde, hasta) + 1;
+            if (PropiedadOcupacion.OCUPADA.equals(estado)) {
+                ocupados += dias;
+            } else if (PropiedadOcupacion.RESERVADA.equals(estado)) {
+                reservados += dias;
+            } else {
+                vacantes += dias;
+            }
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.taskmanager.backend.service;
 
+import com.taskmanager.backend.config.TrigramSearchSupport;
+import com.taskmanager.backend.dto.CursorPage;
+import com.taskmanager.backend.dto.PageCursor;
+import com.taskmanager.backend.dto.PropiedadListItem;
+import com.taskmanager.backend.dto.SearchHit;
 import com.taskmanager.backend.model.Propiedad;
 import com.taskmanager.backend.model.Inquilino;
 import com.taskmanager.backend.model.User;
@@ -7,12 +12,16 @@ import com.taskmanager.backend.repository.ContratoRepository;
 import com.taskmanager.backend.repository.InquilinoRepository;
 import com.taskmanager.backend.repository.PagoRepository;
 import com.taskmanager.backend.repository.PropiedadRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -22,33 +31,65 @@ public class PropiedadService {
     private final InquilinoRepository inquilinoRepository;
     private final ContratoRepository contratoRepository;
     private final PagoRepository pagoRepository;
+    private final PagoSummaryService pagoSummaryService;
+    private final TrigramSearchSupport trigramSearch;
+    private final SearchIndexService searchIndex;
+    private final ContratoAvailabilityService availability;
+    private final PropiedadOcupacionService ocupacion;
+    private final FileStorageService fileStorageService;
 
     public PropiedadService(PropiedadRepository repository,
                            InquilinoRepository inquilinoRepository,
                            ContratoRepository contratoRepository,
-                           PagoRepository pagoRepository) {
+                           PagoRepository pagoRepository,
+                           PagoSummaryService pagoSummaryService,
+                           TrigramSearchSupport trigramSearch,
+                           SearchIndexService searchIndex,
+                           ContratoAvailabilityService availability,
+                           PropiedadOcupacionService ocupacion,
+                           FileStorageService fileStorageService) {
         this.repository = repository;
         this.inquilinoRepository = inquilinoRepository;
         this.contratoRepository = contratoRepository;
         this.pagoRepository = pagoRepository;
+        this.pagoSummaryService = pagoSummaryService;
+        this.trigramSearch = trigramSearch;
+        this.searchIndex = searchIndex;
+        this.availability = availability;
+        this.ocupacion = ocupacion;
+        this.fileStorageService = fileStorageService;
     }
 
-    public List<Propiedad> getAllByUser(User user) {
-        return repository.findByUserOrderByCreatedAtDesc(user);
+    @Transactional(readOnly = true)
+    public List<PropiedadListItem> getAllByUser(User user) {
+        return repository.findListByUser(user.getId());
     }
 
-    public Page<Propiedad> getAllByUserPaginated(User user, Pageable pageable) {
-        return repository.findByUser(user, pageable);
+    @Transactional(readOnly = true)
+    public Page<PropiedadListItem> getAllByUserPaginated(User user, Pageable pageable) {
+        return repository.findListPageByUser(user.getId(), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<PropiedadListItem> getPageAfter(User user, String search, PageCursor after, int size) {
+        List<PropiedadListItem> rows = repository.findPageAfter(user.getId(), nullToEmpty(search),
+                after.getCreatedAt(), after.getId(),
+                Limit.of(size + 1));
+        return CursorPage.of(rows, size, row -> new PageCursor(row.createdAt(), row.id()));
     }
 
     public Propiedad getById(Long id, User user) {
-        return repository.findByIdAndUser(id, user)
+        return repository.findByIdAndUserId(id, user.getId())
                 .orElseThrow(() -> new RuntimeException("Propiedad no encontrada con id: " + id));
     }
 
     public Propiedad create(Propiedad propiedad, User user) {
+        propiedad.setImagen(fileStorageService.acceptSubmittedUrl(null, propiedad.getImagen()));
         propiedad.setUser(user);
-        return repository.save(propiedad);
+        Propiedad saved = repository.save(propiedad);
+        searchIndex.propiedadSaved(user.getId(), saved);
+        ocupacion.userChanged(user.getId());
+        return saved;
     }
 
     public Propiedad update(Long id, Propiedad propiedadDetails, User user) {
@@ -76,20 +117,28 @@ public class PropiedadService {
             propiedad.setEstado(propiedadDetails.getEstado());
         }
         if (propiedadDetails.getImagen() != null) {
-            propiedad.setImagen(propiedadDetails.getImagen());
+            propiedad.setImagen(fileStorageService.acceptSubmittedUrl(propiedad.getImagen(), propiedadDetails.getImagen()));
         }
 
-        return repository.save(propiedad);
+        Propiedad saved = repository.save(propiedad);
+        searchIndex.propiedadSaved(user.getId(), saved);
+        ocupacion.userChanged(user.getId());
+        return saved;
     }
 
     public void delete(Long id, User user) {
         Propiedad propiedad = getById(id, user);
 
-        // Delete associated payments first
+        // Delete associated payments first, remembering the months they were counted in
+        Set<YearMonth> periods = pagoSummaryService.periodsOfPropiedad(id);
         pagoRepository.deleteByPropiedadId(id);
+        pagoSummaryService.refresh(user.getId(), periods);
 
-        // Delete associated contracts
+        // Delete associated contracts, and with them their PDFs and the property's image
+        List<String> files = new ArrayList<>(contratoRepository.findPdfUrlsByPropiedadId(id));
+        files.add(propiedad.getImagen());
         contratoRepository.deleteByPropiedadId(id);
+        availability.propiedadesChanged(List.of(id));
 
         // Unassign any inquilinos from this property
         List<Inquilino> inquilinos = inquilinoRepository.findByPropiedadId(id);
@@ -100,29 +149,41 @@ public class PropiedadService {
         }
 
         repository.deleteById(id);
+        fileStorageService.deleteFilesAfterCommit(files);
+        searchIndex.deleted(user.getId(), SearchHit.Tipo.PROPIEDAD, id);
+        ocupacion.userChanged(user.getId());
     }
 
     public List<Propiedad> getByEstado(User user, String estado) {
-        return repository.findByUserAndEstado(user, estado);
+        return repository.findByUserIdAndEstado(user.getId(), estado);
     }
 
-    public List<Propiedad> getDisponibles(User user) {
-        return repository.findDisponiblesByUser(user);
+    @Transactional(readOnly = true)
+    public List<PropiedadListItem> getDisponibles(User user) {
+        return repository.findDisponiblesByUser(user.getId());
     }
 
-    public Page<Propiedad> search(User user, String search, Pageable pageable) {
-        return repository.searchByUser(user, search, pageable);
+    @Transactional(readOnly = true)
+    public Page<PropiedadListItem> search(User user, String search, Pageable pageable) {
+        if (trigramSearch.useFor(search)) {
+            return repository.searchRankedByUser(user.getId(), search, pageable);
+        }
+        return repository.searchByUser(user.getId(), search, pageable);
     }
 
     public Long countByUser(User user) {
-        return repository.countByUser(user);
+        return repository.countByUser(user.getId());
     }
 
     public Long countByUserAndEstado(User user, String estado) {
-        return repository.countByUserAndEstado(user, estado);
+        return repository.countByUserAndEstado(user.getId(), estado);
     }
 
     public Propiedad save(Propiedad propiedad) {
         return repository.save(propiedad);
     }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
 }
@@ -0,0 +1,144 @@
+package com.taskmanager.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.taskmanager.backend.dto.ContratoListItem;
+import com.taskmanager.backend.dto.InquilinoListItem;
+import com.taskmanager.backend.dto.PropiedadListItem;
+import com.taskmanager.backend.dto.SearchHit;
+import com.taskmanager.backend.dto.SearchHit.Tipo;
+import com.taskmanager.backend.model.BillingHistory;
+import com.taskmanager.backend.model.Contrato;
+import com.taskmanager.backend.model.Inquilino;
+import com.taskmanager.backend.model.Propiedad;
+import com.taskmanager.backend.model.User;
+import com.taskmanager.backend.repository.BillingHistoryRepository;
+import com.taskmanager.backend.repository.ContratoRepository;
+import com.taskmanager.backend.repository.InquilinoRepository;
+import com.taskmanager.backend.repository.PropiedadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Per-user n-gram indexes behind GET /api/search. A user's index is built from
+ * the database on their first search, kept current by the services once their
+ * transaction commits, and dropped when the memory budget is exceeded or it
+ * has been idle. Billing rows are written outside this application, so new
+ * ones appear after the index is rebuilt.
+ */
+@Service
+public class SearchIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private final PropiedadRepository propiedadRepository;
+    private final InquilinoRepository inquilinoRepository;
+    private final ContratoRepository contratoRepository;
+    private final BillingHistoryRepository billingHistoryRepository;
+    private final Cache<Long, UserSearchIndex> indexes;
+
+    public SearchIndexService(PropiedadRepository propiedadRepository,
+                              InquilinoRepository inquilinoRepository,
+                              ContratoRepository contratoRepository,
+                              BillingHistoryRepository billingHistoryRepository,
+                              @Value("${search.index.memory-budget-mb:64}") long memoryBudgetMb,
+                              @Value("${search.index.idle-minutes:30}") long idleMinutes) {
+        this.propiedadRepository = propiedadRepository;
+        this.inquilinoRepository = inquilinoRepository;
+        this.contratoRepository = contratoRepository;
+        this.billingHistoryRepository = billingHistoryRepository;
+        // Weighed in KiB; an index is weighed again after every change
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(memoryBudgetMb * 1024)
+                .weigher((Long userId, UserSearchIndex index) ->
+                        (int) Math.min(Integer.MAX_VALUE, index.estimatedBytes() / 1024))
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+    }
+
+    public List<SearchHit> search(User user, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return indexes.get(user.getId(), this::build).search(query, limit);
+    }
+
+    public void propiedadSaved(Long userId, Propiedad propiedad) {
+        long id = propiedad.getId();
+        String nombre = propiedad.getNombre();
+        String direccion = propiedad.getDireccion();
+        String ciudad = propiedad.getCiudad();
+        afterCommit(userId, index -> index.putPropiedad(id, nombre, direccion, ciudad));
+    }
+
+    public void inquilinoSaved(Long userId, Inquilino inquilino) {
+        long id = inquilino.getId();
+        String nombre = inquilino.getNombre();
+        String apellido = inquilino.getApellido();
+        String email = inquilino.getEmail();
+        String telefono = inquilino.getTelefono();
+        afterCommit(userId, index -> index.putInquilino(id, nombre, apellido, email, telefono));
+    }
+
+    public void contratoSaved(Long userId, Contrato contrato) {
+        long id = contrato.getId();
+        Inquilino inquilino = contrato.getInquilino();
+        Propiedad propiedad = contrato.getPropiedad();
+        Long inquilinoId = inquilino.getId();
+        String inquilinoNombre = UserSearchIndex.fullName(inquilino.getNombre(), inquilino.getApellido());
+        Long propiedadId = propiedad.getId();
+        String propiedadNombre = propiedad.getNombre();
+        afterCommit(userId, index -> index.putContrato(id, inquilinoId, inquilinoNombre, propiedadId, propiedadNombre));
+    }
+
+    public void deleted(Long userId, Tipo tipo, Long id) {
+        afterCommit(userId, index -> index.remove(tipo, id));
+    }
+
+    public void userDeleted(Long userId) {
+        AfterCommit.run(() -> indexes.invalidate(userId));
+    }
+
+    /**
+     * Applies the change to the user's index, if it is loaded, once the current
+     * transaction commits. Values are captured by the caller before the entity
+     * leaves the transaction.
+     */
+    private void afterCommit(Long userId, Consumer<UserSearchIndex> change) {
+        AfterCommit.run(() -> indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            change.accept(index);
+            return index;
+        }));
+    }
+
+    private UserSearchIndex build(Long userId) {
+        long start = System.nanoTime();
+        UserSearchIndex index = new UserSearchIndex();
+        for (PropiedadListItem propiedad : propiedadRepository.findListByUser(userId)) {
+            index.putPropiedad(propiedad.id(), propiedad.nombre(), propiedad.direccion(), propiedad.ciudad());
+        }
+        for (InquilinoListItem inquilino : inquilinoRepository.findListByUser(userId)) {
+            index.putInquilino(inquilino.id(), inquilino.nombre(), inquilino.apellido(),
+                    inquilino.email(), inquilino.telefono());
+        }
+        for (ContratoListItem contrato : contratoRepository.findListByUser(userId)) {
+            index.putContrato(contrato.id(), contrato.inquilino().id(),
+                    UserSearchIndex.fullName(contrato.inquilino().nombre(), contrato.inquilino().apellido()),
+                    contrato.propiedad().id(), contrato.propiedad().nombre());
+        }
+        for (BillingHistory billing : billingHistoryRepository.findByUserId(userId)) {
+            String monto = billing.getMonto() != null ? billing.getMonto().toPlainString() + " " + billing.getMoneda() : null;
+            index.putFacturacion(billing.getId(), billing.getDescripcion(),
+                    UserSearchIndex.join(" · ", billing.getFecha() != null ? billing.getFecha().toString() : null, monto));
+        }
+        logger.debug("Search index for user {} built in {} ms (~{} KiB)", userId,
+                (System.nanoTime() - start) / 1_000_000, index.estimatedBytes() / 1024);
+        return index;
+    }
+}
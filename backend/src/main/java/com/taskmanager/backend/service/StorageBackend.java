@@ -0,0 +1,100 @@
+package com.taskmanager.backend.service;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Where uploaded files are kept. FileStorageService names the objects and
+ * streams their content; a backend only stores bytes under a path and maps
+ * paths to public URLs. Chosen with storage.backend (supabase or local).
+ */
+public interface StorageBackend {
+
+    /**
+     * Writes the object's content to the channel it is given.
+     */
+    @FunctionalInterface
+    interface Content {
+        long copyTo(WritableByteChannel target) throws IOException;
+    }
+
+    /**
+     * Reads an object's content from the stream it is given.
+     */
+    @FunctionalInterface
+    interface ContentReader<T> {
+        T readFrom(InputStream in) throws IOException;
+    }
+
+    /**
+     * A URL the client can send the object's content to directly, and the
+     * method and headers to send it with.
+     */
+    record SignedUpload(String method, String url, Map<String, String> headers) {
+    }
+
+    /**
+     * What the backend knows about a stored object. sha256 (hex) is null when
+     * the backend cannot report a checksum.
+     */
+    record ObjectInfo(long size, MediaType contentType, String sha256) {
+    }
+
+    /**
+     * An entry of the bucket listing.
+     */
+    record ListedObject(String path, long size, Instant lastModified) {
+    }
+
+    /**
+     * @param size The content length, known up front
+     * @return The number of bytes stored
+     */
+    long write(String path, MediaType contentType, long size, Content content) throws IOException;
+
+    void delete(String path) throws IOException;
+
+    /**
+     * Deletes several objects in one go where the backend allows it. Paths
+     * with no object are ignored.
+     */
+    void deleteAll(Collection<String> paths) throws IOException;
+
+    /**
+     * Every object in the bucket, in ascending path order (a folder sorting as
+     * its name followed by '/'), as far as the backend's listing allows.
+     * Fetched a page at a time while the stream is consumed; close it when done.
+     */
+    Stream<ListedObject> list() throws IOException;
+
+    /**
+     * Streams the object's content to the reader, which must not keep the stream.
+     */
+    <T> T read(String path, ContentReader<T> reader) throws IOException;
+
+    /**
+     * Authorizes one upload of the object at path, bypassing this server.
+     * @param ttl How long the URL may be used for; backends with a fixed lifetime may allow longer
+     */
+    SignedUpload signUpload(String path, MediaType contentType, long size, Duration ttl) throws IOException;
+
+    /**
+     * @return The object's size, type and checksum, or null if there is no object at path
+     */
+    ObjectInfo stat(String path) throws IOException;
+
+    String publicUrl(String path);
+
+    /**
+     * @return The path of the object behind a URL returned by publicUrl, or null if the URL is not one of ours
+     */
+    String pathOf(String url);
+}
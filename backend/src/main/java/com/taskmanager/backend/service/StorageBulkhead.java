@@ -0,0 +1,41 @@
+package com.taskmanager.backend.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the calls to the storage backend in flight at once. A caller waits for
+ * a slot up to the timeout and then gives up, so a slow storage endpoint ties
+ * up a bounded number of threads instead of every worker.
+ */
+final class StorageBulkhead {
+
+    @FunctionalInterface
+    interface Call<T> {
+        T run() throws Exception;
+    }
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    StorageBulkhead(int maxInFlight, long timeoutMillis) {
+        this.permits = new Semaphore(maxInFlight, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    <T> T call(Call<T> call) throws Exception {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("El almacenamiento de archivos está saturado, intente de nuevo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Operación de almacenamiento interrumpida", e);
+        }
+        try {
+            return call.run();
+        } finally {
+            permits.release();
+        }
+    }
+}
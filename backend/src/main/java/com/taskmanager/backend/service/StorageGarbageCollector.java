@@ -0,0 +1,156 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.repository.StoredObjectRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Finds the stored objects no entity refers to (files of deleted entities,
+ * deletes that failed, direct uploads never confirmed, variants of replaced
+ * images) and deletes them. Run by StorageGcScheduler.
+ */
+@Service
+public class StorageGarbageCollector {
+
+    /**
+     * @param unreferenced The objects found, in path order
+     */
+    public record Scan(long listed, long referenced, List<StorageBackend.ListedObject> unreferenced) {
+    }
+
+    private static final int REFERENCE_PAGE = 1000;
+
+    private final StorageBackend backend;
+    private final StoredObjectRepository storedObjectRepository;
+    private final StoredObjectService storedObjects;
+    private final FileStorageService fileStorageService;
+
+    public StorageGarbageCollector(StorageBackend backend, StoredObjectRepository storedObjectRepository,
+                                   StoredObjectService storedObjects, FileStorageService fileStorageService) {
+        this.backend = backend;
+        this.storedObjectRepository = storedObjectRepository;
+        this.storedObjects = storedObjects;
+        this.fileStorageService = fileStorageService;
+    }
+
+    /**
+     * Walks the bucket listing and the URLs held by the entities side by side,
+     * both in path order, so each is read once and neither is kept in memory.
+     * The URLs are read a page at a time, each page its own short query, so no
+     * connection is held while the listing pages through the bucket.
+     * @param cutoff Objects modified after it are skipped: their entity may not be saved yet
+     * @param limit The most objects to return; the listing stops there and the rest wait for the next run
+     */
+    public Scan findUnreferenced(Instant cutoff, int limit) {
+        List<StorageBackend.ListedObject> unreferenced = new ArrayList<>();
+        try (Stream<StorageBackend.ListedObject> objects = backend.list()) {
+            Merge merge = new Merge(new ReferencedPaths(backend.publicUrl("")));
+            objects.takeWhile(object -> unreferenced.size() < limit)
+                    .filter(object -> !merge.isReferenced(object.path()))
+                    .filter(object -> object.lastModified().isBefore(cutoff))
+                    .forEach(unreferenced::add);
+            return new Scan(merge.checked, merge.referenced, unreferenced);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al listar archivos de storage: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes a batch returned by findUnreferenced. The batch is checked again
+     * first: an entity may have been given one of the URLs since the scan, an
+     * indexed object may have been reused by an upload within the grace period,
+     * and some backends do not list in exact path order.
+     * @return The objects deleted
+     */
+    public List<StorageBackend.ListedObject> delete(List<StorageBackend.ListedObject> batch, Instant cutoff) {
+        Map<String, StorageBackend.ListedObject> byUrl = new LinkedHashMap<>();
+        batch.forEach(object -> byUrl.put(backend.publicUrl(object.path()), object));
+        storedObjectRepository.findReferencedUrls(byUrl.keySet()).forEach(byUrl::remove);
+        if (byUrl.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> paths = byUrl.values().stream().map(StorageBackend.ListedObject::path).toList();
+        Set<String> inUse = storedObjects.forget(paths, LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault()));
+        List<StorageBackend.ListedObject> garbage = byUrl.values().stream()
+                .filter(object -> !inUse.contains(object.path()))
+                .toList();
+        if (!garbage.isEmpty()) {
+            fileStorageService.deleteObjects(garbage.stream().map(StorageBackend.ListedObject::path).toList());
+        }
+        return garbage;
+    }
+
+    // The referenced paths, fetched REFERENCE_PAGE at a time after the last one seen
+    private final class ReferencedPaths implements Iterator<String> {
+
+        private final String base;
+        private Iterator<String> page = Collections.emptyIterator();
+        private String last = "";
+        private boolean exhausted;
+
+        ReferencedPaths(String base) {
+            this.base = base;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !exhausted) {
+                List<String> urls = storedObjectRepository.findReferencedUrlsAfter(base, last, REFERENCE_PAGE);
+                exhausted = urls.size() < REFERENCE_PAGE;
+                if (!urls.isEmpty()) {
+                    last = urls.get(urls.size() - 1);
+                }
+                page = urls.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next().substring(base.length());
+        }
+    }
+
+    // The referenced paths ascend like the listing, so the cursor only moves forward
+    private static final class Merge {
+
+        private final Iterator<String> references;
+        private String reference;
+        private long checked;
+        private long referenced;
+
+        Merge(Iterator<String> references) {
+            this.references = references;
+            this.reference = references.hasNext() ? references.next() : null;
+        }
+
+        boolean isReferenced(String path) {
+            checked++;
+            while (reference != null && reference.compareTo(path) < 0) {
+                reference = references.hasNext() ? references.next() : null;
+            }
+            if (path.equals(reference)) {
+                referenced++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
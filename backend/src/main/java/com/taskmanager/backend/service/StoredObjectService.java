@@ -0,0 +1,83 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.dto.StoredFile;
+import com.taskmanager.backend.model.StoredObject;
+import com.taskmanager.backend.repository.StoredObjectRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Index of stored files by content, with the number of references to each.
+ * Every statement is conditional on the count it expects, so a reference
+ * added while the last one is being released either keeps the object alive
+ * or misses it (and the caller stores a new copy), never both.
+ */
+@Service
+public class StoredObjectService {
+
+    private final StoredObjectRepository repository;
+
+    public StoredObjectService(StoredObjectRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Adds a reference to the stored object with this content, if there is one.
+     * @return The object's path, or null if the content is not stored
+     */
+    @Transactional
+    public String reference(String sha256, long size) {
+        if (repository.addReference(sha256, size, LocalDateTime.now()) == 0) {
+            return null;
+        }
+        return repository.findById(sha256).map(StoredObject::getPath).orElse(null);
+    }
+
+    /**
+     * Indexes a newly stored object with one reference. Fails with a
+     * DataIntegrityViolationException if the same content was indexed meanwhile.
+     */
+    @Transactional
+    public void register(StoredFile file, String contentType) {
+        repository.insertObject(file.sha256(), file.path(), file.size(), contentType, LocalDateTime.now());
+    }
+
+    /**
+     * Drops a reference to the object at path.
+     * @return Whether the object can now be deleted: that was its last reference,
+     *         or it is not indexed (stored before the index existed)
+     */
+    @Transactional
+    public boolean release(String path) {
+        int released = repository.removeReference(path);
+        int deleted = repository.deleteUnreferenced(path);
+        return released == 0 || deleted > 0;
+    }
+
+    /**
+     * Drops a reference taken twice by the same holder (an entity given the
+     * object it already had), leaving the one it keeps. Never deletes the object.
+     */
+    @Transactional
+    public void releaseDuplicate(String path) {
+        repository.removeDuplicateReference(path);
+    }
+
+    /**
+     * Drops the rows of the objects at these paths that have not been
+     * referenced since cutoff, whatever their count, so the objects can be
+     * deleted. Used by the storage garbage collector on objects that no entity
+     * refers to.
+     * @return The paths still indexed: referenced too recently to be deleted
+     */
+    @Transactional
+    public Set<String> forget(Collection<String> paths, LocalDateTime cutoff) {
+        repository.deleteNotReferencedSince(paths, cutoff);
+        return new HashSet<>(repository.findPathsIn(paths));
+    }
+}
@@ -0,0 +1,206 @@
+package com.taskmanager.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Objects in a public Supabase Storage bucket, written and deleted through its
+ * REST API with the shared storage client (StorageClientConfig).
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "supabase", matchIfMissing = true)
+public class SupabaseStorageBackend implements StorageBackend {
+
+    @Value("${supabase.url}")
+    private String supabaseUrl;
+
+    @Value("${supabase.key}")
+    private String supabaseKey;
+
+    @Value("${supabase.storage.bucket:contratos}")
+    private String storageBucket;
+
+    // The most entries the list API returns per call
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> LIST_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Map<String, Object>> SIGN_RESPONSE =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestTemplate restTemplate;
+
+    public SupabaseStorageBackend(RestTemplate storageRestTemplate) {
+        this.restTemplate = storageRestTemplate;
+    }
+
+    @Override
+    public long write(String path, MediaType contentType, long size, Content content) {
+        String uploadUrl = supabaseUrl + "/storage/v1/object/" + storageBucket + "/" + path;
+        long[] written = new long[1];
+        restTemplate.execute(uploadUrl, HttpMethod.POST, request -> {
+            HttpHeaders headers = request.getHeaders();
+            authorize(headers);
+            headers.setContentType(contentType);
+            headers.setContentLength(size);
+            // Sent as the body is written; getBody() would buffer it whole
+            ((StreamingHttpOutputMessage) request).setBody(out -> written[0] = content.copyTo(Channels.newChannel(out)));
+        }, response -> null);
+        return written[0];
+    }
+
+    @Override
+    public void delete(String path) {
+        String deleteUrl = supabaseUrl + "/storage/v1/object/" + storageBucket + "/" + path;
+        HttpHeaders headers = new HttpHeaders();
+        authorize(headers);
+        restTemplate.exchange(deleteUrl, HttpMethod.DELETE, new HttpEntity<Void>(headers), String.class);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> paths) {
+        String deleteUrl = supabaseUrl + "/storage/v1/object/" + storageBucket;
+        HttpHeaders headers = new HttpHeaders();
+        authorize(headers);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.exchange(deleteUrl, HttpMethod.DELETE, new HttpEntity<>(Map.of("prefixes", paths), headers), String.class);
+    }
+
+    /**
+     * Supabase lists one folder level at a time, sorted by name, with the
+     * subfolders among the objects; each subfolder is listed where it appears.
+     */
+    @Override
+    public Stream<ListedObject> list() {
+        return listFolder("");
+    }
+
+    private Stream<ListedObject> listFolder(String folder) {
+        return Stream.iterate(0, offset -> offset + LIST_PAGE_SIZE)
+                .map(offset -> listPage(folder, offset))
+                .takeWhile(page -> !page.isEmpty())
+                .flatMap(List::stream)
+                .flatMap(entry -> {
+                    String path = folder.isEmpty() ? (String) entry.get("name") : folder + "/" + entry.get("name");
+                    // Folders are the entries without an id
+                    return entry.get("id") == null ? listFolder(path) : Stream.of(listed(path, entry));
+                });
+    }
+
+    private List<Map<String, Object>> listPage(String folder, int offset) {
+        String listUrl = supabaseUrl + "/storage/v1/object/list/" + storageBucket;
+        HttpHeaders headers = new HttpHeaders();
+        authorize(headers);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        Map<String, Object> body = Map.of("prefix", folder, "limit", LIST_PAGE_SIZE, "offset", offset,
+                "sortBy", Map.of("column", "name", "order", "asc"));
+        List<Map<String, Object>> page = restTemplate.exchange(listUrl, HttpMethod.POST, new HttpEntity<>(body, headers),
+                LIST_RESPONSE).getBody();
+        return page != null ? page : List.of();
+    }
+
+    private static ListedObject listed(String path, Map<String, Object> entry) {
+        Object metadata = entry.get("metadata");
+        Object size = metadata instanceof Map<?, ?> map ? map.get("size") : null;
+        return new ListedObject(path, size instanceof Number number ? number.longValue() : 0,
+                parseDate(entry.get("updated_at")));
+    }
+
+    // An object of unknown age is taken as new
+    private static Instant parseDate(Object date) {
+        try {
+            return date instanceof String text ? OffsetDateTime.parse(text).toInstant() : Instant.now();
+        } catch (DateTimeParseException e) {
+            return Instant.now();
+        }
+    }
+
+    @Override
+    public <T> T read(String path, ContentReader<T> reader) {
+        String objectUrl = supabaseUrl + "/storage/v1/object/authenticated/" + storageBucket + "/" + path;
+        return restTemplate.execute(objectUrl, HttpMethod.GET, request -> authorize(request.getHeaders()),
+                response -> reader.readFrom(response.getBody()));
+    }
+
+    /**
+     * Supabase signed upload URLs: the client PUTs the content to the returned
+     * URL. Supabase fixes their lifetime at two hours, so ttl is not enforced here.
+     */
+    @Override
+    public SignedUpload signUpload(String path, MediaType contentType, long size, Duration ttl) {
+        String signUrl = supabaseUrl + "/storage/v1/object/upload/sign/" + storageBucket + "/" + path;
+        HttpHeaders headers = new HttpHeaders();
+        authorize(headers);
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(signUrl, HttpMethod.POST,
+                new HttpEntity<>(headers), SIGN_RESPONSE);
+        Object url = response.getBody() != null ? response.getBody().get("url") : null;
+        if (url == null) {
+            throw new RuntimeException("Storage no devolvió una URL de subida");
+        }
+        // Relative to the storage API root
+        return new SignedUpload("PUT", supabaseUrl + "/storage/v1" + url,
+                Map.of(HttpHeaders.CONTENT_TYPE, contentType.toString()));
+    }
+
+    /**
+     * Read from the object's headers; Supabase does not expose a SHA-256 of the content.
+     */
+    @Override
+    public ObjectInfo stat(String path) {
+        String objectUrl = supabaseUrl + "/storage/v1/object/authenticated/" + storageBucket + "/" + path;
+        HttpHeaders headers = new HttpHeaders();
+        authorize(headers);
+        try {
+            HttpHeaders object = restTemplate.exchange(objectUrl, HttpMethod.HEAD, new HttpEntity<Void>(headers), Void.class)
+                    .getHeaders();
+            return new ObjectInfo(object.getContentLength(), object.getContentType(), null);
+        } catch (HttpClientErrorException e) {
+            // Missing objects are answered with 400 by some Supabase versions
+            if (e.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND) || e.getStatusCode().isSameCodeAs(HttpStatus.BAD_REQUEST)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String publicUrl(String path) {
+        return publicBase() + path;
+    }
+
+    @Override
+    public String pathOf(String url) {
+        String basePath = publicBase();
+        return url.startsWith(basePath) ? url.substring(basePath.length()) : null;
+    }
+
+    private String publicBase() {
+        return supabaseUrl + "/storage/v1/object/public/" + storageBucket + "/";
+    }
+
+    private void authorize(HttpHeaders headers) {
+        headers.set("Authorization", "Bearer " + supabaseKey);
+        headers.set("apikey", supabaseKey);
+    }
+}
@@ -19,7 +19,7 @@ public class TaskService {
     }
 
     public List<Task> getAllTasksByUser(User user) {
-        return repository.findByUserOrderByIdDesc(user);
+        return repository.findByUserIdOrderByIdDesc(user.getId());
     }
 
     public Task createTask(Task task, User user) {
@@ -30,7 +30,7 @@ public class TaskService {
     }
 
     public Task toggleTask(Long id, User user) {
-        Task task = repository.findByIdAndUser(id, user)
+        Task task = repository.findByIdAndUserId(id, user.getId())
                 .orElseThrow(() -> new TaskNotFoundException(id));
 
         task.setCompleted(!task.isCompleted());
@@ -41,7 +41,7 @@ public class TaskService {
     }
 
     public Task updateTask(Long id, TaskRequest request, User user) {
-        Task task = repository.findByIdAndUser(id, user)
+        Task task = repository.findByIdAndUserId(id, user.getId())
                 .orElseThrow(() -> new TaskNotFoundException(id));
 
         if (request.getTitle() != null && !request.getTitle().isBlank()) {
@@ -60,7 +60,7 @@ public class TaskService {
     }
 
     public void deleteTask(Long id, User user) {
-        if (!repository.existsByIdAndUser(id, user)) {
+        if (!repository.existsByIdAndUserId(id, user.getId())) {
             throw new TaskNotFoundException(id);
         }
         repository.deleteById(id);
@@ -0,0 +1,43 @@
+package com.taskmanager.backend.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed number of direct buffers shared by the uploads in progress. Buffers are
+ * allocated on first use and reused afterwards; when all are taken, an upload
+ * waits for one up to the timeout, which also caps how many uploads stream at once.
+ */
+final class UploadBufferPool {
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    UploadBufferPool(int buffers, int bufferSize, long timeoutMillis) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(buffers, true);
+    }
+
+    ByteBuffer acquire() {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Demasiadas subidas de archivos en curso, intente de nuevo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Subida de archivo interrumpida", e);
+        }
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void release(ByteBuffer buffer) {
+        free.offer(buffer);
+        permits.release();
+    }
+}
@@ -1,5 +1,6 @@
 package com.taskmanager.backend.service;
 
+import com.taskmanager.backend.config.TrigramSearchSupport;
 import com.taskmanager.backend.dto.ChangePasswordRequest;
 import com.taskmanager.backend.dto.SubscriptionRequest;
 import com.taskmanager.backend.dto.UserPreferenceRequest;
@@ -14,6 +15,7 @@ import com.taskmanager.backend.repository.UserPreferenceRepository;
 import com.taskmanager.backend.repository.UserRepository;
 import com.taskmanager.backend.repository.UserSessionRepository;
 import com.taskmanager.backend.repository.UserSubscriptionRepository;
+import com.taskmanager.backend.security.VerifiedTokenCache;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,6 +34,10 @@ public class UserProfileService {
     private final UserSubscriptionRepository subscriptionRepository;
     private final BillingHistoryRepository billingHistoryRepository;
     private final PasswordEncoder passwordEncoder;
+    private final VerifiedTokenCache tokenCache;
+    private final TrigramSearchSupport trigramSearch;
+    private final SearchIndexService searchIndex;
+    private final FileStorageService fileStorageService;
 
     public UserProfileService(
             UserRepository userRepository,
@@ -39,13 +45,21 @@ public class UserProfileService {
             UserSessionRepository sessionRepository,
             UserSubscriptionRepository subscriptionRepository,
             BillingHistoryRepository billingHistoryRepository,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder,
+            VerifiedTokenCache tokenCache,
+            TrigramSearchSupport trigramSearch,
+            SearchIndexService searchIndex,
+            FileStorageService fileStorageService) {
         this.userRepository = userRepository;
         this.preferenceRepository = preferenceRepository;
         this.sessionRepository = sessionRepository;
         this.subscriptionRepository = subscriptionRepository;
         this.billingHistoryRepository = billingHistoryRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenCache = tokenCache;
+        this.trigramSearch = trigramSearch;
+        this.searchIndex = searchIndex;
+        this.fileStorageService = fileStorageService;
     }
 
     // ---- Profile ----
@@ -53,17 +67,31 @@ public class UserProfileService {
         return user;
     }
 
+    @Transactional
     public User updateProfile(User user, UserProfileRequest request) {
         if (request.getName() != null) user.setName(request.getName());
         if (request.getApellido() != null) user.setApellido(request.getApellido());
         if (request.getTelefono() != null) user.setTelefono(request.getTelefono());
-        if (request.getAvatar() != null) user.setAvatar(request.getAvatar());
+        if (request.getAvatar() != null) user.setAvatar(fileStorageService.acceptSubmittedUrl(user.getAvatar(), request.getAvatar()));
         return userRepository.save(user);
     }
 
+    @Transactional
     public User removeAvatar(User user) {
-        user.setAvatar(null);
-        return userRepository.save(user);
+        return changeAvatar(user, null);
+    }
+
+    /**
+     * Saves the user with an uploaded avatar (or none) and lets go of the
+     * previous one once the change commits.
+     */
+    @Transactional
+    public User changeAvatar(User user, String avatarUrl) {
+        String previous = user.getAvatar();
+        user.setAvatar(avatarUrl);
+        User saved = userRepository.save(user);
+        fileStorageService.releaseReplaced(previous, avatarUrl);
+        return saved;
     }
 
     // ---- Password ----
@@ -73,11 +101,13 @@ public class UserProfileService {
         }
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        // Sessions opened with the old password end; the caller gets a new token
+        tokenCache.revokeEarlierTokens(user.getId());
     }
 
     // ---- Preferences ----
     public UserPreference getPreferences(User user) {
-        return preferenceRepository.findByUser(user)
+        return preferenceRepository.findByUserId(user.getId())
                 .orElseGet(() -> {
                     UserPreference pref = new UserPreference();
                     pref.setUser(user);
@@ -101,7 +131,7 @@ public class UserProfileService {
 
     // ---- Sessions ----
     public List<UserSession> getSessions(User user) {
-        return sessionRepository.findByUserOrderByFechaInicioDesc(user);
+        return sessionRepository.findByUserIdOrderByFechaInicioDesc(user.getId());
     }
 
     @Transactional
@@ -117,7 +147,7 @@ public class UserProfileService {
 
     @Transactional
     public void closeAllOtherSessions(User user, Long currentSessionId) {
-        List<UserSession> sessions = sessionRepository.findByUserAndActiva(user, true);
+        List<UserSession> sessions = sessionRepository.findByUserIdAndActiva(user.getId(), true);
         for (UserSession session : sessions) {
             if (!session.getId().equals(currentSessionId)) {
                 session.setActiva(false);
@@ -128,7 +158,7 @@ public class UserProfileService {
 
     // ---- Subscription ----
     public UserSubscription getSubscription(User user) {
-        return subscriptionRepository.findByUser(user)
+        return subscriptionRepository.findByUserId(user.getId())
                 .orElseGet(() -> {
                     UserSubscription sub = new UserSubscription();
                     sub.setUser(user);
@@ -159,27 +189,41 @@ public class UserProfileService {
 
     // ---- Billing History ----
     public Page<BillingHistory> getBillingHistory(User user, String search, LocalDate after, Pageable pageable) {
+        boolean ranked = trigramSearch.useFor(search);
         if (search != null && !search.isEmpty() && after != null) {
-            return billingHistoryRepository.searchByUserAndDateAfter(user, search, after, pageable);
+            return ranked
+                    ? billingHistoryRepository.searchRankedByUserAndDateAfter(user.getId(), search, after, pageable)
+                    : billingHistoryRepository.searchByUserAndDateAfter(user.getId(), search, after, pageable);
         } else if (search != null && !search.isEmpty()) {
-            return billingHistoryRepository.searchByUser(user, search, pageable);
+            return ranked
+                    ? billingHistoryRepository.searchRankedByUser(user.getId(), search, pageable)
+                    : billingHistoryRepository.searchByUser(user.getId(), search, pageable);
         } else if (after != null) {
-            return billingHistoryRepository.findByUserAndFechaAfterOrderByFechaDesc(user, after, pageable);
+            return billingHistoryRepository.findByUserIdAndFechaAfterOrderByFechaDesc(user.getId(), after, pageable);
         }
-        return billingHistoryRepository.findByUserOrderByFechaDesc(user, pageable);
+        return billingHistoryRepository.findByUserIdOrderByFechaDesc(user.getId(), pageable);
     }
 
     public long countBillingHistory(User user) {
-        return billingHistoryRepository.countByUser(user);
+        return billingHistoryRepository.countByUserId(user.getId());
     }
 
     // ---- Account ----
     @Transactional
     public void deleteAccount(User user) {
-        preferenceRepository.findByUser(user).ifPresent(preferenceRepository::delete);
-        subscriptionRepository.findByUser(user).ifPresent(subscriptionRepository::delete);
-        sessionRepository.findByUserOrderByFechaInicioDesc(user).forEach(sessionRepository::delete);
-        billingHistoryRepository.deleteByUser(user);
+        preferenceRepository.findByUserId(user.getId()).ifPresent(preferenceRepository::delete);
+        subscriptionRepository.findByUserId(user.getId()).ifPresent(subscriptionRepository::delete);
+        sessionRepository.findByUserIdOrderByFechaInicioDesc(user.getId()).forEach(sessionRepository::delete);
+        billingHistoryRepository.deleteByUserId(user.getId());
         userRepository.delete(user);
+        if (user.getAvatar() != null) {
+            fileStorageService.deleteFilesAfterCommit(List.of(user.getAvatar()));
+        }
+        // Outstanding tokens of the deleted account must stop authenticating
+        Long userId = user.getId();
+        AfterCommit.run(() -> {
+            tokenCache.revokeUser(userId);
+            searchIndex.userDeleted(userId);
+        });
     }
 }
@@ -0,0 +1,457 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.dto.SearchHit;
+import com.taskmanager.backend.dto.SearchHit.Tipo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted trigram index over the searchable rows of one user. Words are
+ * lowercased, stripped of accents and padded like pg_trgm ("  ana "), so a
+ * short query matches word prefixes; the last word of a query is left open
+ * at the end for type-ahead. Lookups share a read lock, updates take the
+ * write lock.
+ */
+final class UserSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Share of the query trigrams a row must contain to be returned
+    private static final double MIN_SCORE = 0.6;
+
+    // Rough object sizes for the memory estimate the cache weighs indexes by
+    private static final int ENTRY_BYTES = 120;
+    private static final int POSTINGS_BYTES = 120;
+    private static final int LINK_BYTES = 48;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // Rows are numbered densely so postings hold ints and a lookup counts matches in an array
+    private Entry[] slots = new Entry[64];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    // Contract ids by tenant and by property, to refresh or drop them with their parent
+    private final Map<Long, Set<Long>> contratosByInquilino = new HashMap<>();
+    private final Map<Long, Set<Long>> contratosByPropiedad = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long estimatedBytes;
+
+    void putPropiedad(long id, String nombre, String direccion, String ciudad) {
+        lock.writeLock().lock();
+        try {
+            put(new Entry(Tipo.PROPIEDAD, id, nombre, join(", ", direccion, ciudad),
+                    trigrams(nombre, direccion, ciudad), null, null));
+            for (Entry contrato : contratosOf(contratosByPropiedad, id)) {
+                put(contrato(contrato.id, contrato.inquilinoId, contrato.titulo, id, nombre));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putInquilino(long id, String nombre, String apellido, String email, String telefono) {
+        lock.writeLock().lock();
+        try {
+            String fullName = fullName(nombre, apellido);
+            put(new Entry(Tipo.INQUILINO, id, fullName, join(" · ", email, telefono),
+                    trigrams(nombre, apellido, email, telefono), null, null));
+            for (Entry contrato : contratosOf(contratosByInquilino, id)) {
+                put(contrato(contrato.id, id, fullName, contrato.propiedadId, contrato.detalle));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Contracts are found by tenant and property name; both are refreshed when
+     * the tenant or the property is renamed.
+     */
+    void putContrato(long id, Long inquilinoId, String inquilino, Long propiedadId, String propiedad) {
+        lock.writeLock().lock();
+        try {
+            put(contrato(id, inquilinoId, inquilino, propiedadId, propiedad));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putFacturacion(long id, String descripcion, String detalle) {
+        lock.writeLock().lock();
+        try {
+            put(new Entry(Tipo.FACTURACION, id, descripcion, detalle, trigrams(descripcion), null, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removing a tenant or a property also removes its contracts, as the
+     * services delete them together.
+     */
+    void remove(Tipo tipo, long id) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(key(tipo, id));
+            if (entry != null) {
+                unindex(entry);
+            }
+            if (tipo == Tipo.INQUILINO || tipo == Tipo.PROPIEDAD) {
+                for (Entry contrato : contratosOf(tipo == Tipo.INQUILINO ? contratosByInquilino : contratosByPropiedad, id)) {
+                    unindex(contrato);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<SearchHit> search(String query, int limit) {
+        String[] queryTrigrams = queryTrigrams(query);
+        if (queryTrigrams.length == 0) {
+            return List.of();
+        }
+        int required = (int) Math.ceil(queryTrigrams.length * MIN_SCORE);
+        // Worst of the best kept at the head
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(queryTrigrams.length);
+            for (String trigram : queryTrigrams) {
+                Postings list = postings.get(trigram);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            // A row missing more than this many query trigrams cannot qualify, so every
+            // result is in one of the shortest (allowedMisses + 1) lists: count those,
+            // then check the longer lists against each candidate's own trigrams
+            int allowedMisses = lists.size() - required;
+            if (allowedMisses < 0) {
+                return List.of();
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+            int seedLists = allowedMisses + 1;
+
+            int[] counts = new int[slotCount];
+            int[] seen = new int[16];
+            int seenCount = 0;
+            for (Postings list : lists.subList(0, seedLists)) {
+                for (int i = 0; i < list.size; i++) {
+                    int slot = list.slots[i];
+                    if (counts[slot]++ == 0) {
+                        if (seenCount == seen.length) {
+                            seen = Arrays.copyOf(seen, seenCount * 2);
+                        }
+                        seen[seenCount++] = slot;
+                    }
+                }
+            }
+
+            for (int i = 0; i < seenCount; i++) {
+                Entry entry = slots[seen[i]];
+                int count = counts[seen[i]];
+                for (int j = seedLists; j < lists.size() && count + lists.size() - j >= required; j++) {
+                    if (entry.contains(lists.get(j).trigram)) {
+                        count++;
+                    }
+                }
+                if (count >= required) {
+                    Candidate candidate = new Candidate(entry, count, (double) count / entry.trigrams.length);
+                    if (best.size() < limit) {
+                        best.add(candidate);
+                    } else if (candidate.compareTo(best.peek()) < 0) {
+                        best.poll();
+                        best.add(candidate);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(null);
+        List<SearchHit> hits = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            Entry entry = candidate.entry;
+            double score = (double) candidate.matches / queryTrigrams.length;
+            hits.add(new SearchHit(entry.tipo, entry.id, entry.titulo, entry.detalle, Math.round(score * 100) / 100.0));
+        }
+        return hits;
+    }
+
+    long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return estimatedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String fullName(String nombre, String apellido) {
+        return join(" ", nombre, apellido);
+    }
+
+    static String join(String separator, String... parts) {
+        StringBuilder result = new StringBuilder();
+        for (String part : parts) {
+            if (part != null && !part.isBlank()) {
+                if (result.length() > 0) {
+                    result.append(separator);
+                }
+                result.append(part);
+            }
+        }
+        return result.toString();
+    }
+
+    private void put(Entry entry) {
+        Entry previous = entries.get(key(entry.tipo, entry.id));
+        if (previous != null) {
+            unindex(previous);
+        }
+        entry.slot = allocateSlot();
+        slots[entry.slot] = entry;
+        String[] trigrams = entry.trigrams;
+        for (int i = 0; i < trigrams.length; i++) {
+            Postings list = postings.get(trigrams[i]);
+            if (list == null) {
+                list = new Postings(trigrams[i]);
+                postings.put(trigrams[i], list);
+                estimatedBytes += POSTINGS_BYTES;
+            } else {
+                // Share one String per trigram between the map and the entries
+                trigrams[i] = list.trigram;
+            }
+            list.add(entry.slot);
+        }
+        entries.put(key(entry.tipo, entry.id), entry);
+        estimatedBytes += sizeOf(entry);
+        if (entry.tipo == Tipo.CONTRATO) {
+            link(contratosByInquilino, entry.inquilinoId, entry.id);
+            link(contratosByPropiedad, entry.propiedadId, entry.id);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        for (String trigram : entry.trigrams) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(entry.slot) && list.size == 0) {
+                postings.remove(trigram);
+                estimatedBytes -= POSTINGS_BYTES;
+            }
+        }
+        entries.remove(key(entry.tipo, entry.id));
+        releaseSlot(entry.slot);
+        estimatedBytes -= sizeOf(entry);
+        if (entry.tipo == Tipo.CONTRATO) {
+            unlink(contratosByInquilino, entry.inquilinoId, entry.id);
+            unlink(contratosByPropiedad, entry.propiedadId, entry.id);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slotCount * 2);
+            estimatedBytes += 4L * slotCount;
+        }
+        return slotCount++;
+    }
+
+    private void releaseSlot(int slot) {
+        slots[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private List<Entry> contratosOf(Map<Long, Set<Long>> byParent, long parentId) {
+        List<Entry> result = new ArrayList<>();
+        for (Long contratoId : byParent.getOrDefault(parentId, Set.of())) {
+            result.add(entries.get(key(Tipo.CONTRATO, contratoId)));
+        }
+        return result;
+    }
+
+    private void link(Map<Long, Set<Long>> byParent, Long parentId, long contratoId) {
+        if (parentId != null && byParent.computeIfAbsent(parentId, id -> new HashSet<>()).add(contratoId)) {
+            estimatedBytes += LINK_BYTES;
+        }
+    }
+
+    private void unlink(Map<Long, Set<Long>> byParent, Long parentId, long contratoId) {
+        Set<Long> contratos = parentId != null ? byParent.get(parentId) : null;
+        if (contratos != null && contratos.remove(contratoId)) {
+            estimatedBytes -= LINK_BYTES;
+            if (contratos.isEmpty()) {
+                byParent.remove(parentId);
+            }
+        }
+    }
+
+    private static Entry contrato(long id, Long inquilinoId, String inquilino, Long propiedadId, String propiedad) {
+        return new Entry(Tipo.CONTRATO, id, inquilino, propiedad, trigrams(inquilino, propiedad), inquilinoId, propiedadId);
+    }
+
+    private static long sizeOf(Entry entry) {
+        // Entry and its strings, plus one posting slot and one array slot per trigram
+        return ENTRY_BYTES + 2L * (length(entry.titulo) + length(entry.detalle)) + 12L * entry.trigrams.length;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static long key(Tipo tipo, long id) {
+        return ((long) tipo.ordinal() << 56) | id;
+    }
+
+    private static String[] trigrams(String... fields) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (String word : words(field)) {
+                addTrigrams("  " + word + " ", result);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    private static String[] queryTrigrams(String query) {
+        List<String> words = words(query);
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            boolean last = i == words.size() - 1;
+            addTrigrams("  " + words.get(i) + (last ? "" : " "), result);
+        }
+        return result.toArray(new String[0]);
+    }
+
+    private static void addTrigrams(String padded, Set<String> result) {
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+    }
+
+    private static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATORS.split(normalized)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static final class Entry {
+
+        private final Tipo tipo;
+        private final long id;
+        private final String titulo;
+        private final String detalle;
+        private final String[] trigrams;
+        private final Long inquilinoId;
+        private final Long propiedadId;
+        private int slot;
+
+        private Entry(Tipo tipo, long id, String titulo, String detalle, String[] trigrams,
+                      Long inquilinoId, Long propiedadId) {
+            this.tipo = tipo;
+            this.id = id;
+            this.titulo = titulo;
+            this.detalle = detalle;
+            this.trigrams = trigrams;
+            this.inquilinoId = inquilinoId;
+            this.propiedadId = propiedadId;
+        }
+
+        // Trigram strings are shared with the postings map, so identity is enough
+        private boolean contains(String trigram) {
+            for (String own : trigrams) {
+                if (own == trigram) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Ranked by matched query trigrams, then by the share of the row they cover
+     * (the row closest to the query as a whole), then by type and newest id.
+     */
+    private record Candidate(Entry entry, int matches, double density) implements Comparable<Candidate> {
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (matches != other.matches) {
+                return Integer.compare(other.matches, matches);
+            }
+            if (density != other.density) {
+                return Double.compare(other.density, density);
+            }
+            if (entry.tipo != other.entry.tipo) {
+                return entry.tipo.compareTo(other.entry.tipo);
+            }
+            return Long.compare(other.entry.id, entry.id);
+        }
+    }
+
+    /**
+     * Slots of the rows containing one trigram, unordered.
+     */
+    private static final class Postings {
+
+        private final String trigram;
+        private int[] slots = new int[4];
+        private int size;
+
+        private Postings(String trigram) {
+            this.trigram = trigram;
+        }
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        private boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
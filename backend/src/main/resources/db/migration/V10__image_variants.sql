@@ -0,0 +1,11 @@
+-- Downscaled copies of property images and avatars, written by ImageDerivativeService
+-- after the upload. Null until they are ready (and again whenever the image changes).
+
+ALTER TABLE propiedades ADD COLUMN IF NOT EXISTS imagen_thumb VARCHAR(500);
+ALTER TABLE propiedades ADD COLUMN IF NOT EXISTS imagen_medium VARCHAR(500);
+
+ALTER TABLE inquilinos ADD COLUMN IF NOT EXISTS avatar_thumb VARCHAR(500);
+ALTER TABLE inquilinos ADD COLUMN IF NOT EXISTS avatar_medium VARCHAR(500);
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS avatar_thumb VARCHAR(500);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS avatar_medium VARCHAR(500);
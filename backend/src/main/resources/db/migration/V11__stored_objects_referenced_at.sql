@@ -0,0 +1,7 @@
+-- When a reference to the object was last added. The storage garbage collector
+-- only drops rows (and objects) not referenced for its whole grace period, so an
+-- upload that has just reused the object is never left pointing at a deleted file.
+
+ALTER TABLE stored_objects ADD COLUMN IF NOT EXISTS referenced_at TIMESTAMP;
+UPDATE stored_objects SET referenced_at = created_at WHERE referenced_at IS NULL;
+ALTER TABLE stored_objects ALTER COLUMN referenced_at SET NOT NULL;
@@ -0,0 +1,13 @@
+-- Keyset pages seek on (created_at, id), which never matches a NULL created_at, so
+-- rows saved before the column was filled in would drop out of them. Those rows
+-- take their last update time, or the epoch, and the column becomes required.
+
+UPDATE propiedades SET created_at = COALESCE(updated_at, TIMESTAMP '1970-01-01 00:00:00') WHERE created_at IS NULL;
+UPDATE inquilinos SET created_at = COALESCE(updated_at, TIMESTAMP '1970-01-01 00:00:00') WHERE created_at IS NULL;
+UPDATE contratos SET created_at = COALESCE(updated_at, TIMESTAMP '1970-01-01 00:00:00') WHERE created_at IS NULL;
+UPDATE pagos SET created_at = COALESCE(updated_at, TIMESTAMP '1970-01-01 00:00:00') WHERE created_at IS NULL;
+
+ALTER TABLE propiedades ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE inquilinos ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE contratos ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE pagos ALTER COLUMN created_at SET NOT NULL;
@@ -0,0 +1,148 @@
+-- Baseline: the schema previously created by ddl-auto=update.
+-- Existing databases are baselined at this version and skip this script.
+
+CREATE TABLE users (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(50),
+    apellido VARCHAR(50),
+    email VARCHAR(100),
+    password VARCHAR(120),
+    telefono VARCHAR(20),
+    role VARCHAR(20) DEFAULT 'Admin',
+    avatar VARCHAR(500),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE propiedades (
+    id BIGSERIAL PRIMARY KEY,
+    nombre VARCHAR(100),
+    direccion VARCHAR(255),
+    ciudad VARCHAR(100),
+    pais VARCHAR(100),
+    tipo VARCHAR(50),
+    renta_mensual NUMERIC(10, 2) NOT NULL,
+    estado VARCHAR(20),
+    imagen VARCHAR(500),
+    user_id BIGINT,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_propiedades_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE inquilinos (
+    id BIGSERIAL PRIMARY KEY,
+    nombre VARCHAR(50),
+    apellido VARCHAR(50),
+    email VARCHAR(100),
+    telefono VARCHAR(20),
+    documento VARCHAR(50),
+    avatar VARCHAR(500),
+    direccion_contacto VARCHAR(500),
+    documento_identidad_url VARCHAR(500),
+    contrato_estado VARCHAR(20),
+    contrato_fin DATE,
+    propiedad_id BIGINT,
+    user_id BIGINT,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_inquilinos_propiedad FOREIGN KEY (propiedad_id) REFERENCES propiedades (id),
+    CONSTRAINT fk_inquilinos_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE contratos (
+    id BIGSERIAL PRIMARY KEY,
+    inquilino_id BIGINT NOT NULL,
+    propiedad_id BIGINT NOT NULL,
+    fecha_inicio DATE NOT NULL,
+    fecha_fin DATE NOT NULL,
+    renta_mensual NUMERIC(10, 2) NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    pdf_url VARCHAR(500),
+    user_id BIGINT,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_contratos_inquilino FOREIGN KEY (inquilino_id) REFERENCES inquilinos (id),
+    CONSTRAINT fk_contratos_propiedad FOREIGN KEY (propiedad_id) REFERENCES propiedades (id),
+    CONSTRAINT fk_contratos_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE pagos (
+    id BIGSERIAL PRIMARY KEY,
+    inquilino_id BIGINT NOT NULL,
+    propiedad_id BIGINT NOT NULL,
+    monto NUMERIC(10, 2) NOT NULL,
+    fecha_vencimiento DATE NOT NULL,
+    fecha_pago DATE,
+    estado VARCHAR(20) NOT NULL,
+    comprobante VARCHAR(500),
+    user_id BIGINT,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_pagos_inquilino FOREIGN KEY (inquilino_id) REFERENCES inquilinos (id),
+    CONSTRAINT fk_pagos_propiedad FOREIGN KEY (propiedad_id) REFERENCES propiedades (id),
+    CONSTRAINT fk_pagos_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE tasks (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(255),
+    completed BOOLEAN NOT NULL,
+    progress INTEGER DEFAULT 0 NOT NULL,
+    user_id BIGINT,
+    CONSTRAINT fk_tasks_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE billing_history (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    fecha DATE,
+    descripcion VARCHAR(200),
+    monto NUMERIC(10, 2),
+    moneda VARCHAR(10) DEFAULT 'MXN',
+    factura_url VARCHAR(500),
+    created_at TIMESTAMP(6),
+    CONSTRAINT fk_billing_history_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    dispositivo VARCHAR(200),
+    ubicacion VARCHAR(100),
+    ciudad VARCHAR(100),
+    ip_address VARCHAR(45),
+    fecha_inicio TIMESTAMP(6),
+    activa BOOLEAN DEFAULT TRUE,
+    CONSTRAINT fk_user_sessions_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_preferences (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idioma VARCHAR(10) DEFAULT 'es',
+    zona_horaria VARCHAR(30) DEFAULT 'UTC-06:00',
+    elementos_por_pagina INTEGER DEFAULT 10,
+    notificaciones_correo BOOLEAN DEFAULT TRUE,
+    notificaciones_sistema BOOLEAN DEFAULT TRUE,
+    recordatorios_pagos BOOLEAN DEFAULT TRUE,
+    avisos_vencimiento BOOLEAN DEFAULT TRUE,
+    confirmaciones_reservacion BOOLEAN DEFAULT TRUE,
+    resumen_mensual BOOLEAN DEFAULT TRUE,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_user_preferences_user UNIQUE (user_id),
+    CONSTRAINT fk_user_preferences_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_subscriptions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    plan VARCHAR(20) DEFAULT 'basico',
+    estado VARCHAR(20) DEFAULT 'activa',
+    proximo_pago DATE,
+    tarjeta_ultimos4 VARCHAR(4),
+    tarjeta_expiracion VARCHAR(7),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_user_subscriptions_user UNIQUE (user_id),
+    CONSTRAINT fk_user_subscriptions_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
@@ -0,0 +1,36 @@
+-- Monthly payment rollup maintained by PagoSummaryService.
+-- IF NOT EXISTS: databases upgraded under ddl-auto=update may already have it.
+
+CREATE TABLE IF NOT EXISTS pago_monthly_summary (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    anio INTEGER NOT NULL,
+    mes INTEGER NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    monto_total NUMERIC(14, 2) NOT NULL,
+    cantidad INTEGER NOT NULL,
+    inquilinos INTEGER NOT NULL,
+    propiedades INTEGER NOT NULL,
+    CONSTRAINT uk_pago_monthly_summary_period UNIQUE (user_id, anio, mes, estado)
+);
+
+-- Backfill from existing pagos (same bucketing as PagoMonthlySummaryRepository.insertAllRows)
+DELETE FROM pago_monthly_summary;
+
+INSERT INTO pago_monthly_summary (user_id, anio, mes, estado, monto_total, cantidad, inquilinos, propiedades)
+SELECT b.user_id, b.anio, b.mes, b.estado, SUM(b.monto), COUNT(*),
+       COUNT(DISTINCT b.inquilino_id), COUNT(DISTINCT b.propiedad_id)
+FROM (
+    SELECT p.user_id, p.estado, p.monto, p.inquilino_id, p.propiedad_id,
+           EXTRACT(YEAR FROM CASE WHEN p.estado = 'pagado' THEN p.fecha_pago ELSE p.fecha_vencimiento END) AS anio,
+           EXTRACT(MONTH FROM CASE WHEN p.estado = 'pagado' THEN p.fecha_pago ELSE p.fecha_vencimiento END) AS mes
+    FROM pagos p
+    WHERE p.user_id IS NOT NULL
+      AND (CASE WHEN p.estado = 'pagado' THEN p.fecha_pago ELSE p.fecha_vencimiento END) IS NOT NULL
+    UNION ALL
+    SELECT p.user_id, 'total', p.monto, p.inquilino_id, p.propiedad_id,
+           EXTRACT(YEAR FROM p.fecha_vencimiento), EXTRACT(MONTH FROM p.fecha_vencimiento)
+    FROM pagos p
+    WHERE p.user_id IS NOT NULL AND p.fecha_vencimiento IS NOT NULL
+) b
+GROUP BY b.user_id, b.anio, b.mes, b.estado;
@@ -0,0 +1,31 @@
+-- Indexes for the ownership-scoped queries: user_id first, then the columns each
+-- repository filters or sorts on. Foreign keys used by cascade deletes get their own.
+-- IF NOT EXISTS: the pagos indexes were previously declared on the entity.
+
+-- pagos
+CREATE INDEX IF NOT EXISTS idx_pagos_user_estado_vencimiento ON pagos (user_id, estado, fecha_vencimiento);
+CREATE INDEX IF NOT EXISTS idx_pagos_user_estado_pago ON pagos (user_id, estado, fecha_pago);
+CREATE INDEX IF NOT EXISTS idx_pagos_user_vencimiento ON pagos (user_id, fecha_vencimiento);
+CREATE INDEX IF NOT EXISTS idx_pagos_user_created ON pagos (user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_pagos_inquilino ON pagos (inquilino_id);
+CREATE INDEX IF NOT EXISTS idx_pagos_propiedad ON pagos (propiedad_id);
+
+-- contratos
+CREATE INDEX IF NOT EXISTS idx_contratos_user_estado_fin ON contratos (user_id, estado, fecha_fin);
+CREATE INDEX IF NOT EXISTS idx_contratos_user_created ON contratos (user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_contratos_propiedad_periodo ON contratos (propiedad_id, fecha_inicio, fecha_fin);
+CREATE INDEX IF NOT EXISTS idx_contratos_inquilino ON contratos (inquilino_id);
+
+-- inquilinos
+CREATE INDEX IF NOT EXISTS idx_inquilinos_user_contrato_estado ON inquilinos (user_id, contrato_estado);
+CREATE INDEX IF NOT EXISTS idx_inquilinos_user_created ON inquilinos (user_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_inquilinos_propiedad ON inquilinos (propiedad_id);
+
+-- propiedades
+CREATE INDEX IF NOT EXISTS idx_propiedades_user_estado ON propiedades (user_id, estado);
+CREATE INDEX IF NOT EXISTS idx_propiedades_user_created ON propiedades (user_id, created_at);
+
+-- account tables (user_preferences and user_subscriptions are covered by their unique user_id)
+CREATE INDEX IF NOT EXISTS idx_billing_history_user_fecha ON billing_history (user_id, fecha);
+CREATE INDEX IF NOT EXISTS idx_user_sessions_user_activa ON user_sessions (user_id, activa, fecha_inicio);
+CREATE INDEX IF NOT EXISTS idx_tasks_user ON tasks (user_id);
@@ -0,0 +1,2 @@
+-- Global scan used by the pagos estado job (estado = 'pendiente' AND fecha_vencimiento < today)
+CREATE INDEX IF NOT EXISTS idx_pagos_estado_vencimiento ON pagos (estado, fecha_vencimiento);
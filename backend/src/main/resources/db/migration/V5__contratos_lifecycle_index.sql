@@ -0,0 +1,2 @@
+-- Global scan used by the contratos lifecycle job (estado plus fecha_fin boundaries)
+CREATE INDEX IF NOT EXISTS idx_contratos_estado_fin ON contratos (estado, fecha_fin);
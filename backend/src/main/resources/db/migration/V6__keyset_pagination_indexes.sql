@@ -0,0 +1,12 @@
+-- Keyset pagination seeks on (created_at, id) per user; the id tie-breaker makes
+-- the order total, so these replace the (user_id, created_at) indexes from V3.
+
+CREATE INDEX IF NOT EXISTS idx_pagos_user_created_id ON pagos (user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_contratos_user_created_id ON contratos (user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_inquilinos_user_created_id ON inquilinos (user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_propiedades_user_created_id ON propiedades (user_id, created_at, id);
+
+DROP INDEX IF EXISTS idx_pagos_user_created;
+DROP INDEX IF EXISTS idx_contratos_user_created;
+DROP INDEX IF EXISTS idx_inquilinos_user_created;
+DROP INDEX IF EXISTS idx_propiedades_user_created;
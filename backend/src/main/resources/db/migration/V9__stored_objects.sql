@@ -0,0 +1,14 @@
+-- Uploaded files by content (SHA-256), maintained by StoredObjectService.
+-- ref_count is the number of entity fields holding the object's URL; the row and
+-- the object go away together when it drops to zero. Files uploaded before this
+-- table existed have no row and are deleted as soon as they are replaced.
+
+CREATE TABLE IF NOT EXISTS stored_objects (
+    sha256 VARCHAR(64) PRIMARY KEY,
+    path VARCHAR(500) NOT NULL,
+    size BIGINT NOT NULL,
+    content_type VARCHAR(100),
+    ref_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_stored_objects_path UNIQUE (path)
+);
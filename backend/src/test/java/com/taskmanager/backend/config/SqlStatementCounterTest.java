@@ -0,0 +1,54 @@
+package com.taskmanager.backend.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlStatementCounterTest {
+
+    private final SqlStatementCounter enforcing = new SqlStatementCounter(true);
+
+    @AfterEach
+    void clear() {
+        enforcing.stop();
+    }
+
+    @Test
+    void countsStatementsWithinTheBudget() {
+        enforcing.start("handler", 2);
+
+        assertThat(enforcing.inspect("select 1")).isEqualTo("select 1");
+        enforcing.inspect("select 2");
+
+        assertThat(enforcing.stop()).isEqualTo(2);
+    }
+
+    @Test
+    void failsTheStatementOverTheBudget() {
+        enforcing.start("PagoController#getAll", 1);
+        enforcing.inspect("select 1");
+
+        assertThatThrownBy(() -> enforcing.inspect("select 2"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("PagoController#getAll")
+                .hasMessageContaining("2 sentencias (máximo 1)");
+    }
+
+    @Test
+    void onlyCountsWhenNotEnforcing() {
+        SqlStatementCounter logging = new SqlStatementCounter(false);
+        logging.start("handler", 1);
+        logging.inspect("select 1");
+        logging.inspect("select 2");
+
+        assertThat(logging.stop()).isEqualTo(2);
+    }
+
+    @Test
+    void ignoresStatementsOutsideATrackedHandler() {
+        assertThat(enforcing.inspect("select 1")).isEqualTo("select 1");
+        assertThat(enforcing.stop()).isEqualTo(-1);
+    }
+}
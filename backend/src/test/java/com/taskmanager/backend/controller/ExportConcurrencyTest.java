@@ -0,0 +1,79 @@
+package com.taskmanager.backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.backend.service.ListExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * With exports.max-concurrent (2) exports streaming, a further export answers
+ * 429 instead of taking another pool connection; a finished export gives its
+ * slot back.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExportConcurrencyTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ListExportService exportService;
+
+    private String bearer;
+
+    @BeforeEach
+    void register() throws Exception {
+        String body = mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ana\",\"email\":\"export-" + UUID.randomUUID()
+                                + "@test.com\",\"password\":\"secret123\"}"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString();
+        bearer = "Bearer " + objectMapper.readTree(body).get("token").asText();
+    }
+
+    @Test
+    void rejectsExportsOverTheLimit() throws Exception {
+        Runnable first = exportService.acquireSlot();
+        Runnable second = exportService.acquireSlot();
+        try {
+            mockMvc.perform(get("/api/pagos/export").header(HttpHeaders.AUTHORIZATION, bearer))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        } finally {
+            first.run();
+            second.run();
+        }
+    }
+
+    @Test
+    void releasesTheSlotWhenTheExportFinishes() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MvcResult result = mockMvc.perform(get("/api/inquilinos/export").header(HttpHeaders.AUTHORIZATION, bearer))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        }
+    }
+}
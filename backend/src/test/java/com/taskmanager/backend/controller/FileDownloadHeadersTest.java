@@ -0,0 +1,68 @@
+package com.taskmanager.backend.controller;
+
+import com.taskmanager.backend.service.LocalStorageBackend;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Stored files are served from the API's origin, so none of them may run as a
+ * page there: only raster images and PDFs are shown inline, and every response
+ * forbids sniffing and scripts.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FileDownloadHeadersTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LocalStorageBackend storage;
+
+    @Test
+    void servesImagesInline() throws Exception {
+        String path = store("png", MediaType.IMAGE_PNG, "png");
+
+        mockMvc.perform(get("/api/files/" + path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "inline"))
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(header().string("Content-Security-Policy", "sandbox"));
+    }
+
+    @Test
+    void servesSvgAndHtmlAsDownloads() throws Exception {
+        String svg = store("svg", MediaType.valueOf("image/svg+xml"), "<svg><script>alert(1)</script></svg>");
+        String html = store("html", MediaType.TEXT_HTML, "<script>alert(1)</script>");
+
+        for (String path : new String[] {svg, html}) {
+            mockMvc.perform(get("/api/files/" + path))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment"))
+                    .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                    .andExpect(header().string("Content-Security-Policy", "sandbox"));
+        }
+    }
+
+    private String store(String extension, MediaType contentType, String content) throws Exception {
+        String path = "test-downloads/" + UUID.randomUUID() + "." + extension;
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        storage.write(path, contentType, bytes.length, target -> target.write(ByteBuffer.wrap(bytes)));
+        return path;
+    }
+}
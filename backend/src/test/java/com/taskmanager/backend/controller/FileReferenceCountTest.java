@@ -0,0 +1,132 @@
+package com.taskmanager.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.backend.repository.StoredObjectRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Each property holds exactly one reference to its stored image. Uploading the
+ * content it already shows resolves to the same object, and the reference that
+ * upload took is dropped again. A plain JSON body cannot point a property at a
+ * stored object it did not upload.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FileReferenceCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StoredObjectRepository storedObjectRepository;
+
+    private String bearer;
+
+    @BeforeEach
+    void register() throws Exception {
+        bearer = registerUser();
+    }
+
+    @Test
+    void reuploadingTheSameImageKeepsOneReference() throws Exception {
+        long id = createPropiedad(bearer);
+        MockMultipartFile image = uniqueImage();
+
+        String first = upload(id, image);
+        String second = upload(id, image);
+
+        assertThat(second).isEqualTo(first);
+        awaitRefCount(pathOf(first), 1);
+    }
+
+    @Test
+    void plainBodiesCannotPointAtAnotherStoredFile() throws Exception {
+        String imagen = upload(createPropiedad(bearer), uniqueImage());
+        String other = registerUser();
+
+        mockMvc.perform(post("/api/propiedades").header(HttpHeaders.AUTHORIZATION, other)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(propiedadJson(imagen)))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.message").value("Los archivos solo se pueden cambiar subiéndolos"));
+        awaitRefCount(pathOf(imagen), 1);
+    }
+
+    private String registerUser() throws Exception {
+        String body = mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ana\",\"email\":\"refs-" + UUID.randomUUID()
+                                + "@test.com\",\"password\":\"secret123\"}"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString();
+        return "Bearer " + objectMapper.readTree(body).get("token").asText();
+    }
+
+    private long createPropiedad(String owner) throws Exception {
+        String body = mockMvc.perform(post("/api/propiedades").header(HttpHeaders.AUTHORIZATION, owner)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(propiedadJson("")))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private static String propiedadJson(String imagen) {
+        return "{\"nombre\":\"Casa\",\"direccion\":\"Calle 1\",\"ciudad\":\"Lima\",\"pais\":\"PE\","
+                + "\"tipo\":\"casa\",\"rentaMensual\":500,\"estado\":\"disponible\",\"imagen\":\"" + imagen + "\"}";
+    }
+
+    // Unique content, so no other test's object is involved
+    private static MockMultipartFile uniqueImage() {
+        return new MockMultipartFile("file", "casa.png", MediaType.IMAGE_PNG_VALUE, UUID.randomUUID().toString().getBytes());
+    }
+
+    private static String pathOf(String url) {
+        return url.substring(url.indexOf("/api/files/") + "/api/files/".length());
+    }
+
+    private String upload(long id, MockMultipartFile image) throws Exception {
+        String body = mockMvc.perform(multipart("/api/propiedades/" + id + "/upload-imagen").file(image)
+                        .header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode propiedad = objectMapper.readTree(body);
+        return propiedad.get("imagen").asText();
+    }
+
+    // The extra reference is dropped on the storage executor
+    private void awaitRefCount(String path, int expected) throws InterruptedException {
+        Integer refCount = null;
+        for (int i = 0; i < 50; i++) {
+            refCount = storedObjectRepository.findAll().stream()
+                    .filter(object -> object.getPath().equals(path))
+                    .findFirst().orElseThrow().getRefCount();
+            if (refCount == expected) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        assertThat(refCount).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,116 @@
+package com.taskmanager.backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls every handler annotated with @SqlStatementBudget over a portfolio with
+ * several tenants, properties, contracts and payments, with enforcement on: a
+ * handler that goes over its budget (an N+1 on the rows or their associations)
+ * answers 500 instead of 200.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SqlStatementBudgetTest {
+
+    private static final int ROWS = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String bearer;
+    private final List<Long> propiedades = new ArrayList<>();
+    private final List<Long> inquilinos = new ArrayList<>();
+    private Long pagoId;
+    private Long contratoId;
+
+    @BeforeAll
+    void seedPortfolio() throws Exception {
+        String email = "budget-" + UUID.randomUUID() + "@test.com";
+        bearer = "Bearer " + create("/api/auth/register",
+                "{\"name\":\"Ana\",\"email\":\"" + email + "\",\"password\":\"secret123\"}").get("token").asText();
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < ROWS; i++) {
+            propiedades.add(create("/api/propiedades", "{\"nombre\":\"Casa " + i + "\",\"direccion\":\"Calle " + i
+                    + "\",\"ciudad\":\"Lima\",\"pais\":\"PE\",\"tipo\":\"casa\",\"rentaMensual\":500,"
+                    + "\"estado\":\"disponible\"}").get("id").asLong());
+            inquilinos.add(create("/api/inquilinos", "{\"nombre\":\"Luis " + i + "\",\"apellido\":\"Perez\","
+                    + "\"email\":\"l" + i + "@x.com\",\"telefono\":\"12" + i + "\",\"documento\":\"D" + i + "\"}")
+                    .get("id").asLong());
+        }
+        for (int i = 0; i < ROWS; i++) {
+            String owners = "\"inquilinoId\":" + inquilinos.get(i) + ",\"propiedadId\":" + propiedades.get(i);
+            contratoId = create("/api/contratos", "{" + owners + ",\"fechaInicio\":\"" + today.minusMonths(6)
+                    + "\",\"fechaFin\":\"" + today.plusDays(10 + i) + "\",\"rentaMensual\":500,"
+                    + "\"estado\":\"activo\"}").get("id").asLong();
+            // One paid, one pending and one overdue payment per tenant
+            create("/api/pagos", "{" + owners + ",\"monto\":500,\"fechaVencimiento\":\"" + today.withDayOfMonth(1)
+                    + "\",\"fechaPago\":\"" + today.withDayOfMonth(1) + "\"}");
+            create("/api/pagos", "{" + owners + ",\"monto\":300,\"fechaVencimiento\":\"" + today.plusDays(5) + "\"}");
+            pagoId = create("/api/pagos", "{" + owners + ",\"monto\":200,\"fechaVencimiento\":\""
+                    + today.minusDays(20) + "\"}").get("id").asLong();
+        }
+    }
+
+    List<String> budgetedEndpoints() {
+        LocalDate today = LocalDate.now();
+        String window = "fechaInicio=" + today + "&fechaFin=" + today.plusMonths(1);
+        return List.of(
+                "/api/pagos", "/api/pagos?search=Luis", "/api/pagos?after=", "/api/pagos/all",
+                "/api/pagos/atrasados", "/api/pagos/estado/pendiente", "/api/pagos/" + pagoId,
+                "/api/contratos", "/api/contratos?estado=activo", "/api/contratos?after=", "/api/contratos/all",
+                "/api/contratos/proximos-a-vencer", "/api/contratos/estado/activo", "/api/contratos/" + contratoId,
+                "/api/inquilinos", "/api/inquilinos?search=Perez", "/api/inquilinos?after=", "/api/inquilinos/all",
+                "/api/inquilinos/sin-propiedad", "/api/inquilinos/" + inquilinos.get(0),
+                "/api/propiedades/disponibilidad?" + window,
+                "/api/propiedades/ocupacion?from=" + today.minusMonths(1) + "&to=" + today.plusMonths(1),
+                "/api/dashboard/stats", "/api/dashboard/rentas-pendientes",
+                "/api/dashboard/contratos-proximos-vencer", "/api/dashboard/propiedades-destacadas",
+                "/api/search?q=Casa");
+    }
+
+    @ParameterizedTest
+    @MethodSource("budgetedEndpoints")
+    void staysWithinItsStatementBudget(String url) throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, bearer))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode create(String url, String json) throws Exception {
+        MockHttpServletRequestBuilder request = post(url).contentType(MediaType.APPLICATION_JSON);
+        if (bearer != null) {
+            request.header(HttpHeaders.AUTHORIZATION, bearer);
+        }
+        String body = mockMvc.perform(request.content(json))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,36 @@
+package com.taskmanager.backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final long EXPIRATION = 3_600_000;
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100, EXPIRATION);
+    private final AuthenticatedUser user = new AuthenticatedUser(1L, "ana@mail.com", "Ana");
+
+    @Test
+    void rejectsATokenCachedAgainAfterItsUserWasRevoked() {
+        Instant issuedAt = Instant.now().minusSeconds(60);
+        VerifiedToken verified = new VerifiedToken(1L, "ana@mail.com", "Ana", issuedAt, issuedAt.plusMillis(EXPIRATION));
+
+        cache.revokeEarlierTokens(1L);
+        // A request verified before the revocation caches the old token afterwards
+        cache.put("old-token", verified, user);
+
+        assertThat(cache.get("old-token")).isNull();
+    }
+
+    @Test
+    void keepsTokensIssuedAfterTheRevocation() {
+        cache.revokeEarlierTokens(1L);
+        Instant issuedAt = Instant.now().plusSeconds(1);
+        cache.put("new-token", new VerifiedToken(1L, "ana@mail.com", "Ana", issuedAt, issuedAt.plusMillis(EXPIRATION)), user);
+
+        assertThat(cache.get("new-token")).isSameAs(user);
+    }
+}
@@ -0,0 +1,28 @@
+package com.taskmanager.backend.service;
+
+import com.taskmanager.backend.exception.TooManyExportsException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ListExportServiceTest {
+
+    private final ListExportService exports = new ListExportService(null, null, null, null, 1);
+
+    @Test
+    void rejectsAnExportOverTheLimit() {
+        exports.acquireSlot();
+
+        assertThatThrownBy(exports::acquireSlot).isInstanceOf(TooManyExportsException.class);
+    }
+
+    @Test
+    void releasesASlotOnlyOnce() {
+        Runnable release = exports.acquireSlot();
+        release.run();
+        release.run();
+
+        exports.acquireSlot();
+        assertThatThrownBy(exports::acquireSlot).isInstanceOf(TooManyExportsException.class);
+    }
+}
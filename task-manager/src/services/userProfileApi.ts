@@ -27,10 +27,17 @@ export const uploadAvatar = async (file: File) => {
 };
 
 // ---- Password ----
-export const changePassword = (data: {
+// Tokens issued before the change stop working, so the one returned replaces the stored token
+export const changePassword = async (data: {
   currentPassword: string;
   newPassword: string;
-}) => api.put<{ message: string }>('/perfil/password', data);
+}) => {
+  const response = await api.put<{ message: string; token: string }>('/perfil/password', data);
+  if (response.data.token) {
+    localStorage.setItem('token', response.data.token);
+  }
+  return response;
+};
 
 // ---- Preferences ----
 export const getPreferences = () =>